@@ -1,4 +1,103 @@
 package Networking;
 
+/**
+ * A server that gives every client a thread of its own. One thread accepts the connections; each connection is then
+ * handed to a ConnectionHandler on a new thread, so a slow or blocked client never holds up the others. The socket
+ * is closed when the handler returns.
+ *
+ * Port 0 picks any free port; getPort tells which one it was.
+ */
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
 public class ThreadedServer {
+
+    public interface ConnectionHandler {
+        void handle( Socket connection ) throws IOException;
+    }
+
+    private final ServerSocket serverSocket;
+    private final ConnectionHandler handler;
+    private volatile boolean running;
+
+    public ThreadedServer( int port, ConnectionHandler handler ) throws IOException {
+        serverSocket = new ServerSocket( port );
+        this.handler = handler;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections in the background.
+     */
+    public void start() {
+        running = true;
+        Thread acceptingThread = new Thread( this::acceptConnections, "ThreadedServer-" + getPort() );
+        acceptingThread.setDaemon( true );
+        acceptingThread.start();
+    }
+
+    /**
+     * Stops accepting connections. Connections that are already open are left to their handlers.
+     */
+    public void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        }
+        catch ( IOException e ) {
+            System.out.println( "Error while closing the server socket: " + e.getMessage() );
+        }
+    }
+
+    private void acceptConnections() {
+        while ( running ) {
+            try {
+                Socket connection = serverSocket.accept();
+                new ConnectionThread( connection ).start();
+            }
+            catch ( SocketException e ) {
+                // The server socket has been closed by stop().
+            }
+            catch ( IOException e ) {
+                System.out.println( "Error while accepting a connection: " + e.getMessage() );
+            }
+        }
+    }
+
+    private class ConnectionThread extends Thread {
+
+        private final Socket connection;
+
+        ConnectionThread( Socket connection ) {
+            this.connection = connection;
+            setDaemon( true );
+        }
+
+        public void run() {
+            try {
+                handler.handle( connection );
+            }
+            catch ( EOFException e ) {
+                System.out.println( "Connection with " + connection.getRemoteSocketAddress() + " closed." );
+            }
+            catch ( IOException e ) {
+                System.out.println( "Connection with " + connection.getRemoteSocketAddress() + " lost: "
+                        + e.getMessage() );
+            }
+            finally {
+                try {
+                    connection.close();
+                }
+                catch ( IOException e ) {
+                    // Nothing more can be done with this connection anyway.
+                }
+            }
+        }
+    }
 }
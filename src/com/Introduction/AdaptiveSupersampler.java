@@ -0,0 +1,148 @@
+package com.Introduction;
+
+/**
+ * Anti-aliases an image that has already been computed. Supersampling every pixel, by computing it n x n times
+ * at slightly different positions and averaging the colors, multiplies the cost of a render by n squared. But
+ * almost all of the aliasing is at the edges, where the iteration count changes from one pixel to the next; inside
+ * a band of equal counts the extra samples would all come out the same.
+ *
+ * So this is a second pass over the counts of a finished image. A pixel is supersampled only if one of its eight
+ * neighbours has a different count, and its color is then replaced by the average color of its n x n samples. Every
+ * other pixel keeps the color it already has. How much this saves depends on the view, but typically well under a
+ * fifth of the pixels are edges, and far fewer in deep views with smooth coloring.
+ *
+ * The pass runs on the common ForkJoinPool. The edge pixels are not spread evenly over the image, so it is cut into
+ * many more bands of rows than there are threads, and work stealing evens out the rest.
+ */
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdaptiveSupersampler {
+
+    private static final int BANDS_PER_THREAD = 8;
+
+    private final EscapeTimeRenderer renderer;
+    private final Colorizer colorizer;
+    private final int samplesPerSide;
+    private final int coloringLimit;
+
+    /**
+     * Edge pixels will be sampled samplesPerSide x samplesPerSide times, on a regular grid inside the pixel.
+     */
+    public AdaptiveSupersampler( EscapeTimeRenderer renderer, Colorizer colorizer, int samplesPerSide ) {
+        this( renderer, colorizer, samplesPerSide, renderer.getSpec().getMaximumIterations() );
+    }
+
+    /**
+     * For an image whose pixels were colored with a lower limit than that of the renderer, as after the boundary
+     * pass of automatic iteration limits (see IterationLimitEstimator.refineBoundary): a sample that reaches the
+     * limit of the renderer is colored as the interior, and the others are colored with coloringLimit, like the
+     * pixels around them.
+     */
+    public AdaptiveSupersampler( EscapeTimeRenderer renderer, Colorizer colorizer, int samplesPerSide,
+                                 int coloringLimit ) {
+        if ( samplesPerSide < 1 )
+            throw new IllegalArgumentException( "Need at least one sample per side." );
+        this.renderer = renderer;
+        this.colorizer = colorizer;
+        this.samplesPerSide = samplesPerSide;
+        this.coloringLimit = coloringLimit;
+    }
+
+    /**
+     * Replaces the colors of the edge pixels in argb, which has to hold the image as colored by the colorizer.
+     * The counts are those of the renderer's view, row by row; pixels with a negative count have not been computed
+     * and are left alone, and are not counted as neighbours either. Returns the number of pixels supersampled.
+     */
+    public int antiAlias( int[] counts, int width, int[] argb ) {
+        int height = counts.length / width;
+        int numberOfBands = Math.max( 1,
+                Math.min( height, BANDS_PER_THREAD * ForkJoinPool.commonPool().getParallelism() ) );
+        AtomicInteger supersampledPixels = new AtomicInteger();
+        ArrayList< BandTask > tasks = new ArrayList<>();
+        for ( int band = 0; band < numberOfBands; band++ )
+            tasks.add( new BandTask( counts, width, argb, supersampledPixels,
+                    ( int ) ( ( long ) band * height / numberOfBands ),
+                    ( int ) ( ( long ) ( band + 1 ) * height / numberOfBands ) ) );
+        ForkJoinTask.invokeAll( tasks );
+        return supersampledPixels.get();
+    }
+
+    /**
+     * A pixel is on an edge if any computed pixel next to it, diagonals included, has a different count.
+     */
+    private static boolean isEdge( int[] counts, int width, int height, int column, int row ) {
+        int count = counts[ row*width + column ];
+        for ( int neighbourRow = Math.max( 0, row - 1 ); neighbourRow <= Math.min( height - 1, row + 1 );
+              neighbourRow++ )
+            for ( int neighbourColumn = Math.max( 0, column - 1 ); neighbourColumn <= Math.min( width - 1, column + 1 );
+                  neighbourColumn++ ) {
+                int neighbourCount = counts[ neighbourRow*width + neighbourColumn ];
+                if ( neighbourCount >= 0 && neighbourCount != count )
+                    return true;
+            }
+        return false;
+    }
+
+    /**
+     * Averages the colors of the samples, channel by channel. The samples lie at the centres of the cells of an
+     * n x n grid over the pixel, which is centred on ( column, row ).
+     */
+    private int supersample( int column, int row, int maximumIterations, float[] smoothCount ) {
+        int red = 0, green = 0, blue = 0;
+        for ( int i = 0; i < samplesPerSide; i++ )
+            for ( int j = 0; j < samplesPerSide; j++ ) {
+                double x = column + ( j + 0.5 ) / samplesPerSide - 0.5;
+                double y = row + ( i + 0.5 ) / samplesPerSide - 0.5;
+                int count = renderer.iterationsAt( x, y, smoothCount, 0 );
+                if ( count == maximumIterations )
+                    count = coloringLimit;
+                int color = colorizer.colorOf( count, smoothCount[0], coloringLimit );
+                red += ( color >> 16 ) & 0xFF;
+                green += ( color >> 8 ) & 0xFF;
+                blue += color & 0xFF;
+            }
+        int numberOfSamples = samplesPerSide * samplesPerSide;
+        return 0xFF000000 | ( Math.round( ( float ) red / numberOfSamples ) << 16 )
+                | ( Math.round( ( float ) green / numberOfSamples ) << 8 )
+                | Math.round( ( float ) blue / numberOfSamples );
+    }
+
+    private class BandTask extends RecursiveAction {
+
+        private final int[] counts;
+        private final int width;
+        private final int[] argb;
+        private final AtomicInteger supersampledPixels;
+        private final int firstRow, endRow;
+
+        BandTask( int[] counts, int width, int[] argb, AtomicInteger supersampledPixels, int firstRow, int endRow ) {
+            this.counts = counts;
+            this.width = width;
+            this.argb = argb;
+            this.supersampledPixels = supersampledPixels;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        /**
+         * Only reads counts and only writes argb, so the bands never see each other's changes.
+         */
+        protected void compute() {
+            int height = counts.length / width;
+            int maximumIterations = renderer.getSpec().getMaximumIterations();
+            float[] smoothCount = new float[ 1 ];
+            int supersampled = 0;
+            for ( int row = firstRow; row < endRow; row++ )
+                for ( int column = 0; column < width; column++ )
+                    if ( counts[ row*width + column ] >= 0 && isEdge( counts, width, height, column, row ) ) {
+                        argb[ row*width + column ] = supersample( column, row, maximumIterations, smoothCount );
+                        supersampled++;
+                    }
+            supersampledPixels.addAndGet( supersampled );
+        }
+    }
+}
@@ -35,6 +35,8 @@ public class BackgroundComputationDemoVersion2 extends Application {
     private ComputationThread[] workers;
     private int numberOfThreadsRunning;
 
+    private static final String POOL_NAME = "Background computation version 2";
+
     private final int CANVAS_WIDTH = 700;
     private final int CANVAS_HEIGHT = 500;
 
@@ -190,10 +192,12 @@ public class BackgroundComputationDemoVersion2 extends Application {
         }
 
         public void run() {
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, startRow, 0 );
             try {
                 calculateThePixelColors();
             }
             finally {
+                TaskEvents.ended( end, POOL_NAME, startRow, 0 );
                 threadHasFinished();
             }
         }
@@ -217,8 +221,10 @@ public class BackgroundComputationDemoVersion2 extends Application {
                 Color colorForCurrentColumn = processCurrentColumn( column, y, dx );
                 rgb[ column ] = colorForCurrentColumn;
 
-                if ( !animationIsRunning )
+                if ( !animationIsRunning ) {
+                    TaskEvents.cancelled( POOL_NAME, startRow, 0, 1 );
                     return;
+                }
             }
             drawCurrentRowOntoTheCanvas( rowNumber, rgb );
         }
@@ -242,10 +248,12 @@ public class BackgroundComputationDemoVersion2 extends Application {
     }
 
     private void drawOneRowOfPixels( int rowNumber, Color[] colors ) {
+        TaskEvents.FxFlush flush = TaskEvents.flushStarted();
         for ( int column = 0; column < CANVAS_WIDTH; column++ ) {
             drawingArea.setFill( colors[ column ] );
             drawingArea.fillRect( column, rowNumber, 1, 1 );
         }
+        TaskEvents.flushEnded( flush, POOL_NAME, rowNumber, CANVAS_WIDTH );
     }
 
     synchronized private void threadHasFinished() {
@@ -8,6 +8,8 @@ package com.Introduction;
  * where several threads are created to work on the subtasks. The threads run in a loop, fetching tasks from a queue
  * and executing them.
  *
+ * The number of threads can be changed while an image is being computed; threads are added or retired on the fly.
+ *
  * THE COMPUTATION IS MUCH FASTER WHEN TRIED WITH MORE THAN ONE THREAD!!!
  */
 import javafx.application.Application;
@@ -15,14 +17,17 @@ import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.control.Button;
-import javafx.scene.control.ComboBox;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
 import javafx.scene.paint.Color;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.geometry.Pos;
 import javafx.application.Platform;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
 
 public class BackgroundComputationVersion3 extends Application {
 
@@ -30,21 +35,32 @@ public class BackgroundComputationVersion3 extends Application {
     private Canvas canvas;
     private GraphicsContext drawingArea;
     private Button startOrStopButton;
-    private ComboBox<String> threadCountSelector;
+    private Spinner< Integer > threadCountSelector;
     private volatile boolean animationIsRunning;
-    private ConcurrentLinkedQueue< Runnable > taskQueue;
-    private ComputationThread [] workers;
+    private RingBufferQueue< Runnable > taskQueue;
+    private ArrayList< ComputationThread > workers;
     private int threadsRunning;
     private Color[] colorPalette;
+    private PoolMetrics metrics;
+    private MetricsOverlay metricsOverlay;
+
+    private static final String POOL_NAME = "Background computation version 3";
 
+    private final int MAXIMUM_THREAD_COUNT = 64;
     private int CANVAS_WIDTH = 700;
     private int CANVAS_HEIGHT = 550;
 
     public void start( Stage stage ) {
+        setupMetrics();
         setupMainWindow( stage );
         showMainWindow();
     }
 
+    private void setupMetrics() {
+        metrics = new PoolMetrics( POOL_NAME, () -> ( taskQueue == null ) ? 0 : taskQueue.size() );
+        metrics.register();
+    }
+
     private void setupMainWindow( Stage stage ) {
         mainWindow = stage;
         mainWindow.setScene( setupScene() );
@@ -56,11 +72,18 @@ public class BackgroundComputationVersion3 extends Application {
     }
 
     private BorderPane setupBorderPane() {
-        BorderPane root = new BorderPane( setupCanvas() );
+        BorderPane root = new BorderPane( setupCanvasWithOverlay() );
         root.setBottom( setupButtonBar() );
         return root;
     }
 
+    private StackPane setupCanvasWithOverlay() {
+        metricsOverlay = new MetricsOverlay( metrics );
+        StackPane canvasWithOverlay = new StackPane( setupCanvas(), metricsOverlay );
+        StackPane.setAlignment( metricsOverlay, Pos.TOP_LEFT );
+        return canvasWithOverlay;
+    }
+
     private Canvas setupCanvas() {
         canvas = new Canvas( CANVAS_WIDTH, CANVAS_HEIGHT );
         drawingArea = canvas.getGraphicsContext2D();
@@ -81,13 +104,20 @@ public class BackgroundComputationVersion3 extends Application {
     }
 
     private HBox setupButtonBar() {
-        HBox buttonBar = new HBox( 15, setupStartOrStopButton(), setupThreadCountSelector() );
+        HBox buttonBar = new HBox( 15, setupStartOrStopButton(), new Label( "Threads:" ),
+                setupThreadCountSelector(), setupShowMetricsCheckBox() );
 
         buttonBar.setStyle( "-fx-padding: 6px; -fx-border-width: 2px" );
         buttonBar.setAlignment( Pos.CENTER );
         return buttonBar;
     }
 
+    private CheckBox setupShowMetricsCheckBox() {
+        CheckBox showMetrics = new CheckBox( "Show Metrics" );
+        metricsOverlay.visibleProperty().bind( showMetrics.selectedProperty() );
+        return showMetrics;
+    }
+
     private Button setupStartOrStopButton() {
         startOrStopButton = new Button( "Start" );
         startOrStopButton.setOnAction( event -> startOrStopAnimation() );
@@ -104,39 +134,52 @@ public class BackgroundComputationVersion3 extends Application {
     private void startAnimation() {
         animationIsRunning = true;
         startOrStopButton.setText( "Stop" );
-        threadCountSelector.setDisable( true );
         fillDrawingArea();
+        metrics.reset();
         setupTaskQueue();
-        setupWorkerThreads();
-        startWorkerThreads();
+        startWorkerThreads( threadCountSelector.getValue() );
     }
 
     private void setupTaskQueue() {
-        taskQueue = new ConcurrentLinkedQueue<>();
+        taskQueue = new RingBufferQueue<>( CANVAS_HEIGHT );
         fillTaskQueue();
     }
 
     private void fillTaskQueue() {
-        for ( int row = 0; row < CANVAS_HEIGHT; row++ )
-            taskQueue.add( new MandelbrotTask( row ) );
-
+        for ( int row = 0; row < CANVAS_HEIGHT; row++ ) {
+            taskQueue.add( metrics.instrument( new MandelbrotTask( row ) ) );
+            TaskEvents.submitted( POOL_NAME, row, 0 );
+        }
     }
 
-    private void setupWorkerThreads() {
-        threadsRunning = threadCountSelector.getSelectionModel().getSelectedIndex() + 1;
-        workers = new ComputationThread[ threadsRunning ];
-        fillThreadPool();
-        setWorkerThreadsPriority();
+    synchronized private void startWorkerThreads( int threadCount ) {
+        workers = new ArrayList<>();
+        addWorkerThreads( threadCount );
     }
 
-    private void fillThreadPool() {
-        for ( int worker = 0; worker < threadsRunning; worker++ )
-            workers[ worker ] = new ComputationThread();
+    /**
+     * Changes the number of threads of the render in progress. New threads start taking tasks from the queue at
+     * once. A thread that is retired finishes the task it is running and then stops, so no task is lost; the tasks
+     * it would have run are left in the queue for the others. Without a render in progress the new count is simply
+     * used for the next one.
+     */
+    synchronized private void setThreadCount( int threadCount ) {
+        if ( workers == null )
+            return;
+        if ( threadCount > workers.size() )
+            addWorkerThreads( threadCount - workers.size() );
+        while ( workers.size() > threadCount )
+            workers.remove( workers.size() - 1 ).retire();
     }
 
-    private void setWorkerThreadsPriority() {
-        for ( int i = 0; i < workers.length; i++ )
-            setWorkerThreadPriority( workers[i] );
+    private void addWorkerThreads( int numberOfThreads ) {
+        for ( int i = 0; i < numberOfThreads; i++ ) {
+            ComputationThread worker = new ComputationThread();
+            setWorkerThreadPriority( worker );
+            workers.add( worker );
+            threadsRunning++;
+            worker.start();
+        }
     }
 
     private void setWorkerThreadPriority( ComputationThread worker ) {
@@ -148,23 +191,20 @@ public class BackgroundComputationVersion3 extends Application {
         }
     }
 
-    private void startWorkerThreads() {
-        for ( int worker = 0; worker < workers.length; worker++ )
-            workers[ worker ].start();
-    }
-
     private void stopAnimation() {
         animationIsRunning = false;
         startOrStopButton.setDisable( true );
+        TaskEvents.cancelled( POOL_NAME, -1, 0, taskQueue.size() );
         taskQueue.clear();
         workers = null;
     }
 
-    private ComboBox<String> setupThreadCountSelector() {
-        threadCountSelector = new ComboBox<>();
-        threadCountSelector.getItems().addAll( "Use 1 Thread", "Use 2 Threads", "Use 3 Threads",
-                "Use 4 Threads", "Use 5 Threads", "Use 6 Threads", "Use 7 Threads", "Use 8 Threads" );
-        threadCountSelector.getSelectionModel().select( 0 );
+    private Spinner< Integer > setupThreadCountSelector() {
+        threadCountSelector = new Spinner<>( 1, MAXIMUM_THREAD_COUNT, 1 );
+        threadCountSelector.setEditable( true );
+        threadCountSelector.setPrefWidth( 80 );
+        threadCountSelector.valueProperty().addListener(
+                ( property, oldCount, newCount ) -> setThreadCount( newCount ) );
         return threadCountSelector;
     }
 
@@ -191,8 +231,13 @@ public class BackgroundComputationVersion3 extends Application {
         }
 
         public void run() {
-            calculateThePixelColors();
-
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, rowNumber, 0 );
+            try {
+                calculateThePixelColors();
+            }
+            finally {
+                TaskEvents.ended( end, POOL_NAME, rowNumber, 0 );
+            }
         }
 
         private void calculateThePixelColors() {
@@ -208,8 +253,10 @@ public class BackgroundComputationVersion3 extends Application {
                 Color colorForCurrentColumn = processCurrentColumn( column, y, dx );
                 rgb[ column ] = colorForCurrentColumn;
 
-                if ( !animationIsRunning )
+                if ( !animationIsRunning ) {
+                    TaskEvents.cancelled( POOL_NAME, rowNumber, 0, 1 );
                     return;
+                }
             }
             drawCurrentRowOntoTheCanvas( rowNumber, rgb );
         }
@@ -232,18 +279,26 @@ public class BackgroundComputationVersion3 extends Application {
         }
 
         private void drawOneRowOfPixels( int rowNumber, Color[] colors ) {
+            TaskEvents.FxFlush flush = TaskEvents.flushStarted();
             for ( int column = 0; column < CANVAS_WIDTH; column++ ) {
                 drawingArea.setFill( colors[ column ] );
                 drawingArea.fillRect( column, rowNumber, 1, 1 );
             }
+            TaskEvents.flushEnded( flush, POOL_NAME, rowNumber, CANVAS_WIDTH );
         }
     }
 
     private class ComputationThread extends Thread {
 
+        private volatile boolean retired;
+
+        void retire() {
+            retired = true;
+        }
+
         public void run() {
             try {
-                while ( animationIsRunning ) {
+                while ( animationIsRunning && !retired ) {
                     Runnable task = taskQueue.poll();
                     if ( task == null )
                         break;
@@ -263,7 +318,6 @@ public class BackgroundComputationVersion3 extends Application {
                 // Make sure state is correct when threads end.
                 startOrStopButton.setText( "Start" );
                 startOrStopButton.setDisable( false );
-                threadCountSelector.setDisable( false );
             } );
             animationIsRunning = false; // Make sure running is false after the thread ends.
             workers = null;
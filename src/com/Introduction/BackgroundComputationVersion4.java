@@ -5,48 +5,67 @@ package com.Introduction;
  * to create the thread pool once at the very beginning of the program and re-use the threads every time a new image
  * is to be computed. In this version, this is done by using a blocking queue. Once the thread pool is created, the
  * threads are blocked while waiting for tasks to be added to the queue. Once tasks have been added to the queue, the
- * threads wake up, take tasks from the queue and run them.
+ * threads wake up, take tasks from the queue and run them. The queue is a RingBufferQueue, which, unlike a
+ * LinkedBlockingQueue, takes no lock and allocates nothing when a task is added.
+ *
+ * The size of the pool can be changed at any time, even in the middle of a job, for example to hand cores over to
+ * another program for a while and take them back later.
  */
 import javafx.application.Application;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.geometry.Pos;
 import javafx.application.Platform;
 import javafx.scene.paint.Color;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
 
 public class BackgroundComputationVersion4 extends Application {
 
     private Stage mainWindow;
     private Color[] colorPalette;
-    private ComputationThread [] threadPool;
+    private ArrayList< ComputationThread > threadPool = new ArrayList<>();
+    private Spinner< Integer > threadCountSelector;
     private Canvas canvas;
     private GraphicsContext drawingArea;
     private Button startOrStopButton;
     private boolean jobInProgress;
     private int numberOfTasks;
+    private PoolMetrics metrics;
+    private MetricsOverlay metricsOverlay;
 
 
-    private final int THREAD_COUNT = 4;
+    private final int MAXIMUM_THREAD_COUNT = 64;
+    private static final String POOL_NAME = "Background computation version 4";
+
     private int CANVAS_WIDTH = 700;
     private int CANVAS_HEIGHT = 550;
-    private LinkedBlockingQueue< Runnable > taskQueue = new LinkedBlockingQueue<>();
+    private RingBufferQueue< Runnable > taskQueue = new RingBufferQueue<>( CANVAS_HEIGHT );
 
     public static void main( String[] args ) {
         launch( args );
     }
 
     public void start( Stage stage ) {
+        setupMetrics();
         setupMainWindow( stage );
         setupThreadPool();
         showMainWindow();
     }
 
+    private void setupMetrics() {
+        metrics = new PoolMetrics( POOL_NAME, taskQueue::size );
+        metrics.register();
+    }
+
     private void setupMainWindow( Stage stage ) {
         createMainWindow( stage );
         mainWindow.setScene( setupScene() );
@@ -62,11 +81,18 @@ public class BackgroundComputationVersion4 extends Application {
     }
 
     private BorderPane setupBorderPane() {
-        BorderPane root = new BorderPane( setupCanvas() );
+        BorderPane root = new BorderPane( setupCanvasWithOverlay() );
         root.setBottom( setupButtonBar() );
         return root;
     }
 
+    private StackPane setupCanvasWithOverlay() {
+        metricsOverlay = new MetricsOverlay( metrics );
+        StackPane canvasWithOverlay = new StackPane( setupCanvas(), metricsOverlay );
+        StackPane.setAlignment( metricsOverlay, Pos.TOP_LEFT );
+        return canvasWithOverlay;
+    }
+
     private Canvas setupCanvas() {
         canvas = new Canvas( CANVAS_WIDTH, CANVAS_HEIGHT );
         drawingArea = canvas.getGraphicsContext2D();
@@ -95,12 +121,28 @@ public class BackgroundComputationVersion4 extends Application {
     }
 
     private HBox setupButtonBar() {
-        HBox buttonBar = new HBox( 15, setupStartOrStopButton() );
+        HBox buttonBar = new HBox( 15, setupStartOrStopButton(), new Label( "Threads:" ), setupThreadCountSelector(),
+                setupShowMetricsCheckBox() );
         buttonBar.setAlignment( Pos.CENTER );
         buttonBar.setStyle( "-fx-padding: 6px; -fx-border-width: 2px" );
         return buttonBar;
     }
 
+    private CheckBox setupShowMetricsCheckBox() {
+        CheckBox showMetrics = new CheckBox( "Show Metrics" );
+        metricsOverlay.visibleProperty().bind( showMetrics.selectedProperty() );
+        return showMetrics;
+    }
+
+    private Spinner< Integer > setupThreadCountSelector() {
+        threadCountSelector = new Spinner<>( 1, MAXIMUM_THREAD_COUNT, Runtime.getRuntime().availableProcessors() );
+        threadCountSelector.setEditable( true );
+        threadCountSelector.setPrefWidth( 80 );
+        threadCountSelector.valueProperty().addListener(
+                ( property, oldCount, newCount ) -> setThreadCount( newCount ) );
+        return threadCountSelector;
+    }
+
     private Button setupStartOrStopButton() {
         startOrStopButton = new Button( "Start" );
         startOrStopButton.setOnAction( event -> startOrStopAnimation() );
@@ -118,16 +160,20 @@ public class BackgroundComputationVersion4 extends Application {
         jobInProgress = true;
         fillDrawingArea();
         startOrStopButton.setText( "Stop" );
+        metrics.reset();
         fillTaskQueue();
     }
 
     private void fillTaskQueue() {
         numberOfTasks = CANVAS_HEIGHT;
-        for ( int i = 0; i < numberOfTasks; i++ )
-            taskQueue.add( new MandelbrotTask( i ) );
+        for ( int i = 0; i < numberOfTasks; i++ ) {
+            taskQueue.add( metrics.instrument( new MandelbrotTask( i ) ) );
+            TaskEvents.submitted( POOL_NAME, i, 0 );
+        }
     }
 
     private void stopAnimation() {
+        TaskEvents.cancelled( POOL_NAME, -1, 0, taskQueue.size() );
         taskQueue.clear();
         jobInProgress = false;
         startOrStopButton.setDisable( false );  // Will be re-enabled by the last task to finish.
@@ -135,17 +181,19 @@ public class BackgroundComputationVersion4 extends Application {
     }
 
     private void setupThreadPool() {
-        createThreadPool();
-        fillThreadPool();
-    }
-
-    private void createThreadPool() {
-        threadPool = new ComputationThread[ THREAD_COUNT ];
+        setThreadCount( threadCountSelector.getValue() );
     }
 
-    private void fillThreadPool() {
-        for ( int i = 0; i < threadPool.length; i++ )
-            threadPool[ i ] = new ComputationThread();
+    /**
+     * Grows or shrinks the pool, whether or not a job is in progress. New threads start taking tasks from the queue
+     * at once. A retired thread is interrupted, which only matters if it is waiting for a task; if it is running
+     * one, it finishes that task first and then stops. The queue itself is left alone, so no task is lost.
+     */
+    synchronized private void setThreadCount( int threadCount ) {
+        while ( threadPool.size() < threadCount )
+            threadPool.add( new ComputationThread() );
+        while ( threadPool.size() > threadCount )
+            threadPool.remove( threadPool.size() - 1 ).retire();
     }
 
     private void showMainWindow() {
@@ -156,6 +204,8 @@ public class BackgroundComputationVersion4 extends Application {
 
     private class ComputationThread extends Thread {
 
+        private volatile boolean retired;
+
         ComputationThread() {
             setToDaemonThread();
             setThreadPriority();
@@ -184,8 +234,13 @@ public class BackgroundComputationVersion4 extends Application {
             this.start();
         }
 
+        void retire() {
+            retired = true;
+            interrupt();
+        }
+
         public void run() {
-            while ( true ) {
+            while ( !retired ) {
                 try {
                     Runnable task = taskQueue.take();
                     task.run();
@@ -212,10 +267,12 @@ public class BackgroundComputationVersion4 extends Application {
         }
 
         public void run() {
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, rowNumber, 0 );
             try {
                 calculateThePixelColors();
             }
             finally {
+                TaskEvents.ended( end, POOL_NAME, rowNumber, 0 );
                 taskFinished();
             }
         }
@@ -233,8 +290,10 @@ public class BackgroundComputationVersion4 extends Application {
                 Color colorForCurrentColumn = processCurrentColumn( column, y, dx );
                 rgb[ column ] = colorForCurrentColumn;
 
-                if ( !jobInProgress )
+                if ( !jobInProgress ) {
+                    TaskEvents.cancelled( POOL_NAME, rowNumber, 0, 1 );
                     return;
+                }
             }
             drawCurrentRowOntoTheCanvas( rowNumber, rgb );
         }
@@ -257,10 +316,12 @@ public class BackgroundComputationVersion4 extends Application {
         }
 
         private void drawOneRowOfPixels( int rowNumber, Color[] colors ) {
+            TaskEvents.FxFlush flush = TaskEvents.flushStarted();
             for ( int column = 0; column < CANVAS_WIDTH; column++ ) {
                 drawingArea.setFill( colors[ column ] );
                 drawingArea.fillRect( column, rowNumber, 1, 1 );
             }
+            TaskEvents.flushEnded( flush, POOL_NAME, rowNumber, CANVAS_WIDTH );
         }
     }
 
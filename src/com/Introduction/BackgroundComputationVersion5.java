@@ -4,33 +4,46 @@ package com.Introduction;
  * Since thread pools are common in parallel programming, it is not surprising that java has higher level techniques
  * for creating and managing thread pools. This version of the program uses an ExecutorService manage the threads
  * and execute the tasks necessary to draw the image.
+ *
+ * The number of threads is not fixed: a ThreadCountController starts with one thread per processor and adjusts the
+ * count during the render to get the most rows per second, between the system properties minimumThreads and
+ * maximumThreads (1 and twice the number of processors by default).
+ *
+ * The image is not drawn on a Canvas, as in the earlier versions, but into a FrameBuffer: the tasks write the
+ * colors of their pixels straight into off-heap memory that JavaFX uses as the texture, and the application thread
+ * only tells JavaFX, once per pulse, which rows have changed.
  */
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.control.Button;
-import javafx.scene.paint.Color;
+import javafx.scene.control.CheckBox;
+import javafx.scene.image.ImageView;
 import javafx.geometry.Pos;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class BackgroundComputationVersion5 extends Application {
 
     private Stage mainWindow;
-    private Color[] colorPalette;
-    private Canvas canvas;
-    private GraphicsContext drawingArea;
+    private int[] colorPalette;
+    private FrameBuffer frameBuffer;
     private Button startOrStopButton;
     private ExecutorService executor;
+    private ThreadCountController threadCountController;
     private int numberOfTasks;
+    private PoolMetrics metrics;
+    private MetricsOverlay metricsOverlay;
 
 
+    private static final String POOL_NAME = "Background computation version 5";
+
     private int CANVAS_WIDTH = 700;
     private int CANVAS_HEIGHT = 550;
 
@@ -39,10 +52,16 @@ public class BackgroundComputationVersion5 extends Application {
     }
 
     public void start( Stage stage ) {
+        setupMetrics();
         setupMainWindow( stage );
         showMainWindow();
     }
 
+    private void setupMetrics() {
+        metrics = new PoolMetrics( POOL_NAME );
+        metrics.register();
+    }
+
     private void setupMainWindow( Stage stage ) {
         createMainWindow( stage );
     }
@@ -66,32 +85,35 @@ public class BackgroundComputationVersion5 extends Application {
     }
 
     private BorderPane createBorderPane() {
-        BorderPane root = new BorderPane( setupCanvas() );
+        BorderPane root = new BorderPane( setupImageWithOverlay() );
         root.setBottom( setupButtonBar() );
         return root;
     }
 
-    private Canvas setupCanvas() {
+    private StackPane setupImageWithOverlay() {
+        metricsOverlay = new MetricsOverlay( metrics );
+        StackPane imageWithOverlay = new StackPane( setupImageView(), metricsOverlay );
+        StackPane.setAlignment( metricsOverlay, Pos.TOP_LEFT );
+        return imageWithOverlay;
+    }
+
+    private ImageView setupImageView() {
         setupColorPalette();
-        return createCanvas();
+        return createImageView();
     }
 
     private void setupColorPalette() {
-        colorPalette = new Color[ 256 ];
-        for ( int i = 0; i < colorPalette.length; i++ )
-            colorPalette[i] = Color.hsb( 360*( i / 256.0 ), 1, 1 );
+        colorPalette = Colorizer.rainbowPalette();
     }
 
-    private Canvas createCanvas() {
-        canvas = new Canvas( CANVAS_WIDTH, CANVAS_HEIGHT );
-        drawingArea = canvas.getGraphicsContext2D();
+    private ImageView createImageView() {
+        frameBuffer = new FrameBuffer( POOL_NAME, CANVAS_WIDTH, CANVAS_HEIGHT );
         fillDrawingArea();
-        return canvas;
+        return new ImageView( frameBuffer.getImage() );
     }
 
     private void fillDrawingArea() {
-        drawingArea.setFill( Color.LIGHTGRAY );
-        drawingArea.fillRect( 0, 0, CANVAS_WIDTH, CANVAS_HEIGHT );
+        frameBuffer.fill( Colorizer.UNCOMPUTED_COLOR );
     }
 
     private HBox setupButtonBar() {
@@ -99,12 +121,18 @@ public class BackgroundComputationVersion5 extends Application {
     }
 
     private HBox createButtonBar() {
-        HBox buttonBar = new HBox( 15, setupStartOrStopButton() );
+        HBox buttonBar = new HBox( 15, setupStartOrStopButton(), setupShowMetricsCheckBox() );
         buttonBar.setAlignment( Pos.CENTER );
         buttonBar.setStyle( "-fx-padding: 6px; -fx-border-width: 2px" );
         return buttonBar;
     }
 
+    private CheckBox setupShowMetricsCheckBox() {
+        CheckBox showMetrics = new CheckBox( "Show Metrics" );
+        metricsOverlay.visibleProperty().bind( showMetrics.selectedProperty() );
+        return showMetrics;
+    }
+
     private Button setupStartOrStopButton() {
         return createStartOrStopButton();
     }
@@ -115,7 +143,11 @@ public class BackgroundComputationVersion5 extends Application {
         return startOrStopButton;
     }
 
-    private void startOrStopAnimation() {
+    /**
+     * Synchronized, like taskFinished, so that the last task of a render cannot set executor to null between the
+     * test and stopAnimation.
+     */
+    synchronized private void startOrStopAnimation() {
         if ( executor == null )
             startAnimation();
         else
@@ -132,17 +164,27 @@ public class BackgroundComputationVersion5 extends Application {
 
     private void setupExecutor() {
         int numberOfThreads = Runtime.getRuntime().availableProcessors();
-        executor = Executors.newFixedThreadPool( numberOfThreads );
+        metrics.reset();
+        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool( numberOfThreads );
+        executor = new InstrumentedExecutorService( threadPool, metrics );
+        int minimumThreads = Integer.getInteger( "minimumThreads", 1 );
+        int maximumThreads = Integer.getInteger( "maximumThreads", 2 * numberOfThreads );
+        threadCountController = new ThreadCountController( POOL_NAME, threadPool, minimumThreads, maximumThreads );
+        threadCountController.register();
+        threadCountController.start( numberOfThreads );
     }
 
     private void submitTasksToTheExecutor() {
         numberOfTasks = CANVAS_HEIGHT;
-        for ( int i = 0; i < numberOfTasks; i++ )
+        for ( int i = 0; i < numberOfTasks; i++ ) {
             executor.execute( new MandelbrotTask( executor, i ) );
+            TaskEvents.submitted( POOL_NAME, i, 0 );
+        }
     }
 
     private void stopAnimation() {
-        executor.shutdownNow();
+        TaskEvents.cancelled( POOL_NAME, -1, 0, executor.shutdownNow().size() );
+        threadCountController.stop();
         executor = null;
         startOrStopButton.setText( "Start" );
     }
@@ -170,11 +212,13 @@ public class BackgroundComputationVersion5 extends Application {
         }
 
         public void run() {
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, rowNumber, 0 );
             try {
                 calculateThePixelColors();
             }
             finally {
-                taskFinished();
+                TaskEvents.ended( end, POOL_NAME, rowNumber, 0 );
+                taskFinished( myExecutor );
             }
         }
 
@@ -184,20 +228,25 @@ public class BackgroundComputationVersion5 extends Application {
             processRow( dx, dy );
         }
 
+        /**
+         * The pixels go straight into the frame buffer. A row that is cancelled halfway has only been partly
+         * written, and is not marked dirty, but its pixels are right as far as they go and show up with the next
+         * row that is marked.
+         */
         private void processRow( double dx, double dy ) {
-            final Color[] rgb = new Color[ CANVAS_WIDTH ];
             double y = yMax - dy * rowNumber;
             for ( int column = 0; column < CANVAS_WIDTH; column++ ) {
-                Color colorForCurrentColumn = processCurrentColumn( column, y, dx );
-                rgb[ column ] = colorForCurrentColumn;
+                frameBuffer.setPixel( column, rowNumber, processCurrentColumn( column, y, dx ) );
 
-                if ( myExecutor != executor )
+                if ( myExecutor != executor ) {
+                    TaskEvents.cancelled( POOL_NAME, rowNumber, 0, 1 );
                     return;
+                }
             }
-            drawCurrentRowOntoTheCanvas( rowNumber, rgb );
+            frameBuffer.markDirty( 0, rowNumber, CANVAS_WIDTH, 1 );
         }
 
-        private Color processCurrentColumn( int column, double y, double dx ) {
+        private int processCurrentColumn( int column, double y, double dx ) {
             double x = xMin + dx * column;
             int count = 0;
             double xx = x, yy = y;
@@ -207,27 +256,25 @@ public class BackgroundComputationVersion5 extends Application {
                 yy = 2*xx*yy + y;
                 xx = newXX;
             }
-            return ( count == maximumIterations ) ? Color.BLACK : colorPalette[ count % colorPalette.length ];
-        }
-
-        private void drawCurrentRowOntoTheCanvas( int rowNumber, Color[] colorsForCurrentRow ) {
-            Platform.runLater( () -> drawOneRowOfPixels( rowNumber, colorsForCurrentRow ) );
-        }
-
-        private void drawOneRowOfPixels( int rowNumber, Color[] colors ) {
-            for ( int column = 0; column < CANVAS_WIDTH; column++ ) {
-                drawingArea.setFill( colors[ column ] );
-                drawingArea.fillRect( column, rowNumber, 1, 1 );
-            }
+            return ( count == maximumIterations ) ? Colorizer.INTERIOR_COLOR
+                    : colorPalette[ count % colorPalette.length ];
         }
     }
 
-    synchronized private void taskFinished() {
+    /**
+     * Counts the tasks of the current render down. Tasks of an executor that has been stopped can still finish after
+     * a new render has started; they belong to an executor and a controller that stopAnimation has already stopped,
+     * and must not count down the tasks of the new render.
+     */
+    synchronized private void taskFinished( ExecutorService taskExecutor ) {
+        if ( taskExecutor != executor )
+            return;
         numberOfTasks--;
         if ( numberOfTasks < 1 ) {
             Platform.runLater( () -> {
                 startOrStopButton.setText( "Start" );
             } );
+            threadCountController.stop();
             executor = null;
         }
     }
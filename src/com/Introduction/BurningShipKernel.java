@@ -0,0 +1,55 @@
+package com.Introduction;
+
+/**
+ * z = ( |Re z| + i |Im z| )^2 + c. Taking the absolute values before squaring breaks the symmetry of the
+ * Mandelbrot set and gives the "burning ship" below the real axis (which is drawn upwards here, as the imaginary axis
+ * points up). The modulus of z grows exactly as it does for the Mandelbrot set, so the smooth count is the same.
+ */
+public final class BurningShipKernel implements FractalKernel {
+
+    public String getName() {
+        return "Burning Ship";
+    }
+
+    /**
+     * The absolute values make the map fold the plane, and nothing like the theorem that makes the Mandelbrot set
+     * connected holds for it; small ships lie apart from the large one wherever one looks closely.
+     */
+    public boolean isConnected() {
+        return false;
+    }
+
+    public int iterate( double x, double y, int maximumIterations, double[] escapePoint ) {
+        int count = 0;
+        double xx = x, yy = y;
+        while ( count < maximumIterations && ( xx*xx + yy*yy ) < 4 ) {
+            count++;
+            double newXX = xx*xx - yy*yy + x;
+            yy = Math.abs( 2*xx*yy ) + y;
+            xx = newXX;
+        }
+        if ( escapePoint != null && count < maximumIterations ) {
+            escapePoint[0] = xx;
+            escapePoint[1] = yy;
+            escapePoint[2] = x;
+            escapePoint[3] = y;
+        }
+        return count;
+    }
+
+    public double smoothIterationCount( int count, double[] escapePoint ) {
+        return RenderEngine.smoothIterationCount( count, escapePoint );
+    }
+
+    public void iterateRow( double[] xs, int firstColumn, int endColumn, double y, int maximumIterations,
+                            int[] counts, float[] smoothCounts, int offset ) {
+        double[] escapePoint = ( smoothCounts == null ) ? null : new double[ 4 ];
+        for ( int column = firstColumn; column < endColumn; column++ ) {
+            int index = offset + column - firstColumn;
+            counts[ index ] = iterate( xs[ column ], y, maximumIterations, escapePoint );
+            if ( smoothCounts != null )
+                smoothCounts[ index ] = ( counts[ index ] == maximumIterations ) ? maximumIterations
+                        : ( float ) smoothIterationCount( counts[ index ], escapePoint );
+        }
+    }
+}
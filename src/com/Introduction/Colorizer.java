@@ -0,0 +1,257 @@
+package com.Introduction;
+
+/**
+ * Turns iteration counts into colors. The colors are ARGB ints, as used by a PixelWriter, so that a whole image can
+ * be colored without creating a Color object per pixel. There are three coloring schemes:
+ *
+ * BANDED colors a pixel with palette[ count % palette length ], like the other versions of the program.
+ *
+ * SMOOTH uses the smooth iteration count instead, interpolating between neighbouring palette entries, so there are
+ * no visible bands between one iteration count and the next.
+ *
+ * HISTOGRAM spreads the palette evenly over the pixels of the image rather than over the iteration counts: a
+ * pixel's position in the palette is the share of the escaped pixels that escaped sooner than it did. This keeps
+ * the contrast the same whatever the zoom depth and the iteration limit.
+ *
+ * recolor colors a whole image in parallel, given either as a ScrollableIterationBuffer or as plain arrays. The
+ * rows are split into one band per thread of the common ForkJoinPool. For histogram coloring each band first counts
+ * its pixels into a histogram of its own, so the threads never contend for a shared one, and the histograms are
+ * merged once all bands are done. Recoloring needs no iterations at all, so it takes milliseconds even when
+ * computing the image took minutes.
+ */
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class Colorizer {
+
+    public enum Scheme { BANDED, SMOOTH, HISTOGRAM }
+
+    public static final int INTERIOR_COLOR = 0xFF000000;
+    public static final int UNCOMPUTED_COLOR = 0xFFD3D3D3;  // LIGHTGRAY, like the empty canvas.
+
+    private int[] palette;
+    private Scheme scheme;
+    private double[] cumulativeShares;
+    private int histogramMaximumIterations;
+
+    public Colorizer( int[] palette, Scheme scheme ) {
+        this.palette = palette;
+        this.scheme = scheme;
+    }
+
+    /**
+     * The palette of the other versions of the program: 256 fully saturated hues.
+     */
+    public static int[] rainbowPalette() {
+        int[] palette = new int[ 256 ];
+        for ( int i = 0; i < palette.length; i++ )
+            palette[i] = java.awt.Color.HSBtoRGB( i / 256f, 1, 1 );
+        return palette;
+    }
+
+    public static int[] firePalette() {
+        int[] palette = new int[ 256 ];
+        for ( int i = 0; i < palette.length; i++ ) {
+            double t = i / 255.0;
+            if ( t < 1 / 3.0 )
+                palette[i] = interpolate( 0xFF000000, 0xFFFF0000, 3*t );
+            else if ( t < 2 / 3.0 )
+                palette[i] = interpolate( 0xFFFF0000, 0xFFFFFF00, 3*t - 1 );
+            else
+                palette[i] = interpolate( 0xFFFFFF00, 0xFFFFFFFF, 3*t - 2 );
+        }
+        return palette;
+    }
+
+    public static int[] grayscalePalette() {
+        int[] palette = new int[ 256 ];
+        for ( int i = 0; i < palette.length; i++ )
+            palette[i] = 0xFF000000 | ( i << 16 ) | ( i << 8 ) | i;
+        return palette;
+    }
+
+    /**
+     * Returns a colorizer that colors exactly like this one does now, histogram included, but is not affected by
+     * later changes to this one. Lets another thread color with the current settings while they are being changed.
+     */
+    public Colorizer copy() {
+        Colorizer copy = new Colorizer( palette, scheme );
+        copy.cumulativeShares = cumulativeShares;
+        copy.histogramMaximumIterations = histogramMaximumIterations;
+        return copy;
+    }
+
+    public void setPalette( int[] palette ) {
+        this.palette = palette;
+    }
+
+    public void setScheme( Scheme scheme ) {
+        this.scheme = scheme;
+    }
+
+    public Scheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Returns the color of one pixel. Histogram coloring uses the histogram of the last recolor; until there is
+     * one for the given iteration limit, pixels are colored as with SMOOTH.
+     */
+    public int colorOf( int count, float smoothCount, int maximumIterations ) {
+        if ( count == maximumIterations )
+            return INTERIOR_COLOR;
+        if ( scheme == Scheme.BANDED )
+            return palette[ count % palette.length ];
+        if ( scheme == Scheme.HISTOGRAM && cumulativeShares != null
+                && histogramMaximumIterations == maximumIterations )
+            return colorAt( equalizedShareOf( smoothCount ) * ( palette.length - 1 ) );
+        return colorAt( smoothCount );
+    }
+
+    /**
+     * Interpolates between the two palette entries around the given position. The palette repeats, so any
+     * position is allowed.
+     */
+    private int colorAt( double position ) {
+        double floor = Math.floor( position );
+        int index = Math.floorMod( ( long ) floor, palette.length );
+        return interpolate( palette[ index ], palette[ ( index + 1 ) % palette.length ], position - floor );
+    }
+
+    private static int interpolate( int from, int to, double t ) {
+        int red = ( int ) Math.round( ( ( from >> 16 ) & 0xFF ) * ( 1 - t ) + ( ( to >> 16 ) & 0xFF ) * t );
+        int green = ( int ) Math.round( ( ( from >> 8 ) & 0xFF ) * ( 1 - t ) + ( ( to >> 8 ) & 0xFF ) * t );
+        int blue = ( int ) Math.round( ( from & 0xFF ) * ( 1 - t ) + ( to & 0xFF ) * t );
+        return 0xFF000000 | ( red << 16 ) | ( green << 8 ) | blue;
+    }
+
+    /**
+     * The histogram bin of a pixel that has escaped. Smooth counts can lie a little below the count itself.
+     */
+    private static int binOf( float smoothCount, int maximumIterations ) {
+        return Math.max( 0, Math.min( maximumIterations - 1, ( int ) Math.floor( smoothCount ) ) );
+    }
+
+    private double equalizedShareOf( float smoothCount ) {
+        int bin = binOf( smoothCount, histogramMaximumIterations );
+        double t = Math.max( 0, Math.min( 1, smoothCount - bin ) );
+        return cumulativeShares[ bin ] + t * ( cumulativeShares[ bin + 1 ] - cumulativeShares[ bin ] );
+    }
+
+    /**
+     * Colors every pixel of the buffer into argb, row by row. Pixels that have not been computed get
+     * UNCOMPUTED_COLOR.
+     */
+    public void recolor( ScrollableIterationBuffer buffer, int maximumIterations, int[] argb ) {
+        int[] counts = new int[ buffer.getWidth() * buffer.getHeight() ];
+        float[] smoothCounts = new float[ counts.length ];
+        buffer.copyTo( counts, smoothCounts );
+        recolor( counts, smoothCounts, buffer.getWidth(), maximumIterations, argb );
+    }
+
+    /**
+     * Colors an image whose counts and smooth counts are stored row by row. A negative count marks a pixel that
+     * has not been computed; it gets UNCOMPUTED_COLOR. For histogram coloring, the histogram of the image is
+     * computed first.
+     */
+    public void recolor( int[] counts, float[] smoothCounts, int width, int maximumIterations, int[] argb ) {
+        int height = counts.length / width;
+        int numberOfBands = Math.max( 1, Math.min( height, ForkJoinPool.commonPool().getParallelism() ) );
+        if ( scheme == Scheme.HISTOGRAM ) {
+            ArrayList< HistogramTask > histogramTasks = new ArrayList<>();
+            for ( int band = 0; band < numberOfBands; band++ )
+                histogramTasks.add( new HistogramTask( counts, smoothCounts, width, maximumIterations,
+                        firstRowOf( band, numberOfBands, height ), firstRowOf( band + 1, numberOfBands, height ) ) );
+            ForkJoinTask.invokeAll( histogramTasks );
+            mergeHistograms( histogramTasks, maximumIterations );
+        }
+        ArrayList< ColoringTask > coloringTasks = new ArrayList<>();
+        for ( int band = 0; band < numberOfBands; band++ )
+            coloringTasks.add( new ColoringTask( counts, smoothCounts, width, maximumIterations, argb,
+                    firstRowOf( band, numberOfBands, height ), firstRowOf( band + 1, numberOfBands, height ) ) );
+        ForkJoinTask.invokeAll( coloringTasks );
+    }
+
+    private static int firstRowOf( int band, int numberOfBands, int height ) {
+        return ( int ) ( ( long ) band * height / numberOfBands );
+    }
+
+    /**
+     * Adds up the histograms of the bands and turns the total into cumulative shares: cumulativeShares[ k ] is
+     * the share of the escaped pixels whose bin is below k.
+     */
+    private void mergeHistograms( ArrayList< HistogramTask > histogramTasks, int maximumIterations ) {
+        long[] total = new long[ maximumIterations ];
+        for ( HistogramTask task : histogramTasks )
+            for ( int bin = 0; bin < maximumIterations; bin++ )
+                total[ bin ] += task.histogram[ bin ];
+        long escapedPixels = 0;
+        for ( long pixels : total )
+            escapedPixels += pixels;
+        double[] shares = new double[ maximumIterations + 1 ];
+        long pixelsBelow = 0;
+        for ( int bin = 0; bin < maximumIterations; bin++ ) {
+            shares[ bin ] = ( escapedPixels == 0 ) ? 0 : ( double ) pixelsBelow / escapedPixels;
+            pixelsBelow += total[ bin ];
+        }
+        shares[ maximumIterations ] = 1;
+        cumulativeShares = shares;
+        histogramMaximumIterations = maximumIterations;
+    }
+
+    private static class HistogramTask extends RecursiveAction {
+
+        private final int[] counts;
+        private final float[] smoothCounts;
+        private final int width;
+        private final int maximumIterations;
+        private final int firstRow, endRow;
+        private final int[] histogram;
+
+        HistogramTask( int[] counts, float[] smoothCounts, int width, int maximumIterations, int firstRow,
+                       int endRow ) {
+            this.counts = counts;
+            this.smoothCounts = smoothCounts;
+            this.width = width;
+            this.maximumIterations = maximumIterations;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+            histogram = new int[ maximumIterations ];
+        }
+
+        protected void compute() {
+            for ( int i = firstRow*width; i < endRow*width; i++ )
+                if ( counts[i] >= 0 && counts[i] != maximumIterations )
+                    histogram[ binOf( smoothCounts[i], maximumIterations ) ]++;
+        }
+    }
+
+    private class ColoringTask extends RecursiveAction {
+
+        private final int[] counts;
+        private final float[] smoothCounts;
+        private final int width;
+        private final int maximumIterations;
+        private final int[] argb;
+        private final int firstRow, endRow;
+
+        ColoringTask( int[] counts, float[] smoothCounts, int width, int maximumIterations, int[] argb,
+                      int firstRow, int endRow ) {
+            this.counts = counts;
+            this.smoothCounts = smoothCounts;
+            this.width = width;
+            this.maximumIterations = maximumIterations;
+            this.argb = argb;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        protected void compute() {
+            for ( int i = firstRow*width; i < endRow*width; i++ )
+                argb[i] = ( counts[i] < 0 ) ? UNCOMPUTED_COLOR
+                        : colorOf( counts[i], smoothCounts[i], maximumIterations );
+        }
+    }
+}
@@ -108,6 +108,8 @@ public class CountPrimesVersion2 {
 
     private static class WorkerThread extends Thread {
 
+        private static final String POOL_NAME = "Count primes version 2";
+
         int lowerLimit;
         int upperLimit;
         int totalPrimesCounted;
@@ -119,7 +121,13 @@ public class CountPrimesVersion2 {
         }
 
         public void run() {
-            countPrimes();
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, lowerLimit, 0 );
+            try {
+                countPrimes();
+            }
+            finally {
+                TaskEvents.ended( end, POOL_NAME, lowerLimit, 0 );
+            }
         }
 
         void countPrimes() {
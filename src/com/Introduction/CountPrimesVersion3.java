@@ -84,6 +84,8 @@ public class CountPrimesVersion3 {
 
     private static class WorkerThread extends Thread {
 
+        private static final String POOL_NAME = "Count primes version 3";
+
         int lowerLimit;
         int upperLimit;
         int totalPrimesCounted;
@@ -95,7 +97,13 @@ public class CountPrimesVersion3 {
         }
 
         public void run() {
-            countPrimes();
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, lowerLimit, 0 );
+            try {
+                countPrimes();
+            }
+            finally {
+                TaskEvents.ended( end, POOL_NAME, lowerLimit, 0 );
+            }
         }
 
         void countPrimes() {
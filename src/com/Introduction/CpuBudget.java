@@ -0,0 +1,137 @@
+package com.Introduction;
+
+/**
+ * Limits the processor time that background computations may use, so that enough is left for the JavaFX
+ * application thread. Lowering the priority of the worker threads, which is all the earlier versions do, has little
+ * effect: most operating systems, Linux among them, ignore Java thread priorities unless told otherwise.
+ *
+ * The budget is a token bucket. It fills up with processor time at a rate of share times the number of processors, up
+ * to a small burst, and the worker threads pay for the time they have used whenever they reach a tile boundary by
+ * calling checkpoint(). A thread that finds the bucket empty sleeps until it has filled up again, which gives the
+ * processors back to the rest of the program; as the threads only stop between tiles, nothing is left half done.
+ *
+ * The share can be changed while the computation runs. A FrameTimeMonitor tightens it when frames are dropped and
+ * relaxes it again when they are not. A disabled budget costs a checkpoint a single volatile read.
+ */
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+public class CpuBudget {
+
+    private static final double MINIMUM_SHARE = 0.1;
+    private static final double MAXIMUM_SHARE = 1.0;
+    private static final double TIGHTENING_FACTOR = 0.75;
+    private static final double RELAXING_STEP = 0.05;
+    private static final long BURST = 20_000_000;  // nanoseconds of processor time per processor
+    private static final long LONGEST_SLEEP = 50;  // milliseconds
+
+    private final int processors = Runtime.getRuntime().availableProcessors();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    // The processor time of a thread at its last checkpoint, and the epoch in which that checkpoint was.
+    private final ThreadLocal< long[] > lastCpuTime = ThreadLocal.withInitial( () -> new long[] { -1, -1 } );
+    private volatile boolean enabled;
+    private volatile long enabledEpoch;  // counts the times the budget has been enabled
+
+    // Guarded by the budget's lock.
+    private double share;
+    private double tokens;
+    private long lastRefillTime;
+
+    public CpuBudget( double share ) {
+        this.share = clampShare( share );
+        lastRefillTime = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    synchronized public void setEnabled( boolean enabled ) {
+        if ( enabled && !this.enabled ) {
+            tokens = capacity();
+            lastRefillTime = System.nanoTime();
+            enabledEpoch++;
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * The fraction of all processors that the threads which call checkpoint() may use together.
+     */
+    synchronized public double getShare() {
+        return share;
+    }
+
+    synchronized public void setShare( double share ) {
+        this.share = clampShare( share );
+    }
+
+    /**
+     * Called when frames are being dropped: cuts the share by a quarter.
+     */
+    synchronized public void tighten() {
+        share = clampShare( share * TIGHTENING_FACTOR );
+    }
+
+    /**
+     * Called when frames have been on time for a while: gives a little of the share back.
+     */
+    synchronized public void relax() {
+        share = clampShare( share + RELAXING_STEP );
+    }
+
+    /**
+     * Pays for the processor time this thread has used since its last checkpoint and, if the budget is used up,
+     * sleeps until it has filled up again. Call this at tile boundaries. If the thread is interrupted while it
+     * sleeps, it returns at once with its interrupt status set, so that the caller can notice.
+     *
+     * The first checkpoint of a thread after the budget has been enabled charges nothing, since the time the thread
+     * used while it was disabled is not owed; the epoch tells such a checkpoint from the others without a disabled
+     * budget having to touch the thread's record.
+     */
+    public void checkpoint() {
+        if ( !enabled )
+            return;
+        long epoch = enabledEpoch;
+        long[] last = lastCpuTime.get();
+        long now = cpuTime();
+        long used = ( last[1] != epoch ) ? 0 : now - last[0];
+        long wait = charge( used );
+        try {
+            while ( wait > 0 && enabled ) {
+                Thread.sleep( Math.min( LONGEST_SLEEP, Math.max( 1, wait / 1_000_000 ) ) );
+                wait = charge( 0 );
+            }
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        last[0] = cpuTime();
+        last[1] = epoch;
+    }
+
+    /**
+     * Takes the time out of the bucket and returns how long, in nanoseconds, it will take to get out of debt.
+     */
+    synchronized private long charge( long used ) {
+        long now = System.nanoTime();
+        double rate = share * processors;
+        tokens = Math.min( capacity(), tokens + ( now - lastRefillTime ) * rate );
+        lastRefillTime = now;
+        tokens -= used;
+        return ( tokens >= 0 ) ? 0 : ( long ) ( -tokens / rate );
+    }
+
+    private double capacity() {
+        return ( double ) BURST * processors;
+    }
+
+    private long cpuTime() {
+        long time = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+        return ( time >= 0 ) ? time : System.nanoTime();
+    }
+
+    private static double clampShare( double share ) {
+        return Math.max( MINIMUM_SHARE, Math.min( MAXIMUM_SHARE, share ) );
+    }
+}
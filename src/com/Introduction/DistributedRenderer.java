@@ -0,0 +1,94 @@
+package com.Introduction;
+
+/**
+ * Renders one view with several worker processes instead of the threads of a single process. The program starts a
+ * TileCoordinator, launches the given number of TileWorker processes on this machine, which connect to it over a
+ * local socket, and writes the finished image as a PNG. Workers on other hosts can join the same render by running
+ * TileWorker with this machine's name and the port that is printed at the start.
+ *
+ * Usage: java com.Introduction.DistributedRenderer [ options ]
+ *
+ *      --workers=<n>             the number of local worker processes (2)
+ *      --threads-per-worker=<n>  the number of threads in each worker (processors / workers, at least 1)
+ *      --crash-one-worker=<n>    makes the first worker exit after n tiles, to show the tiles being handed out again
+ *      --port=<port>             the port of the coordinator (any free port)
+ *      --output=<file>           where to write the image (distributed.png)
+ */
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DistributedRenderer {
+
+    public static void main( String[] args ) throws IOException, InterruptedException {
+        System.setProperty( "java.awt.headless", "true" );
+        HashMap< String, String > options = new HashMap<>();
+        for ( String arg : args ) {
+            int equalsSign = arg.indexOf( '=' );
+            if ( !arg.startsWith( "--" ) || equalsSign < 0 ) {
+                System.out.println( "Unknown argument " + arg + "; options look like --workers=2." );
+                return;
+            }
+            options.put( arg.substring( 2, equalsSign ), arg.substring( equalsSign + 1 ) );
+        }
+        int numberOfWorkers = Integer.parseInt( options.getOrDefault( "workers", "2" ) );
+        int threadsPerWorker = Integer.parseInt( options.getOrDefault( "threads-per-worker",
+                String.valueOf( Math.max( 1, Runtime.getRuntime().availableProcessors() / numberOfWorkers ) ) ) );
+        int tilesBeforeCrashing = Integer.parseInt( options.getOrDefault( "crash-one-worker", "-1" ) );
+
+        RenderSpec spec = RenderSpec.fromBounds( -1.6744096740931858, -1.674409674093473,
+                4.716540768697223E-5, 4.716540790246652E-5, 700, 550, 10000 );
+        TileCoordinator coordinator = new TileCoordinator( Integer.parseInt( options.getOrDefault( "port", "0" ) ) );
+        System.out.println( "Coordinator listening on port " + coordinator.getPort() );
+        ArrayList< Process > workers = new ArrayList<>();
+        for ( int i = 0; i < numberOfWorkers; i++ )
+            workers.add( launchWorker( coordinator.getPort(), threadsPerWorker,
+                    ( i == 0 ) ? tilesBeforeCrashing : -1 ) );
+
+        int[] counts = new int[ spec.getWidth() * spec.getHeight() ];
+        AtomicInteger receivedTiles = new AtomicInteger();
+        long startTime = System.nanoTime();
+        coordinator.render( spec, counts, ( x, y, width, height ) -> receivedTiles.incrementAndGet() );
+        double seconds = ( System.nanoTime() - startTime ) / 1e9;
+        System.out.printf( "%d tiles from %d workers in %.2f s, %d tiles handed out again%n", receivedTiles.get(),
+                numberOfWorkers, seconds, coordinator.getRedispatchedTiles() );
+
+        coordinator.close();
+        for ( Process worker : workers )
+            if ( !worker.waitFor( 5, TimeUnit.SECONDS ) )
+                worker.destroy();
+        writeImage( spec, counts, options.getOrDefault( "output", "distributed.png" ) );
+    }
+
+    /**
+     * Starts a TileWorker in a new JVM with the same class path as this one. Its output goes to our console.
+     */
+    private static Process launchWorker( int port, int numberOfThreads, int tilesBeforeCrashing ) throws IOException {
+        String java = Paths.get( System.getProperty( "java.home" ), "bin", "java" ).toString();
+        ProcessBuilder builder = new ProcessBuilder( java, "-cp", System.getProperty( "java.class.path" ),
+                TileWorker.class.getName(), "localhost", String.valueOf( port ), String.valueOf( numberOfThreads ),
+                String.valueOf( tilesBeforeCrashing ) );
+        builder.inheritIO();
+        return builder.start();
+    }
+
+    private static void writeImage( RenderSpec spec, int[] counts, String fileName ) throws IOException {
+        int width = spec.getWidth();
+        float[] smoothCounts = new float[ counts.length ];
+        for ( int i = 0; i < counts.length; i++ )
+            smoothCounts[i] = counts[i];
+        int[] argb = new int[ counts.length ];
+        new Colorizer( Colorizer.rainbowPalette(), Colorizer.Scheme.BANDED )
+                .recolor( counts, smoothCounts, width, spec.getMaximumIterations(), argb );
+        BufferedImage image = new BufferedImage( width, spec.getHeight(), BufferedImage.TYPE_INT_RGB );
+        image.setRGB( 0, 0, width, spec.getHeight(), argb, 0, width );
+        ImageIO.write( image, "png", new File( fileName ) );
+        System.out.println( "Wrote " + fileName );
+    }
+}
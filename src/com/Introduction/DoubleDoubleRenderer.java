@@ -0,0 +1,117 @@
+package com.Introduction;
+
+/**
+ * Computes iteration counts in double-double arithmetic: every number is held as the unevaluated sum of two
+ * doubles, hi + lo, which gives about 106 bits of precision. That covers zoom depths from about 1e-13, where plain
+ * doubles give up, down to about 1e-30, and it is many times faster than BigDecimal.
+ *
+ * The arithmetic is built on the error-free transformations TwoSum (the exact rounding error of a sum) and TwoProd
+ * (the exact rounding error of a product, which Math.fma gives in a single instruction). Everything is written out
+ * with local variables in the inner loop so that no objects are allocated per iteration.
+ */
+import java.math.BigDecimal;
+
+public class DoubleDoubleRenderer implements EscapeTimeRenderer {
+
+    private final RenderSpec spec;
+    private final double centerXHi, centerXLo;
+    private final double centerYHi, centerYLo;
+
+    public DoubleDoubleRenderer( RenderSpec spec ) {
+        this.spec = spec;
+        centerXHi = spec.getCenterX().doubleValue();
+        centerXLo = spec.getCenterX().subtract( new BigDecimal( centerXHi ) ).doubleValue();
+        centerYHi = spec.getCenterY().doubleValue();
+        centerYLo = spec.getCenterY().subtract( new BigDecimal( centerYHi ) ).doubleValue();
+    }
+
+    public RenderSpec getSpec() {
+        return spec;
+    }
+
+    public int iterationsAt( double column, double row ) {
+        return iterate( column, row, null );
+    }
+
+    public int iterationsAt( double column, double row, float[] smoothCounts, int index ) {
+        double[] escapePoint = new double[ 4 ];
+        int count = iterate( column, row, escapePoint );
+        smoothCounts[ index ] = ( float ) RenderEngine.smoothIterationCount( count, escapePoint );
+        return count;
+    }
+
+    /**
+     * Returns the iteration count. If escapePoint is not null and the orbit escapes, the high parts of the last z
+     * and of c are stored in it.
+     */
+    private int iterate( double column, double row, double[] escapePoint ) {
+        double s, v, e;
+
+        // c = centre + offset, each coordinate as a double-double.
+        double xOffset = spec.xOffsetOf( column );
+        s = centerXHi + xOffset;
+        v = s - centerXHi;
+        e = ( centerXHi - ( s - v ) ) + ( xOffset - v ) + centerXLo;
+        double cxHi = s + e;
+        double cxLo = e - ( cxHi - s );
+
+        double yOffset = spec.yOffsetOf( row );
+        s = centerYHi + yOffset;
+        v = s - centerYHi;
+        e = ( centerYHi - ( s - v ) ) + ( yOffset - v ) + centerYLo;
+        double cyHi = s + e;
+        double cyLo = e - ( cyHi - s );
+
+        int maximumIterations = spec.getMaximumIterations();
+        int count = 0;
+        double xHi = cxHi, xLo = cxLo;
+        double yHi = cyHi, yLo = cyLo;
+        while ( count < maximumIterations && ( xHi*xHi + yHi*yHi ) < 4 ) {
+            count++;
+
+            // x*x, y*y and x*y with TwoProd; the lo*lo terms are below double-double precision.
+            double p = xHi*xHi;
+            e = Math.fma( xHi, xHi, -p ) + 2*xHi*xLo;
+            double xxHi = p + e;
+            double xxLo = e - ( xxHi - p );
+
+            p = yHi*yHi;
+            e = Math.fma( yHi, yHi, -p ) + 2*yHi*yLo;
+            double yyHi = p + e;
+            double yyLo = e - ( yyHi - p );
+
+            p = xHi*yHi;
+            e = Math.fma( xHi, yHi, -p ) + xHi*yLo + xLo*yHi;
+            double xyHi = p + e;
+            double xyLo = e - ( xyHi - p );
+
+            // x*x - y*y with TwoSum.
+            s = xxHi - yyHi;
+            v = s - xxHi;
+            e = ( xxHi - ( s - v ) ) + ( -yyHi - v ) + ( xxLo - yyLo );
+            double dHi = s + e;
+            double dLo = e - ( dHi - s );
+
+            // new x = x*x - y*y + cx.
+            s = dHi + cxHi;
+            v = s - dHi;
+            e = ( dHi - ( s - v ) ) + ( cxHi - v ) + ( dLo + cxLo );
+            xHi = s + e;
+            xLo = e - ( xHi - s );
+
+            // new y = 2*x*y + cy. Doubling is exact.
+            s = 2*xyHi + cyHi;
+            v = s - 2*xyHi;
+            e = ( 2*xyHi - ( s - v ) ) + ( cyHi - v ) + ( 2*xyLo + cyLo );
+            yHi = s + e;
+            yLo = e - ( yHi - s );
+        }
+        if ( escapePoint != null && count < maximumIterations ) {
+            escapePoint[0] = xHi;
+            escapePoint[1] = yHi;
+            escapePoint[2] = cxHi;
+            escapePoint[3] = cyHi;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,60 @@
+package com.Introduction;
+
+/**
+ * Computes iteration counts with plain double arithmetic, exactly like processCurrentColumn in the other versions
+ * of the program. This is the fastest renderer, but it is only usable while the pixel spacing is well above the
+ * precision of a double.
+ *
+ * The iteration itself is left to a FractalKernel, the MandelbrotKernel unless another one is given. Whole rows are
+ * handed to the kernel in one call, so that the kernel's own loop runs them (see FractalKernel). The x coordinates
+ * of the columns are computed once, in the same way as for a single pixel, so both give exactly the same counts.
+ */
+public class DoublePrecisionRenderer implements EscapeTimeRenderer {
+
+    private final RenderSpec spec;
+    private final FractalKernel kernel;
+    private final double centerX;
+    private final double centerY;
+    private final double[] columnXs;
+
+    public DoublePrecisionRenderer( RenderSpec spec ) {
+        this( spec, new MandelbrotKernel() );
+    }
+
+    public DoublePrecisionRenderer( RenderSpec spec, FractalKernel kernel ) {
+        this.spec = spec;
+        this.kernel = kernel;
+        centerX = spec.getCenterX().doubleValue();
+        centerY = spec.getCenterY().doubleValue();
+        columnXs = new double[ spec.getWidth() ];
+        for ( int column = 0; column < columnXs.length; column++ )
+            columnXs[ column ] = centerX + spec.xOffsetOf( column );
+    }
+
+    public RenderSpec getSpec() {
+        return spec;
+    }
+
+    public FractalKernel getKernel() {
+        return kernel;
+    }
+
+    public int iterationsAt( double column, double row ) {
+        return kernel.iterate( centerX + spec.xOffsetOf( column ), centerY + spec.yOffsetOf( row ),
+                spec.getMaximumIterations(), null );
+    }
+
+    public int iterationsAt( double column, double row, float[] smoothCounts, int index ) {
+        double[] escapePoint = new double[ 4 ];
+        int count = kernel.iterate( centerX + spec.xOffsetOf( column ), centerY + spec.yOffsetOf( row ),
+                spec.getMaximumIterations(), escapePoint );
+        smoothCounts[ index ] = ( float ) kernel.smoothIterationCount( count, escapePoint );
+        return count;
+    }
+
+    public void iterationsOfRow( int row, int firstColumn, int endColumn, int[] counts, float[] smoothCounts,
+                                 int offset ) {
+        kernel.iterateRow( columnXs, firstColumn, endColumn, centerY + spec.yOffsetOf( row ),
+                spec.getMaximumIterations(), counts, smoothCounts, offset );
+    }
+}
@@ -0,0 +1,42 @@
+package com.Introduction;
+
+/**
+ * Something that can compute the escape time iteration count of any point of a view. Implementations differ in
+ * the arithmetic they use, which decides how deep a view they can handle; RenderEngine picks the cheapest one that
+ * is precise enough for a given view.
+ */
+public interface EscapeTimeRenderer {
+
+    RenderSpec getSpec();
+
+    /**
+     * Returns the iteration count for the given, possibly fractional, pixel position: the number of iterations
+     * before the orbit leaves the disk of radius 2, or the maximum number of iterations for points that never
+     * leave it.
+     */
+    int iterationsAt( double column, double row );
+
+    /**
+     * Returns the same count as iterationsAt, and also stores the smooth iteration count of the point in
+     * smoothCounts[ index ]. That is a value that varies continuously from one iteration count to the next (see
+     * RenderEngine.smoothIterationCount), so that it can be colored without visible bands.
+     */
+    int iterationsAt( double column, double row, float[] smoothCounts, int index );
+
+    /**
+     * Computes the pixels of a row from firstColumn up to, but not including, endColumn, and stores their counts
+     * in counts[ offset ], counts[ offset + 1 ] and so on, and, if smoothCounts is not null, their smooth counts in
+     * smoothCounts at the same indices. The results are the same as those of iterationsAt. Renderers that can do a
+     * whole row faster than one pixel at a time override this (see FractalKernel).
+     */
+    default void iterationsOfRow( int row, int firstColumn, int endColumn, int[] counts, float[] smoothCounts,
+                                  int offset ) {
+        for ( int column = firstColumn; column < endColumn; column++ ) {
+            int index = offset + column - firstColumn;
+            if ( smoothCounts == null )
+                counts[ index ] = iterationsAt( column, row );
+            else
+                counts[ index ] = iterationsAt( column, row, smoothCounts, index );
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.Introduction;
+
+/**
+ * Renders a view by recursive splitting instead of a fixed list of row tasks. In versions 4 and 5 every row is a
+ * task of its own, and the cost of a row can differ by a factor of a thousand: a row through the interior of the
+ * set iterates the maximum number of times for most of its pixels, a row outside it only a few times. Near the end
+ * of a render the few expensive rows that are left keep one or two threads busy while all the others sit idle.
+ *
+ * Here the whole image is one RecursiveAction. A task splits its rectangle in two along the longer side and forks
+ * one half, so the work is spread by work stealing: a thread that runs out of work takes the oldest (and therefore
+ * largest) task from another thread's queue. Tasks stop splitting when they are small, or when their thread already
+ * has a few surplus tasks queued that nobody has stolen yet, since then the other threads are evidently busy. An
+ * expensive region thus ends up cut into many small tiles shared by all threads, while cheap regions are computed
+ * in large pieces without much task overhead.
+ */
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ForkJoinTileRenderer {
+
+    private static final int MINIMUM_TILE_AREA = 16 * 16;
+    private static final int MAXIMUM_TILE_AREA = 128 * 128;
+    private static final int SURPLUS_TASK_LIMIT = 3;
+
+    private final EscapeTimeRenderer renderer;
+    private final int[] counts;
+    private final float[] smoothCounts;
+    private final int width;
+    private final int height;
+    private volatile boolean cancelled;
+
+    /**
+     * The iteration count of the pixel at ( column, row ) will be stored in counts[ row*width + column ].
+     */
+    public ForkJoinTileRenderer( EscapeTimeRenderer renderer, int[] counts ) {
+        this( renderer, counts, null );
+    }
+
+    /**
+     * Also stores the smooth iteration count of every pixel in smoothCounts, in the same order as the counts.
+     */
+    public ForkJoinTileRenderer( EscapeTimeRenderer renderer, int[] counts, float[] smoothCounts ) {
+        this.renderer = renderer;
+        this.counts = counts;
+        this.smoothCounts = smoothCounts;
+        this.width = renderer.getSpec().getWidth();
+        this.height = renderer.getSpec().getHeight();
+        if ( counts.length < width * height || ( smoothCounts != null && smoothCounts.length < width * height ) )
+            throw new IllegalArgumentException( "The counts array is too small for the view." );
+    }
+
+    /**
+     * Renders the whole view and returns when it is done. If this is called from a thread of a ForkJoinPool, the
+     * tiles are forked in that pool, otherwise in the common pool. The listener, which may be null, is told about
+     * every tile as soon as it has been computed.
+     */
+    public void render( MarianiSilverRenderer.TileListener listener ) {
+        TileTask rootTask = new TileTask( 0, 0, width, height, listener );
+        if ( ForkJoinTask.inForkJoinPool() )
+            rootTask.invoke();
+        else
+            ForkJoinPool.commonPool().invoke( rootTask );
+    }
+
+    /**
+     * Makes the tasks of a render that is in progress stop at the next tile boundary.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private class TileTask extends RecursiveAction {
+
+        private final int x, y, tileWidth, tileHeight;
+        private final MarianiSilverRenderer.TileListener listener;
+
+        TileTask( int x, int y, int tileWidth, int tileHeight, MarianiSilverRenderer.TileListener listener ) {
+            this.x = x;
+            this.y = y;
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.listener = listener;
+        }
+
+        protected void compute() {
+            if ( cancelled )
+                return;
+            if ( shouldSplit() ) {
+                split();
+                return;
+            }
+            computeTile();
+            if ( listener != null )
+                listener.tileFinished( x, y, tileWidth, tileHeight );
+        }
+
+        private boolean shouldSplit() {
+            int area = tileWidth * tileHeight;
+            if ( area <= MINIMUM_TILE_AREA )
+                return false;
+            return area > MAXIMUM_TILE_AREA || getSurplusQueuedTaskCount() <= SURPLUS_TASK_LIMIT;
+        }
+
+        private void split() {
+            if ( tileWidth >= tileHeight ) {
+                int leftWidth = tileWidth / 2;
+                invokeAll( new TileTask( x, y, leftWidth, tileHeight, listener ),
+                        new TileTask( x + leftWidth, y, tileWidth - leftWidth, tileHeight, listener ) );
+            }
+            else {
+                int topHeight = tileHeight / 2;
+                invokeAll( new TileTask( x, y, tileWidth, topHeight, listener ),
+                        new TileTask( x, y + topHeight, tileWidth, tileHeight - topHeight, listener ) );
+            }
+        }
+
+        private void computeTile() {
+            for ( int row = y; row < y + tileHeight; row++ )
+                renderer.iterationsOfRow( row, x, x + tileWidth, counts, smoothCounts, row*width + x );
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.Introduction;
+
+/**
+ * The iteration of an escape-time fractal: what happens to z at every step and when the orbit counts as escaped.
+ * The Mandelbrot set is the one the program started with; JuliaKernel, BurningShipKernel and MultibrotKernel are
+ * the others. DoublePrecisionRenderer renders any of them.
+ *
+ * Most of the time of a render is spent in the inner loop of a kernel, so that loop has to be compiled as tightly as
+ * the hand-written loop in processCurrentColumn. A call through this interface for every pixel would not be: once
+ * the JIT compiler has seen more than two kernels at the same call site, it stops inlining there and makes a real
+ * call per pixel. That is why a kernel computes a whole row at once. The call for the row is still made through the
+ * interface, but inside iterateRow every kernel calls its own iterate, which can be bound at compile time, so each
+ * kernel gets its own fully inlined loop. Implementations should be final classes and should not share iterateRow
+ * through a common superclass, since the loop would then be shared, and its call to iterate would be
+ * megamorphic again.
+ */
+public interface FractalKernel {
+
+    String getName();
+
+    /**
+     * Tells whether the set is connected. Only then does a rectangle whose border has a single count have that count
+     * everywhere inside, which is what MarianiSilverRenderer relies on; a set that is not can have whole pieces inside
+     * such a rectangle, and they would be painted over.
+     */
+    boolean isConnected();
+
+    /**
+     * Returns the number of iterations before the orbit of the point ( x, y ) leaves the disk of radius 2, or
+     * maximumIterations if it does not. If escapePoint is not null and the orbit escapes, the real and imaginary
+     * parts of the last z and of c are stored in it, which is what smoothIterationCount needs.
+     */
+    int iterate( double x, double y, int maximumIterations, double[] escapePoint );
+
+    /**
+     * Returns the continuous version of the count that iterate returned for an orbit that ended at escapePoint;
+     * see RenderEngine.smoothIterationCount.
+     */
+    double smoothIterationCount( int count, double[] escapePoint );
+
+    /**
+     * Iterates the points ( xs[ column ], y ) for the columns from firstColumn up to, but not including,
+     * endColumn, and stores the counts in counts[ offset ], counts[ offset + 1 ] and so on. If smoothCounts is not
+     * null, the smooth counts are stored in it at the same indices.
+     */
+    void iterateRow( double[] xs, int firstColumn, int endColumn, double y, int maximumIterations, int[] counts,
+                     float[] smoothCounts, int offset );
+}
@@ -0,0 +1,136 @@
+package com.Introduction;
+
+/**
+ * An image that worker threads draw into directly. Drawing on a Canvas takes two copies per frame: the workers
+ * collect a row of Color objects, which the JavaFX application thread then paints pixel by pixel into the canvas,
+ * which in turn is copied into a texture. Here the pixels live in a direct IntBuffer outside the Java heap, which is
+ * wrapped in a PixelBuffer and shown through a WritableImage, so JavaFX uploads the texture straight from the
+ * memory the workers wrote.
+ *
+ * A worker writes its pixels with setPixel, from any thread, and then reports the area it has finished with
+ * markDirty. The dirty areas are merged into one rectangle, and once per pulse the application thread hands only
+ * that rectangle to PixelBuffer.updateBuffer. No objects are created per pixel or per row, and the application
+ * thread no longer copies anything itself, however large the image.
+ *
+ * The pixel format is premultiplied ARGB, so colors have to be opaque (alpha 0xFF), as the palettes of this program
+ * are; for those the premultiplied value is just the color.
+ */
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+public class FrameBuffer {
+
+    private final String poolName;
+    private final int width;
+    private final int height;
+    private final IntBuffer pixels;
+    private final PixelBuffer< IntBuffer > pixelBuffer;
+    private final WritableImage image;
+    private final AnimationTimer flusher;
+
+    // The dirty rectangle, guarded by the frame buffer's lock. It is empty while dirtyRight < dirtyLeft.
+    private int dirtyLeft, dirtyTop, dirtyRight = -1, dirtyBottom = -1;
+
+    /**
+     * Creates the buffer and starts flushing it. Only to be called on the JavaFX application thread. The pool name
+     * is used for the flight recorder events of the flushes (see TaskEvents).
+     */
+    public FrameBuffer( String poolName, int width, int height ) {
+        this.poolName = poolName;
+        this.width = width;
+        this.height = height;
+        pixels = ByteBuffer.allocateDirect( 4 * width * height ).order( ByteOrder.nativeOrder() ).asIntBuffer();
+        pixelBuffer = new PixelBuffer<>( width, height, pixels, PixelFormat.getIntArgbPreInstance() );
+        image = new WritableImage( pixelBuffer );
+        flusher = new AnimationTimer() {
+            public void handle( long now ) {
+                flush();
+            }
+        };
+        flusher.start();
+    }
+
+    /**
+     * The image to show, for example in an ImageView.
+     */
+    public WritableImage getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Writes one pixel. Can be called from any thread; the pixel shows up after markDirty has been called for it.
+     */
+    public void setPixel( int x, int y, int argb ) {
+        pixels.put( y*width + x, argb );
+    }
+
+    /**
+     * Fills the whole image with one color.
+     */
+    public void fill( int argb ) {
+        for ( int i = 0; i < width * height; i++ )
+            pixels.put( i, argb );
+        markDirty( 0, 0, width, height );
+    }
+
+    /**
+     * Reports that the pixels of the given rectangle have been written. Since this is synchronized, the writes
+     * before it are visible to the application thread when it next flushes.
+     */
+    synchronized public void markDirty( int x, int y, int rectangleWidth, int rectangleHeight ) {
+        if ( dirtyRight < dirtyLeft ) {
+            dirtyLeft = x;
+            dirtyTop = y;
+            dirtyRight = x + rectangleWidth - 1;
+            dirtyBottom = y + rectangleHeight - 1;
+        }
+        else {
+            dirtyLeft = Math.min( dirtyLeft, x );
+            dirtyTop = Math.min( dirtyTop, y );
+            dirtyRight = Math.max( dirtyRight, x + rectangleWidth - 1 );
+            dirtyBottom = Math.max( dirtyBottom, y + rectangleHeight - 1 );
+        }
+    }
+
+    /**
+     * Stops flushing. The image keeps what it shows.
+     */
+    public void stop() {
+        flusher.stop();
+    }
+
+    /**
+     * Runs once per pulse on the application thread and tells JavaFX which part of the image has changed since the
+     * last pulse, if any.
+     */
+    private void flush() {
+        Rectangle2D dirtyRegion;
+        synchronized ( this ) {
+            if ( dirtyRight < dirtyLeft )
+                return;
+            dirtyRegion = new Rectangle2D( dirtyLeft, dirtyTop, dirtyRight - dirtyLeft + 1,
+                    dirtyBottom - dirtyTop + 1 );
+            dirtyRight = -1;
+            dirtyLeft = 0;
+        }
+        TaskEvents.FxFlush event = TaskEvents.flushStarted();
+        pixelBuffer.updateBuffer( buffer -> dirtyRegion );
+        TaskEvents.flushEnded( event, poolName, ( int ) dirtyRegion.getMinY(),
+                ( int ) ( dirtyRegion.getWidth() * dirtyRegion.getHeight() ) );
+    }
+}
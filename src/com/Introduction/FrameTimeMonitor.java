@@ -0,0 +1,52 @@
+package com.Introduction;
+
+/**
+ * Watches the pulses of the JavaFX application thread and adjusts a CpuBudget to them. JavaFX aims at 60 frames a
+ * second; when the time between two frames is much longer than that, a frame has been dropped, and the budget of the
+ * background threads is tightened. After a second of frames on time, a little of it is given back. The budget thus
+ * settles at about the largest share that still lets the interface keep up.
+ */
+import javafx.animation.AnimationTimer;
+
+public class FrameTimeMonitor extends AnimationTimer {
+
+    private static final long DROPPED_FRAME_TIME = 25_000_000;  // nanoseconds, one and a half frames at 60 Hz
+    private static final int FRAMES_BEFORE_RELAXING = 60;
+
+    private final CpuBudget budget;
+    private long lastFrameTime;
+    private int framesOnTime;
+    private long droppedFrames;
+
+    public FrameTimeMonitor( CpuBudget budget ) {
+        this.budget = budget;
+    }
+
+    public void start() {
+        lastFrameTime = 0;
+        framesOnTime = 0;
+        super.start();
+    }
+
+    public void handle( long now ) {
+        if ( lastFrameTime != 0 ) {
+            if ( now - lastFrameTime > DROPPED_FRAME_TIME ) {
+                droppedFrames++;
+                framesOnTime = 0;
+                budget.tighten();
+            }
+            else if ( ++framesOnTime >= FRAMES_BEFORE_RELAXING ) {
+                framesOnTime = 0;
+                budget.relax();
+            }
+        }
+        lastFrameTime = now;
+    }
+
+    /**
+     * The number of dropped frames seen since the monitor was created. Only to be read on the application thread.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,55 @@
+package com.Introduction;
+
+/**
+ * An ExecutorService that hands its tasks to another one and measures them with a PoolMetrics on the way. Tasks
+ * submitted with submit() or invokeAll() are wrapped as well, since they all end up in execute(). Everything else,
+ * shutting down included, is passed on unchanged, so the wrapper can replace the executor it wraps anywhere.
+ *
+ * Several executors may share one PoolMetrics, for example a program that creates a new pool for every job but
+ * wants a single set of metrics to watch.
+ */
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class InstrumentedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService executor;
+    private final PoolMetrics metrics;
+
+    public InstrumentedExecutorService( ExecutorService executor, PoolMetrics metrics ) {
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void execute( Runnable task ) {
+        executor.execute( metrics.instrument( task ) );
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public List< Runnable > shutdownNow() {
+        List< Runnable > discardedTasks = executor.shutdownNow();
+        metrics.tasksDiscarded( discardedTasks.size() );
+        return discardedTasks;
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    public boolean awaitTermination( long timeout, TimeUnit unit ) throws InterruptedException {
+        return executor.awaitTermination( timeout, unit );
+    }
+}
@@ -0,0 +1,328 @@
+package com.Introduction;
+
+/**
+ * Chooses the maximum number of iterations for a view, instead of always using the same one. A fixed limit is
+ * wrong almost everywhere: in a shallow view nearly every pixel escapes within a few hundred iterations, and each
+ * interior pixel is iterated to the full limit for nothing, while in a deep view the points near the boundary can
+ * need far more iterations than the limit allows, so that they come out black and the detail is lost.
+ *
+ * The estimate comes from a probe: a coarse grid of points over the view, which is iterated with a limit that is
+ * doubled until some points escape and the last doubling no longer lets a noticeable number of them escape. For
+ * every point that escapes, the distance to the set is estimated as well, from how fast its smooth iteration count
+ * changes between the point and its neighbours half a pixel away (the smooth count is a function of the potential,
+ * and the potential divided by its gradient estimates the distance). Points within a few pixels of the set are
+ * boundary points; all others are open points. The open points decide the base limit, which is twice the count below
+ * which nearly all of them escape; the whole image is rendered with it. The boundary points, which escape much
+ * later, only decide the boundary limit.
+ *
+ * After the render, refineBoundary iterates the pixels that did not escape again with the boundary limit, but only
+ * those next to a pixel that did escape, and then the pixels next to those that escaped in turn, and so on. As the
+ * probe is coarse, the boundary limit can still be too low; the boundary pass therefore keeps doubling it for the
+ * pixels that have not escaped as long as many pixels only escape late. The area of the set itself, where nothing
+ * ever escapes, thus costs only the base limit per pixel, and the extra iterations go to the boundary, where they
+ * make a difference.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+public class IterationLimitEstimator {
+
+    public static final int MINIMUM_LIMIT = 256;
+    public static final int MAXIMUM_LIMIT = 1 << 18;
+
+    private static final int PROBE_COLUMNS = 48;
+    private static final double LATE_ESCAPE_SHARE = 0.002;
+    private static final double BOUNDARY_DISTANCE = 2;  // pixels
+    private static final double OPEN_POINT_PERCENTILE = 0.99;
+    private static final int HEADROOM = 2;
+    private static final double LOG_2 = Math.log( 2 );
+    private static final int PIXELS_PER_TASK = 256;
+
+    private final int baseLimit;
+    private final int boundaryLimit;
+    private final int numberOfProbes;
+    private final int numberOfBoundaryProbes;
+
+    private IterationLimitEstimator( int baseLimit, int boundaryLimit, int numberOfProbes,
+                                     int numberOfBoundaryProbes ) {
+        this.baseLimit = baseLimit;
+        this.boundaryLimit = boundaryLimit;
+        this.numberOfProbes = numberOfProbes;
+        this.numberOfBoundaryProbes = numberOfBoundaryProbes;
+    }
+
+    /**
+     * Probes the view and returns the limits it needs. The maximum number of iterations of spec itself is ignored.
+     * A point that escapes is iterated three times, for its distance, but there are only a couple of thousand
+     * points, so the probe costs a small fraction of a render.
+     */
+    public static IterationLimitEstimator estimate( RenderSpec spec ) {
+        return estimate( spec, new MandelbrotKernel() );
+    }
+
+    public static IterationLimitEstimator estimate( RenderSpec spec, FractalKernel kernel ) {
+        int columns = PROBE_COLUMNS;
+        int rows = Math.max( 1, ( int ) Math.round( ( double ) PROBE_COLUMNS * spec.getHeight() / spec.getWidth() ) );
+        double columnStep = ( double ) spec.getWidth() / columns;
+        double rowStep = ( double ) spec.getHeight() / rows;
+        int numberOfProbes = columns * rows;
+        boolean[] escaped = new boolean[ numberOfProbes ];
+        int[] counts = new int[ numberOfProbes ];
+        double[] distances = new double[ numberOfProbes ];
+        float[] smoothCounts = new float[ 3 ];
+        int limit = MINIMUM_LIMIT;
+        while ( true ) {
+            EscapeTimeRenderer renderer = RenderEngine.createRenderer( spec.withMaximumIterations( limit ), kernel );
+            int lateEscapes = 0;
+            for ( int probe = 0; probe < numberOfProbes; probe++ ) {
+                if ( escaped[ probe ] )
+                    continue;
+                double column = ( probe % columns + 0.5 ) * columnStep;
+                double row = ( probe / columns + 0.5 ) * rowStep;
+                int count = renderer.iterationsAt( column, row, smoothCounts, 0 );
+                if ( count == limit )
+                    continue;
+                escaped[ probe ] = true;
+                counts[ probe ] = count;
+                distances[ probe ] = distanceInPixels( renderer, column, row, smoothCounts, limit );
+                if ( count >= limit / 2 )
+                    lateEscapes++;
+            }
+            if ( anyEscaped( escaped ) && lateEscapes <= LATE_ESCAPE_SHARE * numberOfProbes
+                    || limit >= MAXIMUM_LIMIT )
+                break;
+            limit *= 2;
+        }
+        return fromProbes( escaped, counts, distances );
+    }
+
+    private static boolean anyEscaped( boolean[] escaped ) {
+        for ( boolean probeEscaped : escaped )
+            if ( probeEscaped )
+                return true;
+        return false;
+    }
+
+    /**
+     * Estimates the distance to the set from the smooth iteration count alone, so that it works with any renderer.
+     * The smooth count nu of a point with potential G satisfies G = 2 log 2 * 2^-nu, and the distance is about
+     * G / ( 2 |grad G| ) = 1 / ( 2 log 2 |grad nu| ). The gradient is taken over half a pixel; if either neighbour
+     * does not escape, the point is right at the boundary.
+     */
+    private static double distanceInPixels( EscapeTimeRenderer renderer, double column, double row,
+                                            float[] smoothCounts, int limit ) {
+        double step = 0.5;
+        if ( renderer.iterationsAt( column + step, row, smoothCounts, 1 ) == limit
+                || renderer.iterationsAt( column, row + step, smoothCounts, 2 ) == limit )
+            return 0;
+        double dx = ( smoothCounts[1] - smoothCounts[0] ) / step;
+        double dy = ( smoothCounts[2] - smoothCounts[0] ) / step;
+        double gradient = Math.sqrt( dx*dx + dy*dy );
+        return ( gradient == 0 ) ? Double.POSITIVE_INFINITY : 1 / ( 2 * LOG_2 * gradient );
+    }
+
+    private static IterationLimitEstimator fromProbes( boolean[] escaped, int[] counts, double[] distances ) {
+        int numberOfOpenProbes = 0, numberOfBoundaryProbes = 0;
+        int[] openCounts = new int[ counts.length ];
+        int slowestBoundaryCount = 0;
+        for ( int probe = 0; probe < counts.length; probe++ ) {
+            if ( !escaped[ probe ] )
+                continue;
+            if ( distances[ probe ] < BOUNDARY_DISTANCE ) {
+                numberOfBoundaryProbes++;
+                slowestBoundaryCount = Math.max( slowestBoundaryCount, counts[ probe ] );
+            }
+            else
+                openCounts[ numberOfOpenProbes++ ] = counts[ probe ];
+        }
+        int openCount = 0;
+        if ( numberOfOpenProbes > 0 ) {
+            Arrays.sort( openCounts, 0, numberOfOpenProbes );
+            openCount = openCounts[ ( int ) ( OPEN_POINT_PERCENTILE * ( numberOfOpenProbes - 1 ) ) ];
+        }
+        int baseLimit = clampLimit( ( long ) HEADROOM * openCount );
+        int boundaryLimit = Math.max( baseLimit, clampLimit( ( long ) HEADROOM * slowestBoundaryCount ) );
+        return new IterationLimitEstimator( baseLimit, boundaryLimit, counts.length, numberOfBoundaryProbes );
+    }
+
+    private static int clampLimit( long limit ) {
+        return ( int ) Math.max( MINIMUM_LIMIT, Math.min( MAXIMUM_LIMIT, limit ) );
+    }
+
+    /**
+     * The limit to render the whole view with.
+     */
+    public int getBaseLimit() {
+        return baseLimit;
+    }
+
+    /**
+     * The limit that the boundary pass starts with. Never less than the base limit.
+     */
+    public int getBoundaryLimit() {
+        return boundaryLimit;
+    }
+
+    public String toString() {
+        return String.format( "base limit %d, boundary limit %d (%d of %d probes near the boundary)", baseLimit,
+                boundaryLimit, numberOfBoundaryProbes, numberOfProbes );
+    }
+
+    /**
+     * Iterates the pixels near the boundary of a rendered view again with higher limits. A pixel is iterated again
+     * if its count is baseLimit, so that it did not escape, and a neighbour of it did escape; this spreads out from
+     * the escaped pixels for as long as pixels keep escaping. It starts with the boundary limit, or twice the base
+     * limit if that is more. If a noticeable share of the pixels still only escape in the upper half of that limit,
+     * the pixels that have not escaped are iterated once more with twice the limit, and so on up to MAXIMUM_LIMIT.
+     *
+     * The counts and smooth counts, row by row, are updated in place: a pixel that escapes now gets its new count,
+     * which is more than baseLimit, one that still does not escape keeps baseLimit. Pixels with negative counts have
+     * not been computed and are left alone. Each round of the spreading is computed in parallel in the common
+     * ForkJoinPool; cancelled is checked between rounds. Returns the number of pixels iterated again and the highest
+     * limit any of them was iterated with.
+     */
+    public static Refinement refineBoundary( RenderSpec spec, FractalKernel kernel, int baseLimit, int boundaryLimit,
+                                      int[] counts, float[] smoothCounts, BooleanSupplier cancelled ) {
+        int width = spec.getWidth();
+        int height = counts.length / width;
+        boolean[] queued = new boolean[ counts.length ];
+        ArrayList< Integer > frontier = new ArrayList<>();
+        for ( int i = 0; i < counts.length; i++ )
+            if ( counts[i] == baseLimit && hasEscapedNeighbour( counts, width, height, i, baseLimit ) ) {
+                queued[i] = true;
+                frontier.add( i );
+            }
+        int limit = clampLimit( Math.max( boundaryLimit, ( long ) HEADROOM * baseLimit ) );
+        int iteratedPixels = 0;
+        int highestLimit = baseLimit;
+        while ( limit > baseLimit && !frontier.isEmpty() && !cancelled.getAsBoolean() ) {
+            EscapeTimeRenderer renderer = RenderEngine.createRenderer( spec.withMaximumIterations( limit ), kernel );
+            ArrayList< Integer > notEscaped = new ArrayList<>();
+            int pixelsAtThisLimit = 0, lateEscapes = 0;
+            while ( !frontier.isEmpty() && !cancelled.getAsBoolean() ) {
+                int[] pixels = frontier.stream().mapToInt( Integer::intValue ).toArray();
+                ForkJoinPool.commonPool().invoke( new RefineTask( renderer, baseLimit, counts, smoothCounts, width,
+                        pixels, 0, pixels.length ) );
+                pixelsAtThisLimit += pixels.length;
+                frontier.clear();
+                for ( int pixel : pixels )
+                    if ( counts[ pixel ] == baseLimit )
+                        notEscaped.add( pixel );
+                    else {
+                        if ( counts[ pixel ] >= limit / 2 )
+                            lateEscapes++;
+                        queueNeighbours( counts, width, height, pixel, baseLimit, queued, frontier );
+                    }
+            }
+            iteratedPixels += pixelsAtThisLimit;
+            if ( pixelsAtThisLimit > 0 )
+                highestLimit = limit;
+            if ( lateEscapes <= LATE_ESCAPE_SHARE * pixelsAtThisLimit || limit >= MAXIMUM_LIMIT )
+                break;
+            limit = clampLimit( 2L * limit );
+            frontier = notEscaped;  // All of these are next to escaped pixels.
+        }
+        return new Refinement( iteratedPixels, highestLimit );
+    }
+
+    private static boolean hasEscapedNeighbour( int[] counts, int width, int height, int pixel, int baseLimit ) {
+        int column = pixel % width, row = pixel / width;
+        for ( int neighbourRow = Math.max( 0, row - 1 ); neighbourRow <= Math.min( height - 1, row + 1 );
+              neighbourRow++ )
+            for ( int neighbourColumn = Math.max( 0, column - 1 ); neighbourColumn <= Math.min( width - 1, column + 1 );
+                  neighbourColumn++ ) {
+                int count = counts[ neighbourRow*width + neighbourColumn ];
+                if ( count >= 0 && count != baseLimit )
+                    return true;
+            }
+        return false;
+    }
+
+    private static void queueNeighbours( int[] counts, int width, int height, int pixel, int baseLimit,
+                                         boolean[] queued, ArrayList< Integer > frontier ) {
+        int column = pixel % width, row = pixel / width;
+        for ( int neighbourRow = Math.max( 0, row - 1 ); neighbourRow <= Math.min( height - 1, row + 1 );
+              neighbourRow++ )
+            for ( int neighbourColumn = Math.max( 0, column - 1 ); neighbourColumn <= Math.min( width - 1, column + 1 );
+                  neighbourColumn++ ) {
+                int neighbour = neighbourRow*width + neighbourColumn;
+                if ( counts[ neighbour ] == baseLimit && !queued[ neighbour ] ) {
+                    queued[ neighbour ] = true;
+                    frontier.add( neighbour );
+                }
+            }
+    }
+
+    /**
+     * Iterates a range of the pixels of one round. Only those pixels are written, and nothing is read, so the
+     * tasks of a round never interfere.
+     */
+    private static class RefineTask extends RecursiveAction {
+
+        private final EscapeTimeRenderer renderer;
+        private final int baseLimit;
+        private final int[] counts;
+        private final float[] smoothCounts;
+        private final int width;
+        private final int[] pixels;
+        private final int first, end;
+
+        RefineTask( EscapeTimeRenderer renderer, int baseLimit, int[] counts, float[] smoothCounts, int width,
+                    int[] pixels, int first, int end ) {
+            this.renderer = renderer;
+            this.baseLimit = baseLimit;
+            this.counts = counts;
+            this.smoothCounts = smoothCounts;
+            this.width = width;
+            this.pixels = pixels;
+            this.first = first;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if ( end - first > PIXELS_PER_TASK ) {
+                int middle = ( first + end ) >>> 1;
+                ForkJoinTask.invokeAll(
+                        new RefineTask( renderer, baseLimit, counts, smoothCounts, width, pixels, first, middle ),
+                        new RefineTask( renderer, baseLimit, counts, smoothCounts, width, pixels, middle, end ) );
+                return;
+            }
+            int limit = renderer.getSpec().getMaximumIterations();
+            for ( int i = first; i < end; i++ ) {
+                int pixel = pixels[i];
+                int count = renderer.iterationsAt( pixel % width, pixel / width, smoothCounts, pixel );
+                counts[ pixel ] = ( count == limit ) ? baseLimit : count;
+                if ( count == limit )
+                    smoothCounts[ pixel ] = baseLimit;
+            }
+        }
+    }
+
+    /**
+     * The result of refineBoundary. The pixels that have not escaped by the highest limit keep the base limit as
+     * their count; anything that iterates the view again has to use the highest limit, and count a point that
+     * reaches it as not escaping, to get the same counts.
+     */
+    public static class Refinement {
+
+        private final int iteratedPixels;
+        private final int highestLimit;
+
+        Refinement( int iteratedPixels, int highestLimit ) {
+            this.iteratedPixels = iteratedPixels;
+            this.highestLimit = highestLimit;
+        }
+
+        public int getIteratedPixels() {
+            return iteratedPixels;
+        }
+
+        public int getHighestLimit() {
+            return highestLimit;
+        }
+    }
+}
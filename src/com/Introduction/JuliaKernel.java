@@ -0,0 +1,67 @@
+package com.Introduction;
+
+/**
+ * z = z^2 + c for a fixed c, with z starting at the point itself. Every c gives a different Julia set; the set is
+ * connected if c lies in the Mandelbrot set and falls apart into dust if it does not.
+ */
+public final class JuliaKernel implements FractalKernel {
+
+    private static final int CONNECTEDNESS_ITERATIONS = 100_000;
+
+    private final double cx;
+    private final double cy;
+    private final boolean connected;
+
+    public JuliaKernel( double cx, double cy ) {
+        this.cx = cx;
+        this.cy = cy;
+        connected = iterate( 0, 0, CONNECTEDNESS_ITERATIONS, null ) == CONNECTEDNESS_ITERATIONS;
+    }
+
+    public String getName() {
+        return "Julia ( " + cx + ", " + cy + " )";
+    }
+
+    /**
+     * Whether c lies in the Mandelbrot set, that is, whether the orbit of 0 stays bounded, as far as
+     * CONNECTEDNESS_ITERATIONS iterations can tell. The orbit of -0.8 + 0.156i, which the explorer shows, escapes
+     * after a few hundred.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public int iterate( double x, double y, int maximumIterations, double[] escapePoint ) {
+        int count = 0;
+        double xx = x, yy = y;
+        while ( count < maximumIterations && ( xx*xx + yy*yy ) < 4 ) {
+            count++;
+            double newXX = xx*xx - yy*yy + cx;
+            yy = 2*xx*yy + cy;
+            xx = newXX;
+        }
+        if ( escapePoint != null && count < maximumIterations ) {
+            escapePoint[0] = xx;
+            escapePoint[1] = yy;
+            escapePoint[2] = cx;
+            escapePoint[3] = cy;
+        }
+        return count;
+    }
+
+    public double smoothIterationCount( int count, double[] escapePoint ) {
+        return RenderEngine.smoothIterationCount( count, escapePoint );
+    }
+
+    public void iterateRow( double[] xs, int firstColumn, int endColumn, double y, int maximumIterations,
+                            int[] counts, float[] smoothCounts, int offset ) {
+        double[] escapePoint = ( smoothCounts == null ) ? null : new double[ 4 ];
+        for ( int column = firstColumn; column < endColumn; column++ ) {
+            int index = offset + column - firstColumn;
+            counts[ index ] = iterate( xs[ column ], y, maximumIterations, escapePoint );
+            if ( smoothCounts != null )
+                smoothCounts[ index ] = ( counts[ index ] == maximumIterations ) ? maximumIterations
+                        : ( float ) smoothIterationCount( counts[ index ], escapePoint );
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.Introduction;
+
+/**
+ * Measures what the FractalKernel abstraction costs compared with the loop of processCurrentColumn written out by
+ * hand, single-threaded, so that nothing but the loop is measured. Three ways of computing the same image are timed:
+ *
+ *   - the hand-written loop, in a static method of this class;
+ *   - MandelbrotKernel.iterateRow, called through the interface once per row;
+ *   - MandelbrotKernel.iterate, called through the interface once per pixel.
+ *
+ * Before anything is measured, every kernel renders an image through the same call sites, so that the JIT compiler
+ * sees four different kernels there, as it would in a program that offers all of them. The per-row call then stays
+ * cheap, because the loop itself is inside the kernel; the per-pixel call does not. The runs of the three methods
+ * take turns, the best of several runs is reported, and the images are checked to be identical.
+ *
+ * Usage: java com.Introduction.KernelBenchmark [ runs ]
+ */
+import java.util.Arrays;
+
+public class KernelBenchmark {
+
+    private static final int WIDTH = 700;
+    private static final int HEIGHT = 550;
+    private static final int WARM_UP_RUNS = 3;
+
+    public static void main( String[] args ) {
+        int runs = ( args.length > 0 ) ? Integer.parseInt( args[0] ) : 5;
+        FractalKernel[] kernels = { new JuliaKernel( -0.8, 0.156 ), new BurningShipKernel(), new MultibrotKernel( 3 ),
+                new MandelbrotKernel() };
+        RenderSpec[] viewports = {
+                RenderSpec.fromBounds( -2.2, 0.8, -1.2, 1.2, WIDTH, HEIGHT, 1000 ),
+                RenderSpec.fromBounds( -0.7453, -0.7433, 0.1127, 0.1143, WIDTH, HEIGHT, 2000 ) };
+        for ( int run = 0; run < WARM_UP_RUNS; run++ )
+            for ( FractalKernel kernel : kernels )
+                for ( RenderSpec viewport : viewports ) {
+                    renderByRow( viewport, kernel, new int[ WIDTH * HEIGHT ] );
+                    renderByPixel( viewport, kernel, new int[ WIDTH * HEIGHT ] );
+                }
+        FractalKernel mandelbrot = kernels[ kernels.length - 1 ];
+        for ( RenderSpec viewport : viewports ) {
+            System.out.println( viewport );
+            long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+            int[][] images = new int[ 3 ][ WIDTH * HEIGHT ];
+            for ( int run = 0; run < runs; run++ )
+                for ( int method = 0; method < 3; method++ ) {
+                    long startTime = System.nanoTime();
+                    if ( method == 0 )
+                        renderByHand( viewport, images[ method ] );
+                    else if ( method == 1 )
+                        renderByRow( viewport, mandelbrot, images[ method ] );
+                    else
+                        renderByPixel( viewport, mandelbrot, images[ method ] );
+                    best[ method ] = Math.min( best[ method ], System.nanoTime() - startTime );
+                }
+            if ( !Arrays.equals( images[0], images[1] ) || !Arrays.equals( images[0], images[2] ) )
+                System.out.println( "    The kernel computed a different image!" );
+            print( "Hand-written loop", best[0], best[0] );
+            print( "Kernel, one call per row", best[1], best[0] );
+            print( "Kernel, one call per pixel", best[2], best[0] );
+        }
+    }
+
+    private static void print( String method, long time, long handWrittenTime ) {
+        System.out.printf( "    %-28s %8.1f ms  %+6.1f%%%n", method, time / 1e6,
+                100.0 * ( time - handWrittenTime ) / handWrittenTime );
+    }
+
+    private static double[] columnXs( RenderSpec viewport ) {
+        double[] xs = new double[ WIDTH ];
+        double centerX = viewport.getCenterX().doubleValue();
+        for ( int column = 0; column < WIDTH; column++ )
+            xs[ column ] = centerX + viewport.xOffsetOf( column );
+        return xs;
+    }
+
+    private static void renderByHand( RenderSpec viewport, int[] counts ) {
+        double[] xs = columnXs( viewport );
+        double centerY = viewport.getCenterY().doubleValue();
+        for ( int row = 0; row < HEIGHT; row++ )
+            handWrittenRow( xs, centerY + viewport.yOffsetOf( row ), viewport.getMaximumIterations(), counts,
+                    row*WIDTH );
+    }
+
+    /**
+     * The loop of processCurrentColumn.
+     */
+    private static void handWrittenRow( double[] xs, double y, int maximumIterations, int[] counts, int offset ) {
+        for ( int column = 0; column < WIDTH; column++ ) {
+            double x = xs[ column ];
+            int count = 0;
+            double xx = x, yy = y;
+            while ( count < maximumIterations && ( xx*xx + yy*yy ) < 4 ) {
+                count++;
+                double newXX = xx*xx - yy*yy + x;
+                yy = 2*xx*yy + y;
+                xx = newXX;
+            }
+            counts[ offset + column ] = count;
+        }
+    }
+
+    private static void renderByRow( RenderSpec viewport, FractalKernel kernel, int[] counts ) {
+        double[] xs = columnXs( viewport );
+        double centerY = viewport.getCenterY().doubleValue();
+        for ( int row = 0; row < HEIGHT; row++ )
+            kernel.iterateRow( xs, 0, WIDTH, centerY + viewport.yOffsetOf( row ), viewport.getMaximumIterations(),
+                    counts, null, row*WIDTH );
+    }
+
+    private static void renderByPixel( RenderSpec viewport, FractalKernel kernel, int[] counts ) {
+        double[] xs = columnXs( viewport );
+        double centerY = viewport.getCenterY().doubleValue();
+        for ( int row = 0; row < HEIGHT; row++ ) {
+            double y = centerY + viewport.yOffsetOf( row );
+            for ( int column = 0; column < WIDTH; column++ )
+                counts[ row*WIDTH + column ] = kernel.iterate( xs[ column ], y, viewport.getMaximumIterations(),
+                        null );
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.Introduction;
+
+/**
+ * A histogram of durations in nanoseconds that any number of threads can record into at the same time without
+ * locking. Every octave of values is divided into four buckets, so a reported percentile is within about 12% of the
+ * true value, and recording a value is a few atomic increments. That is cheap enough to do for every task of a
+ * thread pool.
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+
+    private static final int BUCKETS_PER_OCTAVE = 4;
+    private static final int NUMBER_OF_BUCKETS = 256;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( NUMBER_OF_BUCKETS );
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong maximum = new AtomicLong();
+
+    public void record( long nanoseconds ) {
+        if ( nanoseconds < 0 )
+            nanoseconds = 0;
+        buckets.incrementAndGet( bucketOf( nanoseconds ) );
+        count.increment();
+        sum.add( nanoseconds );
+        long currentMaximum = maximum.get();
+        while ( nanoseconds > currentMaximum && !maximum.compareAndSet( currentMaximum, nanoseconds ) )
+            currentMaximum = maximum.get();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return ( n == 0 ) ? 0 : ( double ) sum.sum() / n;
+    }
+
+    public long getMaximum() {
+        return maximum.get();
+    }
+
+    /**
+     * Returns the value below which the given fraction of the recorded values lie, for example 0.99 for the 99th
+     * percentile. The result is the middle of the bucket in which that percentile falls.
+     */
+    public long getPercentile( double fraction ) {
+        long n = count.sum();
+        if ( n == 0 )
+            return 0;
+        long rank = ( long ) Math.ceil( fraction * n );
+        long seen = 0;
+        for ( int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++ ) {
+            seen += buckets.get( bucket );
+            if ( seen >= rank )
+                return Math.min( middleOf( bucket ), maximum.get() );
+        }
+        return maximum.get();
+    }
+
+    /**
+     * Forgets all recorded values. Values that are recorded while this runs may or may not be kept.
+     */
+    public void reset() {
+        for ( int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++ )
+            buckets.set( bucket, 0 );
+        count.reset();
+        sum.reset();
+        maximum.set( 0 );
+    }
+
+    /**
+     * Values below 4 get a bucket each. Above that, a value with its highest bit at position e goes into one of the
+     * four buckets of octave e, chosen by the two bits after the highest one.
+     */
+    private static int bucketOf( long value ) {
+        if ( value < BUCKETS_PER_OCTAVE )
+            return ( int ) value;
+        int highestBit = 63 - Long.numberOfLeadingZeros( value );
+        int subBucket = ( int ) ( value >>> ( highestBit - 2 ) ) & ( BUCKETS_PER_OCTAVE - 1 );
+        return BUCKETS_PER_OCTAVE * ( highestBit - 1 ) + subBucket;
+    }
+
+    private static long middleOf( int bucket ) {
+        if ( bucket < BUCKETS_PER_OCTAVE )
+            return bucket;
+        int highestBit = bucket / BUCKETS_PER_OCTAVE + 1;
+        long bucketWidth = 1L << ( highestBit - 2 );
+        long lowest = ( BUCKETS_PER_OCTAVE + bucket % BUCKETS_PER_OCTAVE ) * bucketWidth;
+        return lowest + bucketWidth / 2;
+    }
+}
@@ -0,0 +1,258 @@
+package com.Introduction;
+
+/**
+ * Estimates the area of the Mandelbrot set by throwing random points at it, instead of counting the black pixels of
+ * a rendered image. Counting pixels is slow, because every pixel of the interior is iterated to the full limit, and
+ * biased, because a pixel is counted whole or not at all, depending only on its centre; the error does not shrink
+ * in any predictable way, and no amount of computing tells how large it is.
+ *
+ * Here the upper half of the rectangle [ -2, 0.5 ] x [ -1.25, 1.25 ], which holds the whole set, is cut into a grid
+ * of cells, the strata, and every cell gets its own random points. The share of points in a cell that belong to the
+ * set estimates the part of the cell covered by the set, and the area is twice the sum over the cells, since the set
+ * is symmetric about the real axis. Sampling by strata removes the variance between the cells: a cell deep inside
+ * the set or far outside it contributes no error at all, so the error comes only from the cells on the boundary. After
+ * a first round with the same number of points in every cell, the points of each further round are therefore spread
+ * in proportion to the standard deviation estimated for each cell (Neyman allocation), so that nearly all of them
+ * land where they reduce the error.
+ *
+ * Most of the points that belong to the set are recognized without iterating them at all, by testing whether they
+ * lie in the main cardioid or in the disk of period 2, which together make up more than nine tenths of the area. The
+ * orbits of the other points are checked for periodicity: an orbit that comes back to where it was some iterations
+ * ago has been caught by an attracting cycle, and the point belongs to the set. Only the points near the boundary that
+ * do not escape are iterated to the limit; they are counted as part of the set, which makes the estimate slightly too
+ * large, by an amount that shrinks as the limit grows and that the confidence interval does not include.
+ *
+ * Every round is a fork/join task over the cells. Each task that splits gives one half of the cells a generator split
+ * off from its own SplittableRandom, so that the threads never share a generator, and since the tasks are split the
+ * same way in every run, the points do not depend on which thread runs which task: the same seed always gives the
+ * same estimate, however many cores there are. After each round the estimate and its confidence interval are
+ * reported, and the rounds go on, each about as large as all the earlier ones together, until the interval is as
+ * narrow as was asked.
+ *
+ * Usage: java com.Introduction.MandelbrotAreaEstimator [ targetHalfWidth [ maximumIterations ] ]
+ */
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+public class MandelbrotAreaEstimator {
+
+    private static final double LEFT = -2, RIGHT = 0.5, TOP = 1.25;
+    private static final int STRATA_COLUMNS = 128;
+    private static final int STRATA_ROWS = 64;
+    private static final int NUMBER_OF_STRATA = STRATA_COLUMNS * STRATA_ROWS;
+    private static final double CELL_WIDTH = ( RIGHT - LEFT ) / STRATA_COLUMNS;
+    private static final double CELL_HEIGHT = TOP / STRATA_ROWS;
+    private static final double CELL_AREA = CELL_WIDTH * CELL_HEIGHT;
+    private static final int PILOT_SAMPLES_PER_STRATUM = 32;
+    private static final int STRATA_PER_TASK = 64;
+    private static final double Z_95 = 1.959964;  // the 97.5th percentile of the standard normal distribution
+    private static final double PERIOD_TOLERANCE = 1e-12;
+
+    private final int maximumIterations;
+    private final SplittableRandom random;
+
+    private final long[] samples = new long[ NUMBER_OF_STRATA ];
+    private final long[] hits = new long[ NUMBER_OF_STRATA ];
+
+    public MandelbrotAreaEstimator( int maximumIterations, long seed ) {
+        this.maximumIterations = maximumIterations;
+        random = new SplittableRandom( seed );
+    }
+
+    public static void main( String[] args ) {
+        double targetHalfWidth = ( args.length > 0 ) ? Double.parseDouble( args[0] ) : 1e-4;
+        int maximumIterations = ( args.length > 1 ) ? Integer.parseInt( args[1] ) : 20000;
+        System.out.println( "Target: +/- " + targetHalfWidth + " at 95% confidence, " + maximumIterations
+                + " iterations, " + ( ForkJoinPool.commonPool().getParallelism() + 1 ) + " threads" );
+        MandelbrotAreaEstimator estimator = new MandelbrotAreaEstimator( maximumIterations, System.nanoTime() );
+        Estimate estimate = estimator.estimate( targetHalfWidth, System.out::println );
+        System.out.printf( "Area: %.6f +/- %.6f%n", estimate.getArea(), estimate.getHalfWidth() );
+    }
+
+    /**
+     * Samples until the half width of the 95% confidence interval is at most targetHalfWidth, and returns the final
+     * estimate. The estimate after each round, the final one included, is passed to progress, if that is not null,
+     * on the calling thread. An estimator can be asked again for a narrower interval, and then goes on from the
+     * points it has already sampled.
+     */
+    synchronized public Estimate estimate( double targetHalfWidth, Consumer< Estimate > progress ) {
+        long startTime = System.nanoTime();
+        Estimate estimate = ( samples[0] == 0 ) ? null : currentEstimate( startTime );
+        while ( estimate == null || estimate.getHalfWidth() > targetHalfWidth ) {
+            int[] allocation = ( estimate == null ) ? pilotAllocation() : allocation( estimate, targetHalfWidth );
+            ForkJoinPool.commonPool().invoke( new StrataTask( allocation, 0, NUMBER_OF_STRATA, random.split() ) );
+            estimate = currentEstimate( startTime );
+            if ( progress != null )
+                progress.accept( estimate );
+        }
+        return estimate;
+    }
+
+    private static int[] pilotAllocation() {
+        int[] allocation = new int[ NUMBER_OF_STRATA ];
+        Arrays.fill( allocation, PILOT_SAMPLES_PER_STRATUM );
+        return allocation;
+    }
+
+    /**
+     * The number of points for each cell in the next round. The round is as large as all the earlier ones together,
+     * but no larger than the number of points that, judging by the current interval, is still needed to reach the
+     * target, since the half width shrinks with the square root of the number of points. The points are spread in
+     * proportion to the standard deviations of the cells, for which the share of hits is taken with half a hit and
+     * half a miss added, so that a cell where every point so far has given the same answer still gets a point now
+     * and then. A cell that the boundary only just touches can easily look that way after the first round.
+     */
+    private int[] allocation( Estimate estimate, double targetHalfWidth ) {
+        double ratio = estimate.getHalfWidth() / targetHalfWidth;
+        long needed = ( long ) Math.ceil( estimate.getSamples() * ( ratio * ratio - 1 ) );
+        long roundSamples = Math.max( NUMBER_OF_STRATA, Math.min( estimate.getSamples(), needed ) );
+        double[] deviations = new double[ NUMBER_OF_STRATA ];
+        double sumOfDeviations = 0;
+        for ( int stratum = 0; stratum < NUMBER_OF_STRATA; stratum++ ) {
+            double share = ( hits[ stratum ] + 0.5 ) / ( samples[ stratum ] + 1 );
+            deviations[ stratum ] = Math.sqrt( share * ( 1 - share ) );
+            sumOfDeviations += deviations[ stratum ];
+        }
+        int[] allocation = new int[ NUMBER_OF_STRATA ];
+        for ( int stratum = 0; stratum < NUMBER_OF_STRATA; stratum++ )
+            allocation[ stratum ] = ( int ) Math.min( Integer.MAX_VALUE,
+                    Math.max( 1, Math.round( roundSamples * deviations[ stratum ] / sumOfDeviations ) ) );
+        return allocation;
+    }
+
+    /**
+     * The area is twice the sum of the cell area times the share of hits over the cells. Its variance is four times
+     * the sum of the squared cell area times the sample variance of the share in each cell.
+     */
+    private Estimate currentEstimate( long startTime ) {
+        double area = 0, variance = 0;
+        long totalSamples = 0;
+        for ( int stratum = 0; stratum < NUMBER_OF_STRATA; stratum++ ) {
+            long n = samples[ stratum ];
+            double share = ( double ) hits[ stratum ] / n;
+            area += CELL_AREA * share;
+            if ( n > 1 )
+                variance += CELL_AREA * CELL_AREA * share * ( 1 - share ) / ( n - 1 );
+            totalSamples += n;
+        }
+        return new Estimate( 2 * area, 2 * Z_95 * Math.sqrt( variance ), totalSamples,
+                System.nanoTime() - startTime );
+    }
+
+    /**
+     * Tells whether the point ( x, y ) belongs to the set, as far as maximumIterations iterations can tell. Points
+     * in the main cardioid or in the disk of period 2 are recognized from the formulas of those regions. For the
+     * others, z is saved after 1, 2, 4, 8 and so on iterations, and if it later comes back to the saved value, the
+     * orbit is periodic and will never escape. Doubling the interval finds a cycle of any length, once the interval
+     * is longer than the cycle.
+     */
+    private boolean belongsToSet( double x, double y ) {
+        double xMinusQuarter = x - 0.25;
+        double q = xMinusQuarter*xMinusQuarter + y*y;
+        if ( q * ( q + xMinusQuarter ) <= 0.25 * y*y )
+            return true;
+        if ( ( x + 1 )*( x + 1 ) + y*y <= 0.0625 )
+            return true;
+        double xx = x, yy = y;
+        double savedXX = xx, savedYY = yy;
+        int nextSave = 1;
+        for ( int count = 1; count <= maximumIterations; count++ ) {
+            double newXX = xx*xx - yy*yy + x;
+            yy = 2*xx*yy + y;
+            xx = newXX;
+            if ( xx*xx + yy*yy >= 4 )
+                return false;
+            if ( Math.abs( xx - savedXX ) < PERIOD_TOLERANCE && Math.abs( yy - savedYY ) < PERIOD_TOLERANCE )
+                return true;
+            if ( count == nextSave ) {
+                savedXX = xx;
+                savedYY = yy;
+                nextSave *= 2;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Samples a range of cells. The cells of different tasks do not overlap, so every task can add its counts to the
+     * arrays of the estimator directly; invoke does not return before all tasks are done, and so their counts are
+     * visible to the thread that computes the estimate afterwards.
+     */
+    private class StrataTask extends RecursiveAction {
+
+        private final int[] allocation;
+        private final int firstStratum, endStratum;
+        private final SplittableRandom random;
+
+        StrataTask( int[] allocation, int firstStratum, int endStratum, SplittableRandom random ) {
+            this.allocation = allocation;
+            this.firstStratum = firstStratum;
+            this.endStratum = endStratum;
+            this.random = random;
+        }
+
+        protected void compute() {
+            if ( endStratum - firstStratum > STRATA_PER_TASK ) {
+                int middle = ( firstStratum + endStratum ) / 2;
+                invokeAll( new StrataTask( allocation, firstStratum, middle, random.split() ),
+                        new StrataTask( allocation, middle, endStratum, random ) );
+                return;
+            }
+            for ( int stratum = firstStratum; stratum < endStratum; stratum++ ) {
+                double left = LEFT + ( stratum % STRATA_COLUMNS ) * CELL_WIDTH;
+                double bottom = ( stratum / STRATA_COLUMNS ) * CELL_HEIGHT;
+                int n = allocation[ stratum ];
+                int inside = 0;
+                for ( int i = 0; i < n; i++ )
+                    if ( belongsToSet( left + random.nextDouble() * CELL_WIDTH,
+                            bottom + random.nextDouble() * CELL_HEIGHT ) )
+                        inside++;
+                samples[ stratum ] += n;
+                hits[ stratum ] += inside;
+            }
+        }
+    }
+
+    /**
+     * The estimated area, with the half width of its 95% confidence interval, after some number of points and some
+     * time in nanoseconds.
+     */
+    public static class Estimate {
+
+        private final double area;
+        private final double halfWidth;
+        private final long samples;
+        private final long elapsedTime;
+
+        Estimate( double area, double halfWidth, long samples, long elapsedTime ) {
+            this.area = area;
+            this.halfWidth = halfWidth;
+            this.samples = samples;
+            this.elapsedTime = elapsedTime;
+        }
+
+        public double getArea() {
+            return area;
+        }
+
+        public double getHalfWidth() {
+            return halfWidth;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        public String toString() {
+            return String.format( "%.6f +/- %.6f after %,d points, %.1f s", area, halfWidth, samples,
+                    elapsedTime / 1e9 );
+        }
+    }
+}
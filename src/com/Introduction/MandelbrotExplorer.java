@@ -0,0 +1,1135 @@
+package com.Introduction;
+
+/**
+ * The viewport used by the other versions of this program is about 2.9e-13 wide, which is already at the limit of
+ * what a double can resolve. Zooming any further in with doubles just gives blocky garbage. This program adds a
+ * deep zoom mode: RenderEngine picks plain doubles for shallow views, double-double arithmetic for intermediate
+ * ones and, beyond about 1e-30, a PerturbationRenderer, which computes the orbit of a single reference point with
+ * BigDecimal arithmetic and every other pixel as a double precision difference from that orbit. This makes it
+ * possible to zoom to 1e-100 and beyond at close to the speed of ordinary double precision rendering.
+ *
+ * As in version 5, the rows of the image are computed by tasks submitted to an ExecutorService. Alternatively, the
+ * image can be computed by subdivision (see MarianiSilverRenderer), which only iterates the borders of tiles and
+ * fills in the tiles whose borders are uniform, or progressively (see ProgressiveRenderer), which shows a coarse
+ * version of the whole image first and refines it starting from the area under the cursor, or from cached tiles
+ * (see TileCache), which only computes the tiles of the view that have not been computed before, or
+ * incrementally, which keeps the counts of the pixels on screen in a ScrollableIterationBuffer so that a pan only
+ * computes the strips of the image that it exposes, or in fork/join tiles (see ForkJoinTileRenderer), which splits
+ * the image recursively so that work stealing keeps every thread busy until the very end.
+ *
+ * The view is changed with the mouse: dragging pans the image and the scroll wheel zooms in or out around the
+ * cursor. A burst of scrolling only scales the image on screen, and changes the view once it has stopped. Every
+ * change of view starts a new render generation. Tasks of older generations stop at the next row or
+ * tile boundary, and whatever they had already computed is never drawn, because the drawing code on the JavaFX
+ * application thread checks the generation first. While the new image is computed, the old one is shown moved or
+ * scaled to the new view.
+ *
+ * The iteration counts of the pixels on screen, together with their smooth counts, are always kept in the
+ * ScrollableIterationBuffer, whatever the render mode. Changing the palette or the coloring scheme therefore only
+ * recolors that buffer (see Colorizer), which takes a few milliseconds instead of another render. With histogram
+ * coloring the image is recolored once more when a render finishes, since the histogram is only known then.
+ *
+ * Computed tiles are kept in memory up to a budget. Running the program with --spill-directory=<directory> also
+ * keeps the tiles that no longer fit in memory in that directory.
+ *
+ * With "Auto Iterations" checked, the maximum number of iterations is no longer fixed: every new depth is first
+ * probed by an IterationLimitEstimator, the image is rendered with the base limit it picks, and when the render is
+ * done, the pixels along the boundary of the set are iterated again with higher limits. Shallow views then take a
+ * fraction of the iterations, and deep ones no longer lose the boundary to a limit that is too low.
+ *
+ * Besides the Mandelbrot set, the program can show a Julia set, the Burning Ship and a Multibrot set (see
+ * FractalKernel). Only the Mandelbrot set can be zoomed deeper than plain doubles allow. The Julia set and the
+ * Burning Ship are not connected, so subdivision does not work for them; they are rendered with fork/join tiles
+ * instead when Subdivision is selected.
+ *
+ * "Export" writes the finished image to a PNG file, anti-aliased by an AdaptiveSupersampler, which supersamples
+ * only the pixels at the edges between different iteration counts.
+ *
+ * With "Throttle CPU" checked, the worker threads stop at every row or tile boundary to pay for the processor time
+ * they have used out of a CpuBudget, and a FrameTimeMonitor shrinks that budget whenever the JavaFX application
+ * thread drops frames. The render then takes longer, but panning and zooming stay smooth.
+ */
+import javafx.animation.PauseTransition;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.geometry.Pos;
+import javafx.util.Duration;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class MandelbrotExplorer extends Application {
+
+    private Stage mainWindow;
+    private Colorizer colorizer;
+    private Canvas canvas;
+    private GraphicsContext drawingArea;
+    private PixelWriter pixelWriter;
+    private Button startOrStopButton;
+    private Button zoomInButton;
+    private Button zoomOutButton;
+    private Button exportButton;
+    private ComboBox<String> renderModeSelector;
+    private ComboBox<String> coloringSelector;
+    private ComboBox<String> paletteSelector;
+    private ComboBox<String> kernelSelector;
+    private volatile FractalKernel kernel = new MandelbrotKernel();
+    private FractalKernel rendererKernel;
+    private Label viewDescription;
+    private CheckBox throttleCheckBox;
+    private CheckBox autoIterationsCheckBox;
+    private IterationLimitEstimator iterationLimits;
+    private int probeGeneration;
+    private final CpuBudget cpuBudget = new CpuBudget( 1.0 );
+    private final FrameTimeMonitor frameTimeMonitor = new FrameTimeMonitor( cpuBudget );
+    private volatile ExecutorService executor;
+    private volatile int renderGeneration;
+    private int numberOfTasks;
+    private RenderSpec renderSpec;
+    private EscapeTimeRenderer renderer;
+    private final Object rendererLock = new Object();
+    private volatile MarianiSilverRenderer subdivision;
+    private volatile ForkJoinTileRenderer forkJoinTiles;
+    private volatile ProgressiveRenderer progressive;
+    private TileCache tileCache;
+    private ScrollableIterationBuffer iterationBuffer;
+    private RenderSpec bufferSpec;
+    private int bufferRefinedLimit;  // the highest limit the boundary passes have used for the buffer
+    private WritableImage imageBeforeViewChange;
+    private double dragStartX, dragStartY;
+    private boolean renderStoppedByDrag;
+    private WritableImage imageBeforeScrolling;
+    private RenderSpec scrolledSpec;
+    private double scrollScale, scrollOffsetX, scrollOffsetY;
+    private PauseTransition scrollSettling;
+
+    private static final String POOL_NAME = "Mandelbrot explorer";
+
+    private final int CANVAS_WIDTH = 700;
+    private final int CANVAS_HEIGHT = 550;
+    private final double ZOOM_FACTOR = 10;
+    private final double SCROLL_ZOOM_FACTOR = 2;  // per notch of the wheel
+    private final double PIXELS_PER_NOTCH = 40;  // if the platform does not say
+    private final Duration SCROLL_SETTLE_TIME = Duration.millis( 150 );
+    private final long TILE_CACHE_BUDGET = 64L * 1024 * 1024;
+    private final int EXPORT_SAMPLES_PER_SIDE = 4;
+    private final int FIXED_MAXIMUM_ITERATIONS = 10000;
+
+    public static void main( String[] args ) {
+        launch( args );
+    }
+
+    public void start( Stage stage ) {
+        setupRenderSpec();
+        setupTileCache();
+        iterationBuffer = new ScrollableIterationBuffer( CANVAS_WIDTH, CANVAS_HEIGHT );
+        setupMainWindow( stage );
+        showMainWindow();
+    }
+
+    private void setupRenderSpec() {
+        renderSpec = RenderSpec.fromBounds( -1.6744096740931858, -1.674409674093473,
+                4.716540768697223E-5, 4.716540790246652E-5, CANVAS_WIDTH, CANVAS_HEIGHT, FIXED_MAXIMUM_ITERATIONS );
+    }
+
+    private void setupTileCache() {
+        String spillDirectory = getParameters().getNamed().get( "spill-directory" );
+        if ( spillDirectory == null )
+            tileCache = new TileCache( TILE_CACHE_BUDGET );
+        else
+            tileCache = new TileCache( TILE_CACHE_BUDGET, Paths.get( spillDirectory ) );
+    }
+
+    private void setupMainWindow( Stage stage ) {
+        mainWindow = stage;
+        mainWindow.setScene( setupScene() );
+    }
+
+    private Scene setupScene() {
+        Scene scene = new Scene( setupBorderPane() );
+        return scene;
+    }
+
+    private BorderPane setupBorderPane() {
+        BorderPane root = new BorderPane( setupCanvas() );
+        root.setBottom( setupButtonBar() );
+        return root;
+    }
+
+    private Canvas setupCanvas() {
+        colorizer = new Colorizer( Colorizer.rainbowPalette(), Colorizer.Scheme.BANDED );
+        canvas = new Canvas( CANVAS_WIDTH, CANVAS_HEIGHT );
+        canvas.setOnMouseMoved( event -> focusOn( event.getX(), event.getY() ) );
+        canvas.setOnMousePressed( event -> startDragging( event.getX(), event.getY() ) );
+        canvas.setOnMouseDragged( event -> drag( event.getX(), event.getY() ) );
+        canvas.setOnMouseReleased( event -> finishDragging( event.getX(), event.getY() ) );
+        canvas.setOnScroll( event -> scroll( event.getX(), event.getY(), event.getDeltaY(),
+                event.getMultiplierY() ) );
+        drawingArea = canvas.getGraphicsContext2D();
+        pixelWriter = drawingArea.getPixelWriter();
+        fillDrawingArea();
+        return canvas;
+    }
+
+    private void fillDrawingArea() {
+        drawingArea.setFill( Color.LIGHTGRAY );
+        drawingArea.fillRect( 0, 0, CANVAS_WIDTH, CANVAS_HEIGHT );
+    }
+
+    private HBox setupButtonBar() {
+        HBox buttonBar = new HBox( 15, setupStartOrStopButton(), setupZoomInButton(), setupZoomOutButton(),
+                setupExportButton(),
+                setupRenderModeSelector(), setupColoringSelector(), setupPaletteSelector(),
+                setupKernelSelector(), setupAutoIterationsCheckBox(), setupThrottleCheckBox(), setupViewDescription() );
+        buttonBar.setAlignment( Pos.CENTER );
+        buttonBar.setStyle( "-fx-padding: 6px; -fx-border-width: 2px" );
+        return buttonBar;
+    }
+
+    private Button setupStartOrStopButton() {
+        startOrStopButton = new Button( "Start" );
+        startOrStopButton.setOnAction( event -> startOrStopAnimation() );
+        return startOrStopButton;
+    }
+
+    private Button setupZoomInButton() {
+        zoomInButton = new Button( "Zoom In" );
+        zoomInButton.setOnAction( event -> zoomBy( ZOOM_FACTOR ) );
+        return zoomInButton;
+    }
+
+    private Button setupZoomOutButton() {
+        zoomOutButton = new Button( "Zoom Out" );
+        zoomOutButton.setOnAction( event -> zoomBy( 1 / ZOOM_FACTOR ) );
+        return zoomOutButton;
+    }
+
+    private Button setupExportButton() {
+        exportButton = new Button( "Export" );
+        exportButton.setOnAction( event -> exportImage() );
+        return exportButton;
+    }
+
+    private ComboBox<String> setupRenderModeSelector() {
+        renderModeSelector = new ComboBox<>();
+        renderModeSelector.getItems().addAll( "Row by Row", "Subdivision", "Progressive", "Cached Tiles",
+                "Incremental", "Fork/Join Tiles" );
+        renderModeSelector.getSelectionModel().select( 0 );
+        return renderModeSelector;
+    }
+
+    private ComboBox<String> setupColoringSelector() {
+        coloringSelector = new ComboBox<>();
+        coloringSelector.getItems().addAll( "Banded", "Smooth", "Histogram" );
+        coloringSelector.getSelectionModel().select( 0 );
+        coloringSelector.setOnAction( event -> changeColoring() );
+        return coloringSelector;
+    }
+
+    private ComboBox<String> setupPaletteSelector() {
+        paletteSelector = new ComboBox<>();
+        paletteSelector.getItems().addAll( "Rainbow", "Fire", "Grayscale" );
+        paletteSelector.getSelectionModel().select( 0 );
+        paletteSelector.setOnAction( event -> changeColoring() );
+        return paletteSelector;
+    }
+
+    private ComboBox<String> setupKernelSelector() {
+        kernelSelector = new ComboBox<>();
+        kernelSelector.getItems().addAll( "Mandelbrot", "Julia", "Burning Ship", "Multibrot 3" );
+        kernelSelector.getSelectionModel().select( 0 );
+        kernelSelector.setOnAction( event -> changeKernel() );
+        return kernelSelector;
+    }
+
+    /**
+     * Switches to another fractal and shows the whole of it. The buffered counts of the previous fractal cannot be
+     * reused, so the buffer is invalidated. The tile cache is kept: the fractal is part of the key of every tile, so
+     * the tiles of the previous fractal are simply not found, and are there again when the user switches back.
+     */
+    private void changeKernel() {
+        if ( executor != null )
+            stopAnimation();
+        if ( scrolledSpec != null ) {
+            scrollSettling.stop();
+            scrolledSpec = null;
+            imageBeforeScrolling = null;
+        }
+        int selected = kernelSelector.getSelectionModel().getSelectedIndex();
+        if ( selected == 1 )
+            kernel = new JuliaKernel( -0.8, 0.156 );
+        else if ( selected == 2 )
+            kernel = new BurningShipKernel();
+        else if ( selected == 3 )
+            kernel = new MultibrotKernel( 3 );
+        else
+            kernel = new MandelbrotKernel();
+        bufferSpec = null;
+        iterationLimits = null;
+        renderSpec = RenderSpec.fromBounds( -2.5, 1.5, -2, 2, CANVAS_WIDTH, CANVAS_HEIGHT,
+                renderSpec.getMaximumIterations() );
+        updateViewDescription();
+        startAnimation();
+    }
+
+    private CheckBox setupAutoIterationsCheckBox() {
+        autoIterationsCheckBox = new CheckBox( "Auto Iterations" );
+        autoIterationsCheckBox.setOnAction( event -> changeIterationMode() );
+        return autoIterationsCheckBox;
+    }
+
+    /**
+     * Takes effect with the next render. Switching automatic mode on makes that render probe the view first.
+     */
+    private void changeIterationMode() {
+        iterationLimits = null;
+        if ( !autoIterationsCheckBox.isSelected() ) {
+            renderSpec = renderSpec.withMaximumIterations( FIXED_MAXIMUM_ITERATIONS );
+            updateViewDescription();
+        }
+    }
+
+    private CheckBox setupThrottleCheckBox() {
+        throttleCheckBox = new CheckBox( "Throttle CPU" );
+        throttleCheckBox.setOnAction( event -> changeThrottling() );
+        return throttleCheckBox;
+    }
+
+    /**
+     * The budget starts out at the whole machine every time throttling is switched on; the monitor cuts it down
+     * from there as soon as frames are dropped.
+     */
+    private void changeThrottling() {
+        if ( throttleCheckBox.isSelected() ) {
+            cpuBudget.setShare( 1.0 );
+            cpuBudget.setEnabled( true );
+            frameTimeMonitor.start();
+        }
+        else {
+            frameTimeMonitor.stop();
+            cpuBudget.setEnabled( false );
+        }
+    }
+
+    private void changeColoring() {
+        colorizer.setScheme( Colorizer.Scheme.values()[ coloringSelector.getSelectionModel().getSelectedIndex() ] );
+        int palette = paletteSelector.getSelectionModel().getSelectedIndex();
+        if ( palette == 1 )
+            colorizer.setPalette( Colorizer.firePalette() );
+        else if ( palette == 2 )
+            colorizer.setPalette( Colorizer.grayscalePalette() );
+        else
+            colorizer.setPalette( Colorizer.rainbowPalette() );
+        recolorCanvas();
+    }
+
+    /**
+     * Draws the whole buffer again with the current colors. Nothing is computed, so this can be done on the JavaFX
+     * application thread.
+     */
+    private void recolorCanvas() {
+        if ( bufferSpec == null )
+            return;
+        int[] argb = new int[ CANVAS_WIDTH * CANVAS_HEIGHT ];
+        colorizer.recolor( iterationBuffer, bufferSpec.getMaximumIterations(), argb );
+        pixelWriter.setPixels( 0, 0, CANVAS_WIDTH, CANVAS_HEIGHT, PixelFormat.getIntArgbInstance(), argb, 0,
+                CANVAS_WIDTH );
+    }
+
+    /**
+     * Stores the counts of a pixel in the buffer and draws it. Only to be called on the JavaFX application thread,
+     * for a pixel of the view the buffer belongs to.
+     */
+    private void drawPixel( int column, int row, int count, float smoothCount, int maximumIterations ) {
+        iterationBuffer.set( column, row, count, smoothCount );
+        pixelWriter.setArgb( column, row, colorizer.colorOf( count, smoothCount, maximumIterations ) );
+    }
+
+    private void clearIterationBuffer( RenderSpec spec ) {
+        iterationBuffer.invalidateAll();
+        bufferSpec = spec;
+        bufferRefinedLimit = spec.getMaximumIterations();
+    }
+
+    private Label setupViewDescription() {
+        viewDescription = new Label();
+        updateViewDescription();
+        return viewDescription;
+    }
+
+    private void updateViewDescription() {
+        viewDescription.setText( String.format( "Pixel spacing: %.3g (%s), limit %d", renderSpec.getPixelSpacing(),
+                ( kernel instanceof MandelbrotKernel ) ? RenderEngine.choosePrecision( renderSpec )
+                        : RenderEngine.Precision.DOUBLE, renderSpec.getMaximumIterations() ) );
+    }
+
+    /**
+     * Writes the image on screen to a PNG file, anti-aliased. The counts are copied and colored on the JavaFX
+     * application thread; the supersampling, which iterates again, and the writing are done on a thread of their
+     * own, with a copy of the colorizer, so that the program stays responsive in the meantime.
+     *
+     * What is exported is the view of the buffer, which is the image on screen once the render is done. It need not
+     * be renderSpec itself: Cached Tiles mode snaps the view to the pixel grid, and a change of the iteration mode
+     * only takes effect with the next render.
+     */
+    private void exportImage() {
+        int[] counts = new int[ CANVAS_WIDTH * CANVAS_HEIGHT ];
+        float[] smoothCounts = new float[ counts.length ];
+        boolean renderDone = executor == null && scrolledSpec == null && bufferSpec != null;
+        if ( renderDone )
+            iterationBuffer.copyTo( counts, smoothCounts );
+        if ( !renderDone || hasUncomputedPixels( counts ) ) {
+            viewDescription.setText( "Let the render finish before exporting." );
+            return;
+        }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setInitialFileName( "mandelbrot.png" );
+        File file = fileChooser.showSaveDialog( mainWindow );
+        if ( file == null )
+            return;
+        RenderSpec spec = bufferSpec;
+        int samplingLimit = Math.max( spec.getMaximumIterations(), bufferRefinedLimit );
+        int[] argb = new int[ counts.length ];
+        colorizer.recolor( counts, smoothCounts, CANVAS_WIDTH, spec.getMaximumIterations(), argb );
+        Colorizer exportColorizer = colorizer.copy();
+        FractalKernel exportKernel = kernel;
+        exportButton.setDisable( true );
+        Thread exportThread = new Thread( () -> writeAntiAliasedImage( spec, samplingLimit, exportKernel,
+                exportColorizer, counts, argb, file ), "Export" );
+        exportThread.setDaemon( true );
+        exportThread.start();
+    }
+
+    private static boolean hasUncomputedPixels( int[] counts ) {
+        for ( int count : counts )
+            if ( count < 0 )
+                return true;
+        return false;
+    }
+
+    /**
+     * Runs on the export thread. When it is done, the anti-aliased image is also shown on the canvas, unless the
+     * view has changed in the meantime. The samples are iterated up to samplingLimit, the highest limit the boundary
+     * pass has used, if any, so that they escape where the pixels around them did; the image itself was colored with
+     * the limit of spec.
+     */
+    private void writeAntiAliasedImage( RenderSpec spec, int samplingLimit, FractalKernel exportKernel,
+                                        Colorizer exportColorizer, int[] counts, int[] argb, File file ) {
+        long startTime = System.nanoTime();
+        AdaptiveSupersampler supersampler = new AdaptiveSupersampler(
+                RenderEngine.createRenderer( spec.withMaximumIterations( samplingLimit ), exportKernel ),
+                exportColorizer, EXPORT_SAMPLES_PER_SIDE, spec.getMaximumIterations() );
+        int supersampledPixels = supersampler.antiAlias( counts, CANVAS_WIDTH, argb );
+        double seconds = ( System.nanoTime() - startTime ) / 1e9;
+        String result;
+        try {
+            BufferedImage image = new BufferedImage( CANVAS_WIDTH, CANVAS_HEIGHT, BufferedImage.TYPE_INT_RGB );
+            image.setRGB( 0, 0, CANVAS_WIDTH, CANVAS_HEIGHT, argb, 0, CANVAS_WIDTH );
+            ImageIO.write( image, "png", file );
+            result = String.format( "Wrote %s: %d edge pixels (%.1f%%) supersampled in %.2f s", file.getName(),
+                    supersampledPixels, 100.0 * supersampledPixels / argb.length, seconds );
+        }
+        catch ( IOException e ) {
+            result = "Cannot write " + file + ": " + e.getMessage();
+            System.out.println( result );
+        }
+        String message = result;
+        Platform.runLater( () -> {
+            if ( bufferSpec == spec && executor == null )
+                pixelWriter.setPixels( 0, 0, CANVAS_WIDTH, CANVAS_HEIGHT, PixelFormat.getIntArgbInstance(), argb, 0,
+                        CANVAS_WIDTH );
+            viewDescription.setText( message );
+            exportButton.setDisable( false );
+        } );
+    }
+
+    private void zoomBy( double factor ) {
+        finishScrolling();
+        zoomAround( ( CANVAS_WIDTH - 1 ) / 2.0, ( CANVAS_HEIGHT - 1 ) / 2.0, factor );
+    }
+
+    /**
+     * Zooms around the cursor by SCROLL_ZOOM_FACTOR per notch of the wheel, and by a fraction of that for the
+     * smaller steps of a trackpad. A wheel turned quickly, or a trackpad still scrolling by inertia, sends dozens of
+     * events a second, and snapshotting the canvas and starting a render for each of them would keep the
+     * application thread from drawing. So the first event of a gesture stops the render and takes a snapshot; every
+     * event then only scales that snapshot and works out the view it leads to, and the view is changed once the
+     * events have stopped for SCROLL_SETTLE_TIME. Events that do not scroll vertically are ignored.
+     */
+    private void scroll( double x, double y, double deltaY, double multiplierY ) {
+        if ( deltaY == 0 )
+            return;
+        double notches = deltaY / ( ( multiplierY > 0 ) ? multiplierY : PIXELS_PER_NOTCH );
+        double factor = Math.pow( SCROLL_ZOOM_FACTOR, notches );
+        if ( scrolledSpec == null ) {
+            if ( executor != null )
+                stopAnimation();
+            imageBeforeScrolling = canvas.snapshot( null, null );
+            scrolledSpec = renderSpec;
+            scrollScale = 1;
+            scrollOffsetX = 0;
+            scrollOffsetY = 0;
+        }
+        // A point p of the snapshot is shown at scrollOffset + scrollScale * p; zooming maps q to x + ( q - x ) * f.
+        scrolledSpec = scrolledSpec.zoomedAround( x, y, factor );
+        scrollScale *= factor;
+        scrollOffsetX = x + ( scrollOffsetX - x ) * factor;
+        scrollOffsetY = y + ( scrollOffsetY - y ) * factor;
+        fillDrawingArea();
+        drawingArea.drawImage( imageBeforeScrolling, scrollOffsetX, scrollOffsetY, CANVAS_WIDTH*scrollScale,
+                CANVAS_HEIGHT*scrollScale );
+        if ( scrollSettling == null ) {
+            scrollSettling = new PauseTransition( SCROLL_SETTLE_TIME );
+            scrollSettling.setOnFinished( event -> finishScrolling() );
+        }
+        scrollSettling.playFromStart();
+    }
+
+    /**
+     * Changes to the view that the scrolling so far has led to, if there is any. Also called before anything else
+     * changes the view, so that it starts from there.
+     */
+    private void finishScrolling() {
+        if ( scrolledSpec == null )
+            return;
+        scrollSettling.stop();
+        RenderSpec newSpec = scrolledSpec;
+        scrolledSpec = null;
+        imageBeforeScrolling = null;
+        changeView( newSpec );
+    }
+
+    /**
+     * Shows the current image scaled around the given point until the new one has been computed.
+     */
+    private void zoomAround( double x, double y, double factor ) {
+        WritableImage currentImage = canvas.snapshot( null, null );
+        fillDrawingArea();
+        drawingArea.drawImage( currentImage, x - x*factor, y - y*factor, CANVAS_WIDTH*factor, CANVAS_HEIGHT*factor );
+        changeView( renderSpec.zoomedAround( x, y, factor ) );
+    }
+
+    /**
+     * A press on its own changes nothing, so that a click does not disturb a render. The render is only stopped,
+     * and the image only taken, once the mouse has actually moved by a pixel.
+     */
+    private void startDragging( double x, double y ) {
+        finishScrolling();
+        imageBeforeViewChange = null;
+        renderStoppedByDrag = false;
+        dragStartX = x;
+        dragStartY = y;
+    }
+
+    /**
+     * Nothing is computed while the mouse is being dragged; the image is just moved along with it.
+     */
+    private void drag( double x, double y ) {
+        if ( imageBeforeViewChange == null ) {
+            if ( Math.round( x - dragStartX ) == 0 && Math.round( y - dragStartY ) == 0 )
+                return;
+            if ( executor != null ) {
+                stopAnimation();
+                renderStoppedByDrag = true;
+            }
+            imageBeforeViewChange = canvas.snapshot( null, null );
+        }
+        fillDrawingArea();
+        drawingArea.drawImage( imageBeforeViewChange, Math.round( x - dragStartX ), Math.round( y - dragStartY ) );
+    }
+
+    /**
+     * Pans the view by the distance dragged. If the mouse has come back to where it started, the view stays as it
+     * is, and only a render that the drag stopped is started again.
+     */
+    private void finishDragging( double x, double y ) {
+        if ( imageBeforeViewChange == null )
+            return;
+        int columns = ( int ) Math.round( dragStartX - x );
+        int rows = ( int ) Math.round( dragStartY - y );
+        imageBeforeViewChange = null;
+        if ( columns != 0 || rows != 0 || renderStoppedByDrag )
+            changeView( renderSpec.pannedBy( columns, rows ) );
+    }
+
+    /**
+     * Switches to a new view and starts computing it. The canvas is left as it is, so the caller can put a preview
+     * of the new view on it.
+     */
+    private void changeView( RenderSpec newSpec ) {
+        if ( executor != null )
+            stopAnimation();
+        boolean panned = newSpec.panOffsetFrom( renderSpec ) != null;
+        renderSpec = newSpec;
+        updateViewDescription();
+        if ( autoIterationsCheckBox.isSelected() && !panned )
+            chooseIterationLimitAndRender();
+        else
+            startRendering();
+    }
+
+    /**
+     * Probes the view in the common pool and renders it with the limit the probe chooses. A pan keeps the limit,
+     * since the depth stays the same, and that lets the incremental mode reuse the pixels still in view. If the
+     * view changes, or another probe is started, before the probe is done, its result is dropped.
+     */
+    private void chooseIterationLimitAndRender() {
+        RenderSpec spec = renderSpec;
+        FractalKernel probeKernel = kernel;
+        int myProbe = ++probeGeneration;
+        viewDescription.setText( "Choosing the iteration limit..." );
+        ForkJoinPool.commonPool().execute( () -> {
+            IterationLimitEstimator limits = IterationLimitEstimator.estimate( spec, probeKernel );
+            Platform.runLater( () -> {
+                if ( myProbe != probeGeneration || renderSpec != spec || executor != null )
+                    return;
+                iterationLimits = limits;
+                renderSpec = spec.withMaximumIterations( limits.getBaseLimit() );
+                updateViewDescription();
+                startRendering();
+            } );
+        } );
+    }
+
+    private void startOrStopAnimation() {
+        if ( scrolledSpec != null )
+            finishScrolling();  // That starts the render of the view scrolled to.
+        else if ( executor == null )
+            startAnimation();
+        else
+            stopAnimation();
+    }
+
+    private void startAnimation() {
+        if ( renderModeSelector.getSelectionModel().getSelectedIndex() == 4 && bufferSpec == renderSpec )
+            recolorCanvas();
+        else
+            fillDrawingArea();
+        if ( autoIterationsCheckBox.isSelected() && iterationLimits == null )
+            chooseIterationLimitAndRender();
+        else
+            startRendering();
+    }
+
+    /**
+     * Starts a new render generation with the selected render mode. This and stopAnimation are synchronized with
+     * taskFinished, so a task of the previous generation can never finish off the new one.
+     */
+    synchronized private void startRendering() {
+        renderGeneration++;
+        TaskEvents.generationChanged( renderGeneration, renderModeSelector.getValue() );
+        int renderMode = renderModeSelector.getSelectionModel().getSelectedIndex();
+        if ( renderMode == 1 && !kernel.isConnected() )
+            renderMode = 5;  // Subdivision would paint over the pieces of a set that is not connected.
+        if ( renderMode == 1 )
+            startSubdivisionRender();
+        else if ( renderMode == 2 )
+            startProgressiveRender();
+        else if ( renderMode == 3 )
+            startCachedTileRender();
+        else if ( renderMode == 4 )
+            startIncrementalRender();
+        else if ( renderMode == 5 )
+            startForkJoinTileRender();
+        else
+            startRowByRowRender();
+        if ( executor != null )
+            startOrStopButton.setText( "Stop" );
+    }
+
+    private void startRowByRowRender() {
+        clearIterationBuffer( renderSpec );
+        setupExecutor();
+        submitTasksToTheExecutor();
+        executor.shutdown();
+    }
+
+    /**
+     * The whole image is a single task, which forks its subtiles in the ForkJoinPool that runs it.
+     */
+    private void startSubdivisionRender() {
+        clearIterationBuffer( renderSpec );
+        executor = new ForkJoinPool( Runtime.getRuntime().availableProcessors() );
+        numberOfTasks = 1;
+        executor.execute( new SubdivisionTask( renderGeneration, renderSpec, false ) );
+    }
+
+    /**
+     * Like subdivision, except that every pixel is computed and the tiles are only there to spread the work.
+     */
+    private void startForkJoinTileRender() {
+        clearIterationBuffer( renderSpec );
+        executor = new ForkJoinPool( Runtime.getRuntime().availableProcessors() );
+        numberOfTasks = 1;
+        executor.execute( new SubdivisionTask( renderGeneration, renderSpec, true ) );
+    }
+
+    /**
+     * The tiles are queued by priority, so anything else given to this executor would upset its queue. The renderer
+     * is therefore set up in the common pool, which then queues the first pass of the tiles.
+     */
+    private void startProgressiveRender() {
+        clearIterationBuffer( renderSpec );
+        ThreadPoolExecutor progressiveExecutor =
+                ProgressiveRenderer.createExecutor( Runtime.getRuntime().availableProcessors() );
+        executor = progressiveExecutor;
+        numberOfTasks = 1;
+        ForkJoinPool.commonPool().execute(
+                new ProgressiveSetupTask( renderGeneration, progressiveExecutor, renderSpec ) );
+    }
+
+    /**
+     * Queues one task for every tile of the view. The tasks look their tiles up in the cache and only compute those
+     * that are missing. The lookups are not done here, on the JavaFX application thread, since a tile that has been
+     * spilled has to be read back from its file.
+     */
+    private void startCachedTileRender() {
+        TileGrid grid = new TileGrid( renderSpec.snappedToPixelGrid(), kernel );
+        clearIterationBuffer( grid.getViewSpec() );
+        setupExecutor();
+        numberOfTasks = grid.getTilesDown() * grid.getTilesAcross();
+        for ( int j = 0; j < grid.getTilesDown(); j++ )
+            for ( int i = 0; i < grid.getTilesAcross(); i++ )
+                executor.execute( new CachedTileTask( renderGeneration, grid, i, j ) );
+        executor.shutdown();
+    }
+
+    private void drawTile( TileGrid grid, int i, int j, TileCache.Tile tile ) {
+        int[] counts = tile.getCounts();
+        float[] smoothCounts = tile.getSmoothCounts();
+        int maximumIterations = grid.getViewSpec().getMaximumIterations();
+        for ( int v = 0; v < TileKey.TILE_SIZE; v++ )
+            for ( int u = 0; u < TileKey.TILE_SIZE; u++ ) {
+                int column = grid.viewColumnOf( i ) + u;
+                int row = grid.viewRowOf( j ) + v;
+                if ( column < 0 || column >= CANVAS_WIDTH || row < 0 || row >= CANVAS_HEIGHT )
+                    continue;
+                int index = v*TileKey.TILE_SIZE + u;
+                drawPixel( column, row, counts[ index ], smoothCounts[ index ], maximumIterations );
+            }
+    }
+
+    /**
+     * Brings the buffer up to date with the view, scrolling it if the view has only been panned, and queues one
+     * task for each run of pixels that still has to be computed.
+     */
+    private void startIncrementalRender() {
+        int[] panOffset = ( bufferSpec == null ) ? null : renderSpec.panOffsetFrom( bufferSpec );
+        if ( panOffset == null ) {
+            iterationBuffer.invalidateAll();
+            bufferRefinedLimit = renderSpec.getMaximumIterations();
+        }
+        else
+            iterationBuffer.scroll( panOffset[0], panOffset[1] );
+        bufferSpec = renderSpec;
+        ArrayList< int[] > invalidSegments = iterationBuffer.findInvalidRowSegments();
+        if ( invalidSegments.isEmpty() )
+            return;
+        setupExecutor();
+        numberOfTasks = invalidSegments.size();
+        for ( int[] segment : invalidSegments )
+            executor.execute( new RowSegmentTask( renderGeneration, renderSpec, segment[0], segment[1], segment[2] ) );
+        executor.shutdown();
+    }
+
+    private void focusOn( double x, double y ) {
+        ProgressiveRenderer currentProgressive = progressive;
+        if ( currentProgressive != null && executor != null )
+            currentProgressive.setFocus( x, y );
+    }
+
+    private void setupExecutor() {
+        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool( numberOfThreads );
+    }
+
+    private void submitTasksToTheExecutor() {
+        numberOfTasks = CANVAS_HEIGHT;
+        for ( int i = 0; i < numberOfTasks; i++ ) {
+            executor.execute( new MandelbrotTask( renderGeneration, renderSpec, i ) );
+            TaskEvents.submitted( POOL_NAME, i, renderGeneration );
+        }
+    }
+
+    synchronized private void stopAnimation() {
+        if ( subdivision != null )
+            subdivision.cancel();
+        if ( forkJoinTiles != null )
+            forkJoinTiles.cancel();
+        if ( progressive != null )
+            progressive.cancel();
+        renderGeneration++;
+        TaskEvents.generationChanged( renderGeneration, "Stopped" );
+        executor.shutdownNow();
+        executor = null;
+        startOrStopButton.setText( "Start" );
+    }
+
+    private void showMainWindow() {
+        mainWindow.setTitle( "Mandelbrot Explorer" );
+        mainWindow.show();
+    }
+
+    /**
+     * The renderer, and for deep views its reference orbit, is shared by all the rows of an image. The first task
+     * to need it creates it, the others wait for it.
+     */
+    private EscapeTimeRenderer getRenderer( RenderSpec spec ) {
+        return getRenderer( spec, kernel );
+    }
+
+    /**
+     * For tasks that have to use the kernel they were created for, rather than the one selected now.
+     */
+    private EscapeTimeRenderer getRenderer( RenderSpec spec, FractalKernel wantedKernel ) {
+        synchronized ( rendererLock ) {
+            if ( renderer == null || renderer.getSpec() != spec || rendererKernel != wantedKernel ) {
+                renderer = RenderEngine.createRenderer( spec, wantedKernel );
+                rendererKernel = wantedKernel;
+            }
+            return renderer;
+        }
+    }
+
+    private class MandelbrotTask implements Runnable {
+
+        private int rowNumber;
+        private RenderSpec spec;
+        private int myGeneration;
+
+        public MandelbrotTask( int generation, RenderSpec spec, int rowNumber ) {
+            myGeneration = generation;
+            this.spec = spec;
+            this.rowNumber = rowNumber;
+        }
+
+        public void run() {
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, rowNumber, myGeneration );
+            try {
+                if ( myGeneration == renderGeneration )
+                    processRow( getRenderer( spec ) );
+                else
+                    TaskEvents.cancelled( POOL_NAME, rowNumber, myGeneration, 1 );
+            }
+            finally {
+                TaskEvents.ended( end, POOL_NAME, rowNumber, myGeneration );
+                taskFinished( myGeneration );
+            }
+        }
+
+        /**
+         * The counts are kept rather than turned into colors here, so that the row can be recolored later.
+         */
+        private void processRow( EscapeTimeRenderer rowRenderer ) {
+            final int[] counts = new int[ CANVAS_WIDTH ];
+            final float[] smoothCounts = new float[ CANVAS_WIDTH ];
+            rowRenderer.iterationsOfRow( rowNumber, 0, CANVAS_WIDTH, counts, smoothCounts, 0 );
+            drawCurrentRowOntoTheCanvas( rowNumber, counts, smoothCounts );
+            cpuBudget.checkpoint();
+        }
+
+        private void drawCurrentRowOntoTheCanvas( int rowNumber, int[] counts, float[] smoothCounts ) {
+            Platform.runLater( () -> {
+                if ( myGeneration == renderGeneration )
+                    drawOneRowOfPixels( rowNumber, counts, smoothCounts );
+            } );
+        }
+
+        private void drawOneRowOfPixels( int rowNumber, int[] counts, float[] smoothCounts ) {
+            TaskEvents.FxFlush flush = TaskEvents.flushStarted();
+            for ( int column = 0; column < CANVAS_WIDTH; column++ )
+                drawPixel( column, rowNumber, counts[ column ], smoothCounts[ column ], spec.getMaximumIterations() );
+            TaskEvents.flushEnded( flush, POOL_NAME, rowNumber, CANVAS_WIDTH );
+        }
+    }
+
+    /**
+     * Renders the whole image with a MarianiSilverRenderer or, if allPixels is true, with a ForkJoinTileRenderer.
+     * Both report their tiles in the same way. Only the fork/join tiles have smooth counts, since subdivision fills
+     * in pixels it never iterates.
+     */
+    private class SubdivisionTask implements Runnable {
+
+        private RenderSpec spec;
+        private int myGeneration;
+        private int[] counts;
+        private float[] smoothCounts;  // only for fork/join tiles, which compute every pixel
+        private boolean allPixels;
+
+        SubdivisionTask( int generation, RenderSpec spec, boolean allPixels ) {
+            myGeneration = generation;
+            this.spec = spec;
+            this.allPixels = allPixels;
+            counts = new int[ spec.getWidth() * spec.getHeight() ];
+            if ( allPixels )
+                smoothCounts = new float[ counts.length ];
+        }
+
+        public void run() {
+            try {
+                if ( myGeneration != renderGeneration )
+                    return;
+                if ( allPixels )
+                    renderForkJoinTiles();
+                else
+                    renderSubdivision();
+            }
+            finally {
+                taskFinished( myGeneration );
+            }
+        }
+
+        private void renderSubdivision() {
+            MarianiSilverRenderer mySubdivision = new MarianiSilverRenderer( getRenderer( spec ), counts );
+            subdivision = mySubdivision;
+            if ( myGeneration == renderGeneration )
+                mySubdivision.render( this::drawTileOntoTheCanvas );
+        }
+
+        private void renderForkJoinTiles() {
+            ForkJoinTileRenderer myForkJoinTiles = new ForkJoinTileRenderer( getRenderer( spec ), counts,
+                    smoothCounts );
+            forkJoinTiles = myForkJoinTiles;
+            if ( myGeneration == renderGeneration )
+                myForkJoinTiles.render( this::drawTileOntoTheCanvas );
+        }
+
+        private void drawTileOntoTheCanvas( int x, int y, int width, int height ) {
+            Platform.runLater( () -> {
+                if ( myGeneration == renderGeneration )
+                    drawTile( x, y, width, height );
+            } );
+            cpuBudget.checkpoint();
+        }
+
+        private void drawTile( int x, int y, int width, int height ) {
+            int maximumIterations = spec.getMaximumIterations();
+            for ( int row = y; row < y + height; row++ )
+                for ( int column = x; column < x + width; column++ ) {
+                    int count = counts[ row*CANVAS_WIDTH + column ];
+                    float smoothCount = ( smoothCounts != null ) ? smoothCounts[ row*CANVAS_WIDTH + column ] : count;
+                    drawPixel( column, row, count, smoothCount, maximumIterations );
+                }
+        }
+    }
+
+    private class ProgressiveSetupTask implements Runnable {
+
+        private RenderSpec spec;
+        private int myGeneration;
+        private ThreadPoolExecutor myExecutor;
+        private int[] counts;
+
+        ProgressiveSetupTask( int generation, ThreadPoolExecutor executor, RenderSpec spec ) {
+            myGeneration = generation;
+            myExecutor = executor;
+            this.spec = spec;
+            counts = new int[ spec.getWidth() * spec.getHeight() ];
+        }
+
+        public void run() {
+            if ( myGeneration != renderGeneration )
+                return;
+            ProgressiveRenderer myProgressive =
+                    new ProgressiveRenderer( getRenderer( spec ), counts, this::drawBlocksOntoTheCanvas );
+            progressive = myProgressive;
+            try {
+                if ( myGeneration == renderGeneration )
+                    myProgressive.start( myExecutor, () -> taskFinished( myGeneration ) );
+            }
+            catch ( RejectedExecutionException e ) {
+                // The render was stopped while the first pass was being queued.
+            }
+        }
+
+        private void drawBlocksOntoTheCanvas( int x, int y, int width, int height, int step ) {
+            Platform.runLater( () -> {
+                if ( myGeneration == renderGeneration )
+                    drawBlocks( x, y, width, height, step );
+            } );
+            cpuBudget.checkpoint();
+        }
+
+        /**
+         * Only the samples themselves go into the buffer; the rest of each block is just a preview.
+         */
+        private void drawBlocks( int x, int y, int width, int height, int step ) {
+            int maximumIterations = spec.getMaximumIterations();
+            for ( int row = y; row < y + height; row += step )
+                for ( int column = x; column < x + width; column += step ) {
+                    int count = counts[ row*CANVAS_WIDTH + column ];
+                    drawPixel( column, row, count, count, maximumIterations );
+                    int color = colorizer.colorOf( count, count, maximumIterations );
+                    for ( int blockRow = row; blockRow < Math.min( row + step, y + height ); blockRow++ )
+                        for ( int blockColumn = column; blockColumn < Math.min( column + step, x + width );
+                              blockColumn++ )
+                            pixelWriter.setArgb( blockColumn, blockRow, color );
+                }
+        }
+    }
+
+    private class CachedTileTask implements Runnable {
+
+        private TileGrid grid;
+        private int i, j;
+        private int myGeneration;
+
+        CachedTileTask( int generation, TileGrid grid, int i, int j ) {
+            myGeneration = generation;
+            this.grid = grid;
+            this.i = i;
+            this.j = j;
+        }
+
+        public void run() {
+            try {
+                if ( myGeneration == renderGeneration )
+                    lookUpOrComputeTile();
+            }
+            finally {
+                taskFinished( myGeneration );
+            }
+        }
+
+        private void lookUpOrComputeTile() {
+            TileCache.Tile cachedTile = tileCache.get( grid.keyOf( i, j ) );
+            TileCache.Tile tile = ( cachedTile != null ) ? cachedTile
+                    : grid.computeTile( getRenderer( grid.getCoveringSpec(), grid.getKernel() ), i, j );
+            if ( cachedTile == null )
+                tileCache.put( grid.keyOf( i, j ), tile );
+            Platform.runLater( () -> {
+                if ( myGeneration == renderGeneration )
+                    drawTile( grid, i, j, tile );
+            } );
+            if ( cachedTile == null )
+                cpuBudget.checkpoint();
+        }
+    }
+
+    /**
+     * Computes the pixels of one row from firstColumn up to, but not including, endColumn. The counts are stored in
+     * the buffer on the JavaFX application thread, and only if the view has not changed in the meantime.
+     */
+    private class RowSegmentTask implements Runnable {
+
+        private RenderSpec spec;
+        private int row, firstColumn, endColumn;
+        private int myGeneration;
+
+        RowSegmentTask( int generation, RenderSpec spec, int row, int firstColumn, int endColumn ) {
+            myGeneration = generation;
+            this.spec = spec;
+            this.row = row;
+            this.firstColumn = firstColumn;
+            this.endColumn = endColumn;
+        }
+
+        public void run() {
+            try {
+                if ( myGeneration == renderGeneration )
+                    computeSegment();
+            }
+            finally {
+                taskFinished( myGeneration );
+            }
+        }
+
+        private void computeSegment() {
+            EscapeTimeRenderer segmentRenderer = getRenderer( spec );
+            int[] counts = new int[ endColumn - firstColumn ];
+            float[] smoothCounts = new float[ endColumn - firstColumn ];
+            segmentRenderer.iterationsOfRow( row, firstColumn, endColumn, counts, smoothCounts, 0 );
+            Platform.runLater( () -> {
+                if ( myGeneration == renderGeneration )
+                    storeAndDrawSegment( counts, smoothCounts );
+            } );
+            cpuBudget.checkpoint();
+        }
+
+        private void storeAndDrawSegment( int[] counts, float[] smoothCounts ) {
+            for ( int column = firstColumn; column < endColumn; column++ )
+                drawPixel( column, row, counts[ column - firstColumn ], smoothCounts[ column - firstColumn ],
+                        spec.getMaximumIterations() );
+        }
+    }
+
+    /**
+     * Iterates the pixels along the boundary of the finished image again, with the higher limits of automatic mode
+     * (see IterationLimitEstimator.refineBoundary), in the common pool. The pixels that escape now are stored in the
+     * buffer and the image is recolored, unless another render has started in the meantime.
+     */
+    private void startBoundaryPass( int generation ) {
+        RenderSpec spec = bufferSpec;
+        FractalKernel boundaryKernel = kernel;
+        IterationLimitEstimator limits = iterationLimits;
+        if ( spec.getMaximumIterations() != limits.getBaseLimit() )
+            return;
+        int[] counts = new int[ CANVAS_WIDTH * CANVAS_HEIGHT ];
+        float[] smoothCounts = new float[ counts.length ];
+        iterationBuffer.copyTo( counts, smoothCounts );
+        int[] refinedCounts = counts.clone();
+        viewDescription.setText( "Refining the boundary..." );
+        ForkJoinPool.commonPool().execute( () -> {
+            IterationLimitEstimator.Refinement refinement = IterationLimitEstimator.refineBoundary( spec,
+                    boundaryKernel, limits.getBaseLimit(), limits.getBoundaryLimit(), refinedCounts, smoothCounts,
+                    () -> generation != renderGeneration );
+            Platform.runLater( () -> {
+                if ( generation != renderGeneration || bufferSpec != spec )
+                    return;
+                for ( int i = 0; i < counts.length; i++ )
+                    if ( refinedCounts[i] != counts[i] )
+                        iterationBuffer.set( i % CANVAS_WIDTH, i / CANVAS_WIDTH, refinedCounts[i], smoothCounts[i] );
+                bufferRefinedLimit = Math.max( bufferRefinedLimit, refinement.getHighestLimit() );
+                recolorCanvas();
+                updateViewDescription();
+                viewDescription.setText( viewDescription.getText() + String.format( ", %d boundary pixels",
+                        refinement.getIteratedPixels() ) );
+            } );
+        } );
+    }
+
+    /**
+     * Called when a task of a render is done. When the last one is done, the executor is shut down so that its
+     * threads go away.
+     */
+    synchronized private void taskFinished( int generation ) {
+        if ( generation != renderGeneration )
+            return;  // The render this task belonged to has been stopped.
+        numberOfTasks--;
+        if ( numberOfTasks < 1 ) {
+            executor.shutdown();
+            Platform.runLater( () -> {
+                startOrStopButton.setText( "Start" );
+                if ( generation == renderGeneration && colorizer.getScheme() == Colorizer.Scheme.HISTOGRAM )
+                    recolorCanvas();
+                if ( generation == renderGeneration && iterationLimits != null )
+                    startBoundaryPass( generation );
+            } );
+            executor = null;
+        }
+    }
+}
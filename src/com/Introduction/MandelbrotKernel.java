@@ -0,0 +1,49 @@
+package com.Introduction;
+
+/**
+ * z = z^2 + c, with z starting at c: the loop of processCurrentColumn.
+ */
+public final class MandelbrotKernel implements FractalKernel {
+
+    public String getName() {
+        return "Mandelbrot";
+    }
+
+    public boolean isConnected() {
+        return true;
+    }
+
+    public int iterate( double x, double y, int maximumIterations, double[] escapePoint ) {
+        int count = 0;
+        double xx = x, yy = y;
+        while ( count < maximumIterations && ( xx*xx + yy*yy ) < 4 ) {
+            count++;
+            double newXX = xx*xx - yy*yy + x;
+            yy = 2*xx*yy + y;
+            xx = newXX;
+        }
+        if ( escapePoint != null && count < maximumIterations ) {
+            escapePoint[0] = xx;
+            escapePoint[1] = yy;
+            escapePoint[2] = x;
+            escapePoint[3] = y;
+        }
+        return count;
+    }
+
+    public double smoothIterationCount( int count, double[] escapePoint ) {
+        return RenderEngine.smoothIterationCount( count, escapePoint );
+    }
+
+    public void iterateRow( double[] xs, int firstColumn, int endColumn, double y, int maximumIterations,
+                            int[] counts, float[] smoothCounts, int offset ) {
+        double[] escapePoint = ( smoothCounts == null ) ? null : new double[ 4 ];
+        for ( int column = firstColumn; column < endColumn; column++ ) {
+            int index = offset + column - firstColumn;
+            counts[ index ] = iterate( xs[ column ], y, maximumIterations, escapePoint );
+            if ( smoothCounts != null )
+                smoothCounts[ index ] = ( counts[ index ] == maximumIterations ) ? maximumIterations
+                        : ( float ) smoothIterationCount( counts[ index ], escapePoint );
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.Introduction;
+
+/**
+ * Renders a view with the Mariani-Silver subdivision algorithm instead of computing every pixel on its own. The
+ * Mandelbrot set is connected, so if every pixel on the border of a rectangle has the same iteration count, so does
+ * every pixel inside it (up to features smaller than a pixel). The algorithm therefore computes only the borders of
+ * a tile. When the border is uniform, the interior is filled in without iterating a single pixel; otherwise the
+ * tile is split into four by computing a horizontal and a vertical line through its middle, and the four subtiles
+ * are processed in the same way. None of this holds for a set that is not connected (see
+ * FractalKernel.isConnected), which has to be rendered pixel by pixel.
+ *
+ * The subtiles are independent of each other, so they are forked as RecursiveActions on a ForkJoinPool. Work
+ * stealing keeps all the threads busy even though the amount of work per tile is completely unpredictable.
+ *
+ * Interior regions of the set, which are the most expensive pixels of all, are filled at no cost, and they come out
+ * exactly as a full render would compute them.
+ */
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MarianiSilverRenderer {
+
+    /**
+     * Told about every rectangle of the image whose pixels have all been written to the counts array.
+     */
+    public interface TileListener {
+        void tileFinished( int x, int y, int width, int height );
+    }
+
+    private static final int MINIMUM_TILE_SIZE = 6;
+
+    private final EscapeTimeRenderer renderer;
+    private final int[] counts;
+    private final int width;
+    private final int height;
+    private final LongAdder computedPixels = new LongAdder();
+    private volatile boolean cancelled;
+
+    /**
+     * The iteration count of the pixel at ( column, row ) will be stored in counts[ row*width + column ].
+     */
+    public MarianiSilverRenderer( EscapeTimeRenderer renderer, int[] counts ) {
+        this.renderer = renderer;
+        this.counts = counts;
+        this.width = renderer.getSpec().getWidth();
+        this.height = renderer.getSpec().getHeight();
+        if ( counts.length < width * height )
+            throw new IllegalArgumentException( "The counts array is too small for the view." );
+    }
+
+    /**
+     * Renders the whole view and returns when it is done. If this is called from a thread of a ForkJoinPool, the
+     * subtiles are forked in that pool, otherwise in the common pool.
+     */
+    public void render( TileListener listener ) {
+        RecursiveAction rootTask = new RecursiveAction() {
+            protected void compute() {
+                computeImageBorder();
+                if ( listener != null ) {
+                    listener.tileFinished( 0, 0, width, 1 );
+                    listener.tileFinished( 0, height - 1, width, 1 );
+                    listener.tileFinished( 0, 0, 1, height );
+                    listener.tileFinished( width - 1, 0, 1, height );
+                }
+                new TileTask( 0, 0, width - 1, height - 1, listener ).compute();
+            }
+        };
+        if ( ForkJoinTask.inForkJoinPool() )
+            rootTask.invoke();
+        else
+            ForkJoinPool.commonPool().invoke( rootTask );
+    }
+
+    /**
+     * Makes the tasks of a render that is in progress stop at the next tile boundary.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * The number of pixels that were actually iterated, as opposed to filled in.
+     */
+    public long getComputedPixels() {
+        return computedPixels.sum();
+    }
+
+    private void computeImageBorder() {
+        computeRow( 0, 0, width - 1 );
+        computeRow( height - 1, 0, width - 1 );
+        computeColumn( 0, 1, height - 2 );
+        computeColumn( width - 1, 1, height - 2 );
+    }
+
+    private void computeRow( int row, int fromColumn, int toColumn ) {
+        if ( fromColumn <= toColumn )
+            renderer.iterationsOfRow( row, fromColumn, toColumn + 1, counts, null, row*width + fromColumn );
+        computedPixels.add( Math.max( 0, toColumn - fromColumn + 1 ) );
+    }
+
+    private void computeColumn( int column, int fromRow, int toRow ) {
+        for ( int row = fromRow; row <= toRow; row++ )
+            counts[ row*width + column ] = renderer.iterationsAt( column, row );
+        computedPixels.add( Math.max( 0, toRow - fromRow + 1 ) );
+    }
+
+    /**
+     * A rectangle whose border, from ( left, top ) to ( right, bottom ) inclusive, has already been computed.
+     * The task is responsible for the pixels strictly inside that border.
+     */
+    private class TileTask extends RecursiveAction {
+
+        private final int left, top, right, bottom;
+        private final TileListener listener;
+
+        TileTask( int left, int top, int right, int bottom, TileListener listener ) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.listener = listener;
+        }
+
+        protected void compute() {
+            if ( cancelled || right - left < 2 || bottom - top < 2 )
+                return;
+            if ( borderIsUniform() )
+                fillInterior( counts[ top*width + left ] );
+            else if ( right - left <= MINIMUM_TILE_SIZE || bottom - top <= MINIMUM_TILE_SIZE )
+                computeInterior();
+            else {
+                splitIntoSubtiles();
+                return;
+            }
+            if ( listener != null )
+                listener.tileFinished( left + 1, top + 1, right - left - 1, bottom - top - 1 );
+        }
+
+        private boolean borderIsUniform() {
+            int count = counts[ top*width + left ];
+            for ( int column = left; column <= right; column++ )
+                if ( counts[ top*width + column ] != count || counts[ bottom*width + column ] != count )
+                    return false;
+            for ( int row = top + 1; row < bottom; row++ )
+                if ( counts[ row*width + left ] != count || counts[ row*width + right ] != count )
+                    return false;
+            return true;
+        }
+
+        private void fillInterior( int count ) {
+            for ( int row = top + 1; row < bottom; row++ )
+                for ( int column = left + 1; column < right; column++ )
+                    counts[ row*width + column ] = count;
+        }
+
+        private void computeInterior() {
+            for ( int row = top + 1; row < bottom; row++ )
+                computeRow( row, left + 1, right - 1 );
+        }
+
+        private void splitIntoSubtiles() {
+            int middleColumn = ( left + right ) / 2;
+            int middleRow = ( top + bottom ) / 2;
+            computeRow( middleRow, left + 1, right - 1 );
+            computeColumn( middleColumn, top + 1, middleRow - 1 );
+            computeColumn( middleColumn, middleRow + 1, bottom - 1 );
+            if ( listener != null ) {
+                listener.tileFinished( left + 1, middleRow, right - left - 1, 1 );
+                listener.tileFinished( middleColumn, top + 1, 1, bottom - top - 1 );
+            }
+            invokeAll( new TileTask( left, top, middleColumn, middleRow, listener ),
+                    new TileTask( middleColumn, top, right, middleRow, listener ),
+                    new TileTask( left, middleRow, middleColumn, bottom, listener ),
+                    new TileTask( middleColumn, middleRow, right, bottom, listener ) );
+        }
+    }
+}
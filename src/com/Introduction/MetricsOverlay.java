@@ -0,0 +1,41 @@
+package com.Introduction;
+
+/**
+ * A semi-transparent panel that shows the metrics of a pool on top of the picture, refreshed twice a second while
+ * it is visible. It is hidden at first; the programs show it with a "Show Metrics" check box.
+ */
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.control.Label;
+import javafx.util.Duration;
+
+public class MetricsOverlay extends Label {
+
+    private static final double REFRESH_INTERVAL = 500;  // milliseconds
+
+    private final PoolMetrics metrics;
+    private final Timeline refresher;
+
+    public MetricsOverlay( PoolMetrics metrics ) {
+        this.metrics = metrics;
+        setStyle( "-fx-font-family: monospace; -fx-text-fill: white; -fx-background-color: rgba(0, 0, 0, 0.6); "
+                + "-fx-padding: 6px" );
+        setMouseTransparent( true );
+        refresher = new Timeline( new KeyFrame( Duration.millis( REFRESH_INTERVAL ), event -> refresh() ) );
+        refresher.setCycleCount( Animation.INDEFINITE );
+        setVisible( false );
+        visibleProperty().addListener( ( property, wasVisible, isVisible ) -> {
+            if ( isVisible ) {
+                refresh();
+                refresher.play();
+            }
+            else
+                refresher.stop();
+        } );
+    }
+
+    private void refresh() {
+        setText( metrics.describe().trim() );
+    }
+}
@@ -0,0 +1,90 @@
+package com.Introduction;
+
+/**
+ * z = z^d + c for a whole number d of at least 2, with z starting at c. For d = 2 this is the Mandelbrot set;
+ * higher degrees give d - 1 fold symmetric sets. The power is computed by repeated complex multiplication, which
+ * is exact and, for small degrees, faster than going through polar coordinates.
+ */
+public final class MultibrotKernel implements FractalKernel {
+
+    private static final int EXTRA_ITERATIONS = 4;
+    private static final double LOG_2 = Math.log( 2 );
+
+    private final int degree;
+    private final double logOfDegree;
+
+    public MultibrotKernel( int degree ) {
+        if ( degree < 2 )
+            throw new IllegalArgumentException( "The degree has to be at least 2." );
+        this.degree = degree;
+        logOfDegree = Math.log( degree );
+    }
+
+    public String getName() {
+        return "Multibrot " + degree;
+    }
+
+    /**
+     * Every Multibrot set is connected, like the Mandelbrot set.
+     */
+    public boolean isConnected() {
+        return true;
+    }
+
+    public int iterate( double x, double y, int maximumIterations, double[] escapePoint ) {
+        int count = 0;
+        double xx = x, yy = y;
+        while ( count < maximumIterations && ( xx*xx + yy*yy ) < 4 ) {
+            count++;
+            double powerX = xx, powerY = yy;
+            for ( int i = 1; i < degree; i++ ) {
+                double newPowerX = powerX*xx - powerY*yy;
+                powerY = powerX*yy + powerY*xx;
+                powerX = newPowerX;
+            }
+            xx = powerX + x;
+            yy = powerY + y;
+        }
+        if ( escapePoint != null && count < maximumIterations ) {
+            escapePoint[0] = xx;
+            escapePoint[1] = yy;
+            escapePoint[2] = x;
+            escapePoint[3] = y;
+        }
+        return count;
+    }
+
+    /**
+     * Like RenderEngine.smoothIterationCount, except that |z| is raised to the power d at every step, so the
+     * outer logarithm is to base d: n + 1 - log_d( log2 |z| ).
+     */
+    public double smoothIterationCount( int count, double[] escapePoint ) {
+        double x = escapePoint[0], y = escapePoint[1];
+        if ( x*x + y*y < 4 )
+            return count;
+        for ( int step = 0; step < EXTRA_ITERATIONS; step++ ) {
+            double powerX = x, powerY = y;
+            for ( int i = 1; i < degree; i++ ) {
+                double newPowerX = powerX*x - powerY*y;
+                powerY = powerX*y + powerY*x;
+                powerX = newPowerX;
+            }
+            x = powerX + escapePoint[2];
+            y = powerY + escapePoint[3];
+        }
+        double logOfModulus = 0.5 * Math.log( x*x + y*y );
+        return count + EXTRA_ITERATIONS + 1 - Math.log( logOfModulus / LOG_2 ) / logOfDegree;
+    }
+
+    public void iterateRow( double[] xs, int firstColumn, int endColumn, double y, int maximumIterations,
+                            int[] counts, float[] smoothCounts, int offset ) {
+        double[] escapePoint = ( smoothCounts == null ) ? null : new double[ 4 ];
+        for ( int column = firstColumn; column < endColumn; column++ ) {
+            int index = offset + column - firstColumn;
+            counts[ index ] = iterate( xs[ column ], y, maximumIterations, escapePoint );
+            if ( smoothCounts != null )
+                smoothCounts[ index ] = ( counts[ index ] == maximumIterations ) ? maximumIterations
+                        : ( float ) smoothIterationCount( counts[ index ], escapePoint );
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.Introduction;
+
+/**
+ * Quicksort for int arrays of any size, on all cores. QuickSort.quickSort sorts one small static array and recurses
+ * on both partitions one after the other; here, as long as a slice is longer than the cutoff, the parts it is split
+ * into become RecursiveActions of their own, which the threads of the common ForkJoinPool share by work stealing. A
+ * slice no longer than the cutoff is sorted sequentially by the thread that has it, since below some size the cost
+ * of a task is no longer small compared to the sorting, and slices of at most INSERTION_SORT_THRESHOLD elements are
+ * finished with insertion sort, which is faster than partitioning for so few elements.
+ *
+ * Each slice is split around two pivots into three parts: the elements smaller than the first pivot, those between
+ * the pivots, and those larger than the second one, as in the dual-pivot quicksort of Arrays.sort. This does about
+ * as many comparisons as splitting around one pivot but moves fewer elements, and it makes the slices shrink faster.
+ * The pivots are the second and fourth of five elements spread evenly over the slice, which for long slices are each
+ * the median of three elements themselves, like Tukey's ninther. Sorted and reverse-sorted input, where the first
+ * element of QuickSort would be the worst possible pivot, thus split into three even parts.
+ *
+ * Equal keys are handled separately. If the two pivots are equal, the middle part consists of copies of the pivot
+ * only and is already in place, so that a slice with few distinct values is done after a pass or two instead of
+ * being split over and over. If the pivots differ but the middle part is large, the copies of the pivots are first
+ * moved to its ends, and only the rest of it is sorted further.
+ *
+ * However the pivots are chosen, some input makes them bad again and again, and a plain quicksort then needs time
+ * proportional to the square of the length and a stack as deep as the length. This is an introsort: every slice
+ * carries a limit on its depth, twice the logarithm of the length of the array, and a slice that reaches it is
+ * sorted with heapsort instead. That guarantees n log n time and a stack of logarithmic depth for any input.
+ *
+ * Each partitioning step is done by one thread, and the first one goes over the whole array before a second thread
+ * has anything to do. That part is not parallel, and it limits the speed-up on many cores; SortBenchmark measures
+ * how much, against Arrays.sort and Arrays.parallelSort.
+ */
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelQuickSort {
+
+    /**
+     * The cutoff used by sort( array ). A slice of 8K ints fits in the level 2 cache, takes about half a millisecond
+     * to sort, and makes the cost of its task negligible; much smaller cutoffs only add tasks, and much larger ones
+     * leave threads idle at the end. SortBenchmark tries other cutoffs as well.
+     */
+    public static final int DEFAULT_CUTOFF = 1 << 13;
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+    private static final int NINTHER_THRESHOLD = 1024;
+
+    /**
+     * Sorts the whole array into ascending order.
+     */
+    public static void sort( int[] array ) {
+        sort( array, 0, array.length, DEFAULT_CUTOFF );
+    }
+
+    /**
+     * Sorts the elements from fromIndex up to, but not including, toIndex. Slices longer than cutoff elements are
+     * sorted in parallel; if the whole range is no longer than that, it is sorted on the calling thread.
+     */
+    public static void sort( int[] array, int fromIndex, int toIndex, int cutoff ) {
+        if ( fromIndex > toIndex )
+            throw new IllegalArgumentException( "fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")" );
+        if ( fromIndex < 0 || toIndex > array.length )
+            throw new ArrayIndexOutOfBoundsException( "Range [" + fromIndex + ", " + toIndex
+                    + ") out of bounds for length " + array.length );
+        if ( cutoff < 1 )
+            throw new IllegalArgumentException( "The cutoff has to be positive." );
+        int depthLimit = depthLimit( toIndex - fromIndex );
+        if ( toIndex - fromIndex <= cutoff )
+            introSort( array, fromIndex, toIndex - 1, depthLimit, new int[ 4 ] );
+        else
+            ForkJoinPool.commonPool().invoke( new SortTask( array, fromIndex, toIndex - 1, cutoff, depthLimit ) );
+    }
+
+    /**
+     * Twice the base 2 logarithm of the length: the depth of the splits at which a slice is given to heapsort.
+     */
+    private static int depthLimit( int length ) {
+        return 2 * ( 31 - Integer.numberOfLeadingZeros( Math.max( 1, length ) ) );
+    }
+
+    /**
+     * Sorts the elements from startPosition to endPosition, both included, on the calling thread, switching to
+     * heapsort after depthLimit more levels of splits. The parts bounds[0] to bounds[1] and bounds[2] to bounds[3]
+     * left by a split are sorted by recursion, and the last part by the loop.
+     */
+    private static void introSort( int[] array, int startPosition, int endPosition, int depthLimit, int[] bounds ) {
+        while ( endPosition - startPosition >= INSERTION_SORT_THRESHOLD ) {
+            if ( depthLimit == 0 ) {
+                heapSort( array, startPosition, endPosition );
+                return;
+            }
+            depthLimit--;
+            partition( array, startPosition, endPosition, bounds );
+            int middleStart = bounds[1], middleEnd = bounds[2], rightStart = bounds[3];
+            introSort( array, startPosition, bounds[0], depthLimit, bounds );
+            introSort( array, middleStart, middleEnd, depthLimit, bounds );
+            startPosition = rightStart;
+        }
+        insertionSort( array, startPosition, endPosition );
+    }
+
+    /**
+     * Splits the elements from startPosition to endPosition, both included, which have to be at least
+     * INSERTION_SORT_THRESHOLD, around two pivots. Afterwards the elements up to bounds[0] are smaller than the first
+     * pivot, the elements from bounds[3] on are larger than the second, and those from bounds[1] to bounds[2] lie
+     * between the two and still have to be sorted; the others are copies of a pivot and are already in place. A
+     * part that is empty has an end before its start.
+     */
+    private static void partition( int[] array, int startPosition, int endPosition, int[] bounds ) {
+        int length = endPosition - startPosition + 1;
+        int seventh = ( length >> 3 ) + ( length >> 6 ) + 1;
+        int e3 = ( startPosition + endPosition ) >>> 1;
+        int e2 = e3 - seventh, e1 = e2 - seventh, e4 = e3 + seventh, e5 = e4 + seventh;
+        if ( length > NINTHER_THRESHOLD ) {
+            int spread = length >> 5;
+            medianOfThree( array, e1 - spread, e1, e1 + spread );
+            medianOfThree( array, e2 - spread, e2, e2 + spread );
+            medianOfThree( array, e3 - spread, e3, e3 + spread );
+            medianOfThree( array, e4 - spread, e4, e4 + spread );
+            medianOfThree( array, e5 - spread, e5, e5 + spread );
+        }
+        // Sorts the five elements with a network of nine compare-and-swaps.
+        sortTwo( array, e1, e2 );
+        sortTwo( array, e4, e5 );
+        sortTwo( array, e1, e3 );
+        sortTwo( array, e2, e3 );
+        sortTwo( array, e1, e4 );
+        sortTwo( array, e3, e4 );
+        sortTwo( array, e2, e5 );
+        sortTwo( array, e2, e3 );
+        sortTwo( array, e4, e5 );
+        int pivot1 = array[ e2 ], pivot2 = array[ e4 ];
+        swap( array, e2, startPosition );
+        swap( array, e4, endPosition );
+
+        // Everything before less is smaller than pivot1 and everything after great larger than pivot2; the elements
+        // from less up to k lie between the pivots. The pivots themselves wait at the ends of the slice.
+        int less = startPosition + 1, great = endPosition - 1;
+        for ( int k = less; k <= great; k++ ) {
+            int element = array[ k ];
+            if ( element < pivot1 ) {
+                swap( array, k, less );
+                less++;
+            }
+            else if ( element > pivot2 ) {
+                while ( k < great && array[ great ] > pivot2 )
+                    great--;
+                swap( array, k, great );
+                great--;
+                if ( array[ k ] < pivot1 ) {
+                    swap( array, k, less );
+                    less++;
+                }
+            }
+        }
+        less--;
+        great++;
+        swap( array, startPosition, less );
+        swap( array, endPosition, great );
+        bounds[0] = less - 1;
+        bounds[3] = great + 1;
+
+        int middleStart = less + 1, middleEnd = great - 1;
+        if ( pivot1 == pivot2 ) {
+            // Everything between the pivots is equal to them.
+            middleEnd = middleStart - 1;
+        }
+        else if ( middleEnd - middleStart > length / 2 ) {
+            // Moves the copies of pivot1 to the start of the middle part and those of pivot2 to its end, where the
+            // pivots themselves stop the scans.
+            while ( array[ middleStart ] == pivot1 )
+                middleStart++;
+            while ( array[ middleEnd ] == pivot2 )
+                middleEnd--;
+            for ( int k = middleStart; k <= middleEnd; k++ ) {
+                int element = array[ k ];
+                if ( element == pivot1 ) {
+                    swap( array, k, middleStart );
+                    middleStart++;
+                }
+                else if ( element == pivot2 ) {
+                    while ( k < middleEnd && array[ middleEnd ] == pivot2 )
+                        middleEnd--;
+                    swap( array, k, middleEnd );
+                    middleEnd--;
+                    if ( array[ k ] == pivot1 ) {
+                        swap( array, k, middleStart );
+                        middleStart++;
+                    }
+                }
+            }
+        }
+        bounds[1] = middleStart;
+        bounds[2] = middleEnd;
+    }
+
+    /**
+     * Puts the median of the three elements at position j.
+     */
+    private static void medianOfThree( int[] array, int i, int j, int k ) {
+        if ( array[ j ] < array[ i ] )
+            swap( array, i, j );
+        if ( array[ k ] < array[ j ] ) {
+            swap( array, j, k );
+            if ( array[ j ] < array[ i ] )
+                swap( array, i, j );
+        }
+    }
+
+    /**
+     * Swaps the elements at positions i < j if they are out of order.
+     */
+    private static void sortTwo( int[] array, int i, int j ) {
+        if ( array[ j ] < array[ i ] )
+            swap( array, i, j );
+    }
+
+    private static void heapSort( int[] array, int startPosition, int endPosition ) {
+        int length = endPosition - startPosition + 1;
+        for ( int i = length / 2 - 1; i >= 0; i-- )
+            siftDown( array, startPosition, i, length );
+        for ( int heapLength = length - 1; heapLength > 0; heapLength-- ) {
+            swap( array, startPosition, startPosition + heapLength );
+            siftDown( array, startPosition, 0, heapLength );
+        }
+    }
+
+    /**
+     * Lets the element at index i of the heap that starts at startPosition and has heapLength elements sink until
+     * neither of its children is larger.
+     */
+    private static void siftDown( int[] array, int startPosition, int i, int heapLength ) {
+        int element = array[ startPosition + i ];
+        while ( true ) {
+            int child = 2*i + 1;
+            if ( child >= heapLength )
+                break;
+            if ( child + 1 < heapLength && array[ startPosition + child + 1 ] > array[ startPosition + child ] )
+                child++;
+            if ( array[ startPosition + child ] <= element )
+                break;
+            array[ startPosition + i ] = array[ startPosition + child ];
+            i = child;
+        }
+        array[ startPosition + i ] = element;
+    }
+
+    private static void insertionSort( int[] array, int startPosition, int endPosition ) {
+        for ( int i = startPosition + 1; i <= endPosition; i++ ) {
+            int element = array[ i ];
+            int j = i - 1;
+            while ( j >= startPosition && array[ j ] > element ) {
+                array[ j + 1 ] = array[ j ];
+                j--;
+            }
+            array[ j + 1 ] = element;
+        }
+    }
+
+    private static void swap( int[] array, int i, int j ) {
+        int temporary = array[ i ];
+        array[ i ] = array[ j ];
+        array[ j ] = temporary;
+    }
+
+    private static class SortTask extends RecursiveAction {
+
+        private final int[] array;
+        private final int startPosition, endPosition;
+        private final int cutoff;
+        private final int depthLimit;
+
+        SortTask( int[] array, int startPosition, int endPosition, int cutoff, int depthLimit ) {
+            this.array = array;
+            this.startPosition = startPosition;
+            this.endPosition = endPosition;
+            this.cutoff = cutoff;
+            this.depthLimit = depthLimit;
+        }
+
+        protected void compute() {
+            if ( endPosition - startPosition < Math.max( cutoff, INSERTION_SORT_THRESHOLD ) || depthLimit == 0 ) {
+                introSort( array, startPosition, endPosition, depthLimit, new int[ 4 ] );
+                return;
+            }
+            int[] bounds = new int[ 4 ];
+            partition( array, startPosition, endPosition, bounds );
+            SortTask left = new SortTask( array, startPosition, bounds[0], cutoff, depthLimit - 1 );
+            SortTask right = new SortTask( array, bounds[3], endPosition, cutoff, depthLimit - 1 );
+            if ( bounds[2] < bounds[1] )
+                invokeAll( left, right );
+            else
+                invokeAll( left, new SortTask( array, bounds[1], bounds[2], cutoff, depthLimit - 1 ), right );
+        }
+    }
+}
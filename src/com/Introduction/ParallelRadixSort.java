@@ -0,0 +1,236 @@
+package com.Introduction;
+
+/**
+ * Least significant digit radix sort for int and long arrays, on all cores. A comparison sort such as
+ * ParallelQuickSort needs about n log n comparisons, and the branches on their outcome are unpredictable for random
+ * keys; a radix sort never compares keys at all. It sorts by one digit of the keys at a time, starting with the
+ * lowest, and each pass moves every key once to the place that its digit and the keys before it give it. As every
+ * pass keeps the order of the previous one among keys with the same digit, the keys are sorted after the pass over
+ * the highest digit. The time is proportional to n times the number of passes, whatever the keys are.
+ *
+ * Ints are sorted by 8-bit digits in 4 passes, longs by 11-bit digits in 6 passes. Larger digits mean fewer passes
+ * but more buckets, and the counters and buffers of all buckets have to stay in the cache of a core for a pass to be
+ * fast: 256 buckets of ints fit in the level 1 cache, 2048 buckets of longs in the level 2 cache. Both numbers of
+ * passes are even, so that after swapping the array and the scratch array after each pass, the keys end in the
+ * array they came from. The sign bit is flipped before the digits are taken, so that negative keys come before
+ * positive ones; without that the highest digit of a negative key is the largest one.
+ *
+ * Each pass works on as many blocks of the array as there are threads:
+ *
+ *   - Every block counts how many of its keys have each digit, into a histogram of its own, so that no thread
+ *     writes to the counters of another.
+ *   - The histograms are combined with a parallel prefix sum (Arrays.parallelPrefix) over all counters, taken bucket
+ *     by bucket and, within a bucket, block by block. That gives every block its own range of places for every
+ *     digit, after those of the smaller digits and of the earlier blocks with the same digit, which keeps the sort
+ *     stable. If all keys have the same digit, as happens for the high digits of small keys, the pass is skipped.
+ *   - Every block moves its keys to the places of their digits in the scratch array, which the next pass sorts back
+ *     into the other array, and so on.
+ *
+ * That last step writes to 256 or 2048 places in the array at once, far apart, which defeats the caches and the
+ * translation lookaside buffer. The keys therefore go through write-combining buffers: a buffer of one 64-byte
+ * cache line per bucket, which is copied to the array in one piece when it is full. The array is then written a
+ * cache line at a time, and only the small buffers are written key by key. Java cannot align the buffers to cache
+ * lines or write past the cache, as a write-combining buffer in C would, but the copies of whole lines already give
+ * most of the gain.
+ *
+ * Arrays of at most COMPARISON_SORT_THRESHOLD keys are sorted with Arrays.sort, as the counters of a radix sort cost
+ * more than sorting so few keys. SortBenchmark compares this sort with the quicksorts.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+public class ParallelRadixSort {
+
+    private static final int COMPARISON_SORT_THRESHOLD = 1 << 10;
+    private static final int MINIMUM_BLOCK_LENGTH = 1 << 16;
+
+    private static final int INT_DIGIT_BITS = 8;
+    private static final int INT_BUFFER_LENGTH = 16;  // ints in a 64-byte cache line
+    private static final int LONG_DIGIT_BITS = 11;
+    private static final int LONG_BUFFER_LENGTH = 8;  // longs in a 64-byte cache line
+
+    /**
+     * Sorts the array into ascending order. Allocates a scratch array of the same length.
+     */
+    public static void sort( int[] array ) {
+        int length = array.length;
+        if ( length <= COMPARISON_SORT_THRESHOLD ) {
+            Arrays.sort( array );
+            return;
+        }
+        int numberOfBlocks = numberOfBlocks( length );
+        int numberOfBuckets = 1 << INT_DIGIT_BITS;
+        int[] source = array;
+        int[] destination = new int[ length ];
+        for ( int shift = 0; shift < Integer.SIZE; shift += INT_DIGIT_BITS ) {
+            int[] from = source, to = destination;
+            int digitShift = shift;
+            int[][] counts = new int[ numberOfBlocks ][ numberOfBuckets ];
+            forEachBlock( numberOfBlocks, block -> {
+                int[] count = counts[ block ];
+                for ( int i = blockStart( block, numberOfBlocks, length );
+                      i < blockStart( block + 1, numberOfBlocks, length ); i++ )
+                    count[ intDigit( from[ i ], digitShift ) ]++;
+            } );
+            int[][] starts = startsOf( counts, length );
+            if ( starts == null )
+                continue;
+            forEachBlock( numberOfBlocks, block -> scatter( from, to, digitShift, starts[ block ],
+                    blockStart( block, numberOfBlocks, length ), blockStart( block + 1, numberOfBlocks, length ) ) );
+            source = to;
+            destination = from;
+        }
+        if ( source != array )
+            System.arraycopy( source, 0, array, 0, length );
+    }
+
+    /**
+     * Sorts the array into ascending order. Allocates a scratch array of the same length.
+     */
+    public static void sort( long[] array ) {
+        int length = array.length;
+        if ( length <= COMPARISON_SORT_THRESHOLD ) {
+            Arrays.sort( array );
+            return;
+        }
+        int numberOfBlocks = numberOfBlocks( length );
+        int numberOfBuckets = 1 << LONG_DIGIT_BITS;
+        long[] source = array;
+        long[] destination = new long[ length ];
+        for ( int shift = 0; shift < Long.SIZE; shift += LONG_DIGIT_BITS ) {
+            long[] from = source, to = destination;
+            int digitShift = shift;
+            int[][] counts = new int[ numberOfBlocks ][ numberOfBuckets ];
+            forEachBlock( numberOfBlocks, block -> {
+                int[] count = counts[ block ];
+                for ( int i = blockStart( block, numberOfBlocks, length );
+                      i < blockStart( block + 1, numberOfBlocks, length ); i++ )
+                    count[ longDigit( from[ i ], digitShift ) ]++;
+            } );
+            int[][] starts = startsOf( counts, length );
+            if ( starts == null )
+                continue;
+            forEachBlock( numberOfBlocks, block -> scatter( from, to, digitShift, starts[ block ],
+                    blockStart( block, numberOfBlocks, length ), blockStart( block + 1, numberOfBlocks, length ) ) );
+            source = to;
+            destination = from;
+        }
+        if ( source != array )
+            System.arraycopy( source, 0, array, 0, length );
+    }
+
+    private static int intDigit( int key, int shift ) {
+        return ( ( key ^ Integer.MIN_VALUE ) >>> shift ) & ( ( 1 << INT_DIGIT_BITS ) - 1 );
+    }
+
+    private static int longDigit( long key, int shift ) {
+        return ( int ) ( ( key ^ Long.MIN_VALUE ) >>> shift ) & ( ( 1 << LONG_DIGIT_BITS ) - 1 );
+    }
+
+    /**
+     * One block per thread, but no blocks so short that counting their digits costs less than a task.
+     */
+    private static int numberOfBlocks( int length ) {
+        return Math.max( 1, Math.min( ForkJoinPool.getCommonPoolParallelism(), length / MINIMUM_BLOCK_LENGTH ) );
+    }
+
+    private static int blockStart( int block, int numberOfBlocks, int length ) {
+        return ( int ) ( ( long ) block * length / numberOfBlocks );
+    }
+
+    /**
+     * Runs the action for every block as a task of its own in the common pool and waits for all of them, which also
+     * makes everything the tasks wrote visible to the caller.
+     */
+    private static void forEachBlock( int numberOfBlocks, IntConsumer action ) {
+        ArrayList< RecursiveAction > tasks = new ArrayList<>();
+        for ( int block = 0; block < numberOfBlocks; block++ ) {
+            int blockNumber = block;
+            tasks.add( new RecursiveAction() {
+                protected void compute() {
+                    action.accept( blockNumber );
+                }
+            } );
+        }
+        ForkJoinTask.invokeAll( tasks );
+    }
+
+    /**
+     * Turns the histograms of the blocks into the place where each block puts its first key with each digit, or
+     * returns null if all keys have the same digit. The counters are laid out bucket by bucket, and block by block
+     * within a bucket, so that a prefix sum over them gives, for every counter, the number of keys that go before
+     * those it counts plus the number it counts itself.
+     */
+    private static int[][] startsOf( int[][] counts, int length ) {
+        int numberOfBlocks = counts.length;
+        int numberOfBuckets = counts[0].length;
+        int[] sums = new int[ numberOfBuckets * numberOfBlocks ];
+        for ( int bucket = 0; bucket < numberOfBuckets; bucket++ ) {
+            int total = 0;
+            for ( int block = 0; block < numberOfBlocks; block++ ) {
+                sums[ bucket*numberOfBlocks + block ] = counts[ block ][ bucket ];
+                total += counts[ block ][ bucket ];
+            }
+            if ( total == length )
+                return null;
+        }
+        Arrays.parallelPrefix( sums, Integer::sum );
+        int[][] starts = new int[ numberOfBlocks ][ numberOfBuckets ];
+        for ( int block = 0; block < numberOfBlocks; block++ )
+            for ( int bucket = 0; bucket < numberOfBuckets; bucket++ )
+                starts[ block ][ bucket ] = sums[ bucket*numberOfBlocks + block ] - counts[ block ][ bucket ];
+        return starts;
+    }
+
+    /**
+     * Moves the keys of one block from source to the places in destination that starts gives for their digits,
+     * through a write-combining buffer per digit.
+     */
+    private static void scatter( int[] source, int[] destination, int shift, int[] starts, int firstIndex,
+                                 int endIndex ) {
+        int numberOfBuckets = starts.length;
+        int[] next = starts.clone();
+        int[] buffers = new int[ numberOfBuckets * INT_BUFFER_LENGTH ];
+        int[] buffered = new int[ numberOfBuckets ];
+        for ( int i = firstIndex; i < endIndex; i++ ) {
+            int key = source[ i ];
+            int digit = intDigit( key, shift );
+            int inBuffer = buffered[ digit ];
+            buffers[ digit*INT_BUFFER_LENGTH + inBuffer ] = key;
+            if ( ++inBuffer == INT_BUFFER_LENGTH ) {
+                System.arraycopy( buffers, digit*INT_BUFFER_LENGTH, destination, next[ digit ], INT_BUFFER_LENGTH );
+                next[ digit ] += INT_BUFFER_LENGTH;
+                inBuffer = 0;
+            }
+            buffered[ digit ] = inBuffer;
+        }
+        for ( int digit = 0; digit < numberOfBuckets; digit++ )
+            System.arraycopy( buffers, digit*INT_BUFFER_LENGTH, destination, next[ digit ], buffered[ digit ] );
+    }
+
+    private static void scatter( long[] source, long[] destination, int shift, int[] starts, int firstIndex,
+                                 int endIndex ) {
+        int numberOfBuckets = starts.length;
+        int[] next = starts.clone();
+        long[] buffers = new long[ numberOfBuckets * LONG_BUFFER_LENGTH ];
+        int[] buffered = new int[ numberOfBuckets ];
+        for ( int i = firstIndex; i < endIndex; i++ ) {
+            long key = source[ i ];
+            int digit = longDigit( key, shift );
+            int inBuffer = buffered[ digit ];
+            buffers[ digit*LONG_BUFFER_LENGTH + inBuffer ] = key;
+            if ( ++inBuffer == LONG_BUFFER_LENGTH ) {
+                System.arraycopy( buffers, digit*LONG_BUFFER_LENGTH, destination, next[ digit ], LONG_BUFFER_LENGTH );
+                next[ digit ] += LONG_BUFFER_LENGTH;
+                inBuffer = 0;
+            }
+            buffered[ digit ] = inBuffer;
+        }
+        for ( int digit = 0; digit < numberOfBuckets; digit++ )
+            System.arraycopy( buffers, digit*LONG_BUFFER_LENGTH, destination, next[ digit ], buffered[ digit ] );
+    }
+}
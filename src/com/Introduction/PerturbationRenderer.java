@@ -0,0 +1,233 @@
+package com.Introduction;
+
+/**
+ * Computes iteration counts for views that are far too deep for double precision. One reference orbit is computed
+ * with BigDecimal arithmetic at the centre of the view. Every pixel is then iterated as a double precision
+ * difference, delta, from that reference:
+ *
+ *      delta(n+1) = 2*Z(n)*delta(n) + delta(n)*delta(n) + deltaC
+ *
+ * Since delta and deltaC are tiny numbers that a double holds without trouble, this works at zoom depths of
+ * 1e-100 and beyond while costing about as much as an ordinary double precision iteration.
+ *
+ * Two refinements make it practical:
+ *
+ * Series approximation. For the first iterations delta is well approximated by the cubic A*deltaC + B*deltaC^2
+ * + C*deltaC^3, whose coefficients only depend on the reference. Those iterations are skipped for every pixel.
+ *
+ * Glitch detection. When a pixel's orbit comes much closer to zero than the reference does, the double precision
+ * difference loses all its significant digits. Such pixels are detected and re-iterated against a secondary
+ * reference computed close to them.
+ */
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class PerturbationRenderer implements EscapeTimeRenderer {
+
+    private static final int GLITCHED = -1;
+    private static final double GLITCH_TOLERANCE = 1e-6;
+    private static final double SERIES_TOLERANCE = 1e-9;
+    private static final int MAXIMUM_SECONDARY_REFERENCES = 100;
+
+    private final RenderSpec spec;
+    private final double centerX;
+    private final double centerY;
+    private final ReferenceOrbit primaryReference;
+    private final CopyOnWriteArrayList< ReferenceOrbit > secondaryReferences = new CopyOnWriteArrayList<>();
+
+    private int skippedIterations;
+    private double ar, ai, br, bi, cr, ci;
+
+    /**
+     * Computes the reference orbit and the series approximation for the given view. This takes a while for deep
+     * views, so it should not be done on the JavaFX application thread.
+     */
+    public PerturbationRenderer( RenderSpec spec ) {
+        this.spec = spec;
+        centerX = spec.getCenterX().doubleValue();
+        centerY = spec.getCenterY().doubleValue();
+        primaryReference = ReferenceOrbit.compute( spec, 0, 0 );
+        computeSeriesApproximation();
+    }
+
+    public RenderSpec getSpec() {
+        return spec;
+    }
+
+    public int getSkippedIterations() {
+        return skippedIterations;
+    }
+
+    public int getNumberOfSecondaryReferences() {
+        return secondaryReferences.size();
+    }
+
+    /**
+     * Advances the coefficients of delta(n) = A*deltaC + B*deltaC^2 + C*deltaC^3 along the reference orbit for as
+     * long as the cubic term stays negligible for every pixel of the view.
+     */
+    private void computeSeriesApproximation() {
+        double radius = spec.getRadius();
+        int lastUsableIteration = Math.min( primaryReference.getLength() - 2, spec.getMaximumIterations() - 1 );
+        for ( int n = 0; n < lastUsableIteration; n++ ) {
+            double zr = primaryReference.realPartAt( n );
+            double zi = primaryReference.imaginaryPartAt( n );
+
+            double nextAr = 2*( zr*ar - zi*ai ) + 1;
+            double nextAi = 2*( zr*ai + zi*ar );
+            double nextBr = 2*( zr*br - zi*bi ) + ar*ar - ai*ai;
+            double nextBi = 2*( zr*bi + zi*br ) + 2*ar*ai;
+            double nextCr = 2*( zr*cr - zi*ci ) + 2*( ar*br - ai*bi );
+            double nextCi = 2*( zr*ci + zi*cr ) + 2*( ar*bi + ai*br );
+
+            if ( !approximationIsAccurate( nextAr, nextAi, nextBr, nextBi, nextCr, nextCi, radius ) )
+                return;
+
+            ar = nextAr; ai = nextAi;
+            br = nextBr; bi = nextBi;
+            cr = nextCr; ci = nextCi;
+            skippedIterations = n + 1;
+        }
+    }
+
+    /**
+     * The first term left out of the series is roughly C*C/B times deltaC^4. The approximation is accepted while
+     * that error is a small fraction of the distance between neighbouring pixels after n iterations, A*spacing.
+     */
+    private boolean approximationIsAccurate( double ar, double ai, double br, double bi, double cr, double ci,
+                                             double radius ) {
+        double a = Math.hypot( ar, ai );
+        double b = Math.hypot( br, bi ) * radius * radius;
+        double c = Math.hypot( cr, ci ) * radius * radius * radius;
+        double omittedTerm = ( b == 0 ) ? c : c * c / b;
+        if ( Double.isNaN( a + b + omittedTerm ) || Double.isInfinite( a + b + omittedTerm ) )
+            return false;
+        return omittedTerm < SERIES_TOLERANCE * a * spec.getPixelSpacing() && a * radius < 1;
+    }
+
+    public int iterationsAt( double column, double row ) {
+        return countIterations( column, row, null );
+    }
+
+    public int iterationsAt( double column, double row, float[] smoothCounts, int index ) {
+        double[] escapePoint = new double[ 4 ];
+        int count = countIterations( column, row, escapePoint );
+        smoothCounts[ index ] = ( float ) RenderEngine.smoothIterationCount( count, escapePoint );
+        return count;
+    }
+
+    /**
+     * Returns the iteration count. If escapePoint is not null and the orbit escapes, the last z and c are stored
+     * in it, in double precision.
+     */
+    private int countIterations( double column, double row, double[] escapePoint ) {
+        double xOffset = spec.xOffsetOf( column );
+        double yOffset = spec.yOffsetOf( row );
+        int count = iterateWithSeriesApproximation( xOffset, yOffset, escapePoint );
+        if ( count != GLITCHED )
+            return count;
+        return iterateWithSecondaryReference( xOffset, yOffset, escapePoint );
+    }
+
+    private int iterateWithSeriesApproximation( double dcx, double dcy, double[] escapePoint ) {
+        if ( skippedIterations == 0 )
+            return iterate( primaryReference, 0, 0, 0, dcx, dcy, true, escapePoint );
+
+        double dcxSquared = dcx*dcx - dcy*dcy;
+        double dcySquared = 2*dcx*dcy;
+        double dcxCubed = dcxSquared*dcx - dcySquared*dcy;
+        double dcyCubed = dcxSquared*dcy + dcySquared*dcx;
+        double dr = ar*dcx - ai*dcy + br*dcxSquared - bi*dcySquared + cr*dcxCubed - ci*dcyCubed;
+        double di = ar*dcy + ai*dcx + br*dcySquared + bi*dcxSquared + cr*dcyCubed + ci*dcxCubed;
+        return iterate( primaryReference, skippedIterations, dr, di, dcx, dcy, true, escapePoint );
+    }
+
+    private int iterateWithSecondaryReference( double xOffset, double yOffset, double[] escapePoint ) {
+        int knownReferences = secondaryReferences.size();
+        ReferenceOrbit nearest = findNearestSecondaryReference( xOffset, yOffset, 0 );
+        if ( nearest != null ) {
+            int count = iterateAgainst( nearest, xOffset, yOffset, true, escapePoint );
+            if ( count != GLITCHED )
+                return count;
+        }
+        if ( secondaryReferences.size() >= MAXIMUM_SECONDARY_REFERENCES )
+            return iterateAgainst( primaryReference, xOffset, yOffset, false, escapePoint );
+        // The orbit is computed in BigDecimal arithmetic, which can take seconds at deep zooms, so it is computed
+        // outside the lock; other threads with glitched pixels elsewhere in the image need not wait for it.
+        ReferenceOrbit candidate = ReferenceOrbit.compute( spec, xOffset, yOffset );
+        synchronized ( secondaryReferences ) {
+            // Another thread may have added a reference for this part of the image in the meantime.
+            ReferenceOrbit added = findNearestSecondaryReference( xOffset, yOffset, knownReferences );
+            if ( added != null ) {
+                int count = iterateAgainst( added, xOffset, yOffset, true, escapePoint );
+                if ( count != GLITCHED )
+                    return count;
+            }
+            if ( secondaryReferences.size() < MAXIMUM_SECONDARY_REFERENCES )
+                secondaryReferences.add( candidate );
+        }
+        return iterateAgainst( candidate, xOffset, yOffset, false, escapePoint );
+    }
+
+    private ReferenceOrbit findNearestSecondaryReference( double xOffset, double yOffset, int firstIndex ) {
+        ReferenceOrbit nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for ( int i = firstIndex; i < secondaryReferences.size(); i++ ) {
+            ReferenceOrbit reference = secondaryReferences.get( i );
+            double distance = Math.hypot( reference.getXOffset() - xOffset, reference.getYOffset() - yOffset );
+            if ( distance < nearestDistance ) {
+                nearest = reference;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    private int iterateAgainst( ReferenceOrbit reference, double xOffset, double yOffset, boolean detectGlitches,
+                                double[] escapePoint ) {
+        double dcx = xOffset - reference.getXOffset();
+        double dcy = yOffset - reference.getYOffset();
+        return iterate( reference, 0, 0, 0, dcx, dcy, detectGlitches, escapePoint );
+    }
+
+    /**
+     * Iterates delta from iteration n onwards. Returns GLITCHED if the pixel can not be computed reliably against
+     * this reference, either because precision was lost or because the reference escaped before the pixel did.
+     */
+    private int iterate( ReferenceOrbit reference, int n, double dr, double di, double dcx, double dcy,
+                         boolean detectGlitches, double[] escapePoint ) {
+        double[] referenceReal = reference.getRealParts();
+        double[] referenceImaginary = reference.getImaginaryParts();
+        int maximumIterations = spec.getMaximumIterations();
+        int lastReferenceIteration = reference.getLength() - 1;
+        int startingIteration = n;
+
+        while ( true ) {
+            double zr = referenceReal[ n ];
+            double zi = referenceImaginary[ n ];
+            double xx = zr + dr;
+            double yy = zi + di;
+            double magnitude = xx*xx + yy*yy;
+            if ( magnitude >= 4 && n > 0 ) {
+                if ( n == startingIteration && n > 0 )  // Escaped during the skip.
+                    return iterate( reference, 0, 0, 0, dcx, dcy, detectGlitches, escapePoint );
+                if ( escapePoint != null ) {
+                    escapePoint[0] = xx;
+                    escapePoint[1] = yy;
+                    escapePoint[2] = centerX + reference.getXOffset() + dcx;
+                    escapePoint[3] = centerY + reference.getYOffset() + dcy;
+                }
+                return n - 1;
+            }
+            if ( n == maximumIterations )
+                return maximumIterations;
+            if ( detectGlitches && ( magnitude < GLITCH_TOLERANCE * ( zr*zr + zi*zi ) || n == lastReferenceIteration ) )
+                return GLITCHED;
+            if ( n == lastReferenceIteration )
+                return n;  // Best effort once no more references can be added.
+            double newDr = 2*( zr*dr - zi*di ) + dr*dr - di*di + dcx;
+            di = 2*( zr*di + zi*dr ) + 2*dr*di + dcy;
+            dr = newDr;
+            n++;
+        }
+    }
+}
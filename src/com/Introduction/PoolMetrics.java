@@ -0,0 +1,251 @@
+package com.Introduction;
+
+/**
+ * Measures what the threads of a pool are doing. A task is wrapped by instrument() when it is submitted; the wrapper
+ * records how long the task waited in the queue, how long it ran and on which thread, so the metrics show whether
+ * the threads are kept busy, whether some of them do much more of the work than others, and whether tasks pile up
+ * in the queue. The hot path only touches atomic counters and lock-free histograms; anything that needs a lock is
+ * done when the metrics are read.
+ *
+ * The metrics can be read directly, published over JMX with register(), or shown on screen with a MetricsOverlay.
+ */
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+public class PoolMetrics implements PoolMetricsMXBean {
+
+    private static final long THROUGHPUT_INTERVAL = 1_000_000_000;  // nanoseconds
+
+    private final String poolName;
+    private final IntSupplier queueDepth;
+    private final LatencyHistogram queueWaits = new LatencyHistogram();
+    private final LatencyHistogram runTimes = new LatencyHistogram();
+    private final LongAdder tasksSubmitted = new LongAdder();
+    private final LongAdder tasksStarted = new LongAdder();
+    private final LongAdder tasksDiscarded = new LongAdder();
+    private final LongAdder tasksCompleted = new LongAdder();
+    private final AtomicLong firstStartTime = new AtomicLong();
+    private final AtomicLong lastEndTime = new AtomicLong();
+    private volatile ConcurrentHashMap< Thread, LongAdder > busyTimes = new ConcurrentHashMap<>();
+    private volatile ThreadLocal< LongAdder > busyTimeOfThisThread = newBusyTimeOfThisThread();
+
+    // The last throughput sample, guarded by the lock of the metrics.
+    private long sampleTime, sampleCompleted;
+    private boolean sampled;
+    private double throughput;
+
+    /**
+     * The queue depth is worked out from the number of tasks submitted, started and discarded.
+     */
+    public PoolMetrics( String poolName ) {
+        this( poolName, null );
+    }
+
+    /**
+     * The queue depth is asked for the number of waiting tasks whenever the metrics are read. This suits pools that
+     * clear their queue without saying how many tasks were in it.
+     */
+    public PoolMetrics( String poolName, IntSupplier queueDepth ) {
+        this.poolName = poolName;
+        this.queueDepth = queueDepth;
+        sampleTime = System.nanoTime();
+    }
+
+    /**
+     * Returns a task that runs the given task and records its queue wait and run time. Call this when the task is
+     * put into the queue, since the queue wait is measured from that moment.
+     */
+    public Runnable instrument( Runnable task ) {
+        tasksSubmitted.increment();
+        return new InstrumentedTask( task, System.nanoTime() );
+    }
+
+    /**
+     * Tells the metrics that tasks were taken out of the queue without being run, as by shutdownNow().
+     */
+    public void tasksDiscarded( int numberOfTasks ) {
+        tasksDiscarded.add( numberOfTasks );
+    }
+
+    /**
+     * Publishes the metrics under com.Introduction:type=PoolMetrics,name=<pool name>. An earlier registration
+     * under the same name is replaced.
+     */
+    public void register() {
+        try {
+            ObjectName name = new ObjectName( "com.Introduction:type=PoolMetrics,name="
+                    + ObjectName.quote( poolName ) );
+            if ( ManagementFactory.getPlatformMBeanServer().isRegistered( name ) )
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( name );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( this, name );
+        }
+        catch ( JMException e ) {
+            System.out.println( "Cannot publish the metrics of " + poolName + ": " + e.getMessage() );
+        }
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public long getTasksSubmitted() {
+        return tasksSubmitted.sum();
+    }
+
+    public long getTasksCompleted() {
+        return tasksCompleted.sum();
+    }
+
+    public int getQueueDepth() {
+        if ( queueDepth != null )
+            return queueDepth.getAsInt();
+        return ( int ) Math.max( 0, tasksSubmitted.sum() - tasksStarted.sum() - tasksDiscarded.sum() );
+    }
+
+    /**
+     * The number of tasks completed per second, measured over at least the last second, or since the last reset if
+     * that was less than a second ago.
+     */
+    synchronized public double getThroughput() {
+        long now = System.nanoTime();
+        if ( !sampled && now > sampleTime )
+            throughput = tasksCompleted.sum() * 1e9 / ( now - sampleTime );
+        if ( now - sampleTime >= THROUGHPUT_INTERVAL ) {
+            sampled = true;
+            long completed = tasksCompleted.sum();
+            throughput = ( completed - sampleCompleted ) * 1e9 / ( now - sampleTime );
+            sampleTime = now;
+            sampleCompleted = completed;
+        }
+        return throughput;
+    }
+
+    public double getMeanQueueWait() {
+        return queueWaits.getMean() / 1e6;
+    }
+
+    public double getMedianQueueWait() {
+        return queueWaits.getPercentile( 0.5 ) / 1e6;
+    }
+
+    public double get99thPercentileQueueWait() {
+        return queueWaits.getPercentile( 0.99 ) / 1e6;
+    }
+
+    public double getMaximumQueueWait() {
+        return queueWaits.getMaximum() / 1e6;
+    }
+
+    public double getMeanRunTime() {
+        return runTimes.getMean() / 1e6;
+    }
+
+    public double getMedianRunTime() {
+        return runTimes.getPercentile( 0.5 ) / 1e6;
+    }
+
+    public double get99thPercentileRunTime() {
+        return runTimes.getPercentile( 0.99 ) / 1e6;
+    }
+
+    public double getMaximumRunTime() {
+        return runTimes.getMaximum() / 1e6;
+    }
+
+    /**
+     * The interval runs from the start of the first task to the end of the last one since the last reset, so the
+     * ratios of a finished render do not decay while the pool sits idle afterwards.
+     */
+    public Map< String, Double > getThreadBusyRatios() {
+        TreeMap< String, Double > ratios = new TreeMap<>();
+        long interval = lastEndTime.get() - firstStartTime.get();
+        if ( interval <= 0 )
+            return ratios;
+        for ( Map.Entry< Thread, LongAdder > entry : busyTimes.entrySet() )
+            ratios.put( entry.getKey().getName(), Math.min( 1.0, ( double ) entry.getValue().sum() / interval ) );
+        return ratios;
+    }
+
+    /**
+     * Starts measuring afresh, for example at the start of a new render.
+     */
+    synchronized public void reset() {
+        queueWaits.reset();
+        runTimes.reset();
+        tasksSubmitted.reset();
+        tasksStarted.reset();
+        tasksDiscarded.reset();
+        tasksCompleted.reset();
+        firstStartTime.set( 0 );
+        lastEndTime.set( 0 );
+        busyTimes = new ConcurrentHashMap<>();
+        busyTimeOfThisThread = newBusyTimeOfThisThread();
+        sampleTime = System.nanoTime();
+        sampleCompleted = 0;
+        sampled = false;
+        throughput = 0;
+    }
+
+    /**
+     * A few lines of text that sum up the metrics, for printing or for an overlay.
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        text.append( String.format( "%s: %d submitted, %d completed, %d queued, %.1f tasks/s%n", poolName,
+                getTasksSubmitted(), getTasksCompleted(), getQueueDepth(), getThroughput() ) );
+        text.append( String.format( "queue wait ms: mean %.2f, median %.2f, p99 %.2f, max %.2f%n",
+                getMeanQueueWait(), getMedianQueueWait(), get99thPercentileQueueWait(), getMaximumQueueWait() ) );
+        text.append( String.format( "run time ms:   mean %.2f, median %.2f, p99 %.2f, max %.2f%n",
+                getMeanRunTime(), getMedianRunTime(), get99thPercentileRunTime(), getMaximumRunTime() ) );
+        for ( Map.Entry< String, Double > entry : getThreadBusyRatios().entrySet() )
+            text.append( String.format( "%s busy %.0f%%%n", entry.getKey(), 100 * entry.getValue() ) );
+        return text.toString();
+    }
+
+    private ThreadLocal< LongAdder > newBusyTimeOfThisThread() {
+        ConcurrentHashMap< Thread, LongAdder > times = busyTimes;
+        return ThreadLocal.withInitial( () -> times.computeIfAbsent( Thread.currentThread(), t -> new LongAdder() ) );
+    }
+
+    private void taskRan( long submitTime, long startTime, long endTime ) {
+        queueWaits.record( startTime - submitTime );
+        runTimes.record( endTime - startTime );
+        busyTimeOfThisThread.get().add( endTime - startTime );
+        tasksCompleted.increment();
+        long first = firstStartTime.get();
+        while ( ( first == 0 || startTime < first ) && !firstStartTime.compareAndSet( first, startTime ) )
+            first = firstStartTime.get();
+        long last = lastEndTime.get();
+        while ( endTime > last && !lastEndTime.compareAndSet( last, endTime ) )
+            last = lastEndTime.get();
+    }
+
+    private class InstrumentedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submitTime;
+
+        InstrumentedTask( Runnable task, long submitTime ) {
+            this.task = task;
+            this.submitTime = submitTime;
+        }
+
+        public void run() {
+            long startTime = System.nanoTime();
+            tasksStarted.increment();
+            try {
+                task.run();
+            }
+            finally {
+                taskRan( submitTime, startTime, System.nanoTime() );
+            }
+        }
+    }
+}
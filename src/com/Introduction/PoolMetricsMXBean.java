@@ -0,0 +1,43 @@
+package com.Introduction;
+
+/**
+ * The view of a PoolMetrics that is published over JMX, so that a pool can be watched with jconsole or any other
+ * JMX client while the program runs. Times are in milliseconds.
+ */
+import java.util.Map;
+
+public interface PoolMetricsMXBean {
+
+    String getPoolName();
+
+    long getTasksSubmitted();
+
+    long getTasksCompleted();
+
+    int getQueueDepth();
+
+    double getThroughput();
+
+    double getMeanQueueWait();
+
+    double getMedianQueueWait();
+
+    double get99thPercentileQueueWait();
+
+    double getMaximumQueueWait();
+
+    double getMeanRunTime();
+
+    double getMedianRunTime();
+
+    double get99thPercentileRunTime();
+
+    double getMaximumRunTime();
+
+    /**
+     * The fraction of the measured interval that each worker thread spent running tasks, by thread name.
+     */
+    Map< String, Double > getThreadBusyRatios();
+
+    void reset();
+}
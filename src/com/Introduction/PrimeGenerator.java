@@ -5,32 +5,98 @@ package com.Introduction;
  * tasks which are then submitted to the ExecutorService for execution. The algorithm used to generate the primes is
  * the Sieve of Eratosthenes. Given an array of integers starting at 2; Find the first uncrossed integer, and cross out
  * all its multiples. Repeat until there are no more multiples in the array.
+ *
+ * A ThreadCountController adjusts the number of threads while the primes are being counted, between the system
+ * properties minimumThreads and maximumThreads (1 and twice the number of processors by default). The number can
+ * also be changed by typing a new number on standard input, which is kept within that range; the controller carries
+ * on from there. Tasks that are
+ * already queued stay queued; when the pool shrinks, the extra threads stop after their current task.
  */
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
 
 public class PrimeGenerator {
 
+    private static ThreadPoolExecutor threadPool;
+    private static ThreadCountController threadCountController;
     private static ExecutorService executorService;
+    private static PoolMetrics metrics;
     private static ArrayList< Future< Integer > > results;
 
+    private static final String POOL_NAME = "Prime generator";
+
     private static int MINIMUM_VALUE = 10;
     private static int MAXIMUM_VALUE = 1000000;
 
     public static void main( String[] args ) {
         setupExecutorService();
+        startReadingThreadCounts();
         submitTasksToTheExecutorService();
         getResults();
         executorService.shutdown();
+        awaitTermination();
+        threadCountController.stop();
+        System.out.println();
+        System.out.print( metrics.describe() );
+        System.out.println( "Thread count controller: " + threadCountController.getNumberOfAdjustments()
+                + " adjustments, last decision: " + threadCountController.getLastDecision() );
 
     }
 
     private static void setupExecutorService() {
-        executorService = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+        metrics = new PoolMetrics( POOL_NAME );
+        metrics.register();
+        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        threadPool = new ThreadPoolExecutor( numberOfThreads, numberOfThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>() );
+        executorService = new InstrumentedExecutorService( threadPool, metrics );
+        int minimumThreads = Integer.getInteger( "minimumThreads", 1 );
+        int maximumThreads = Integer.getInteger( "maximumThreads", 2 * numberOfThreads );
+        threadCountController = new ThreadCountController( POOL_NAME, threadPool, minimumThreads, maximumThreads );
+        threadCountController.register();
+        threadCountController.start( numberOfThreads );
+    }
+
+    /**
+     * Reads new thread counts from standard input on a daemon thread, so that the program still ends when the
+     * counting is done.
+     */
+    private static void startReadingThreadCounts() {
+        Thread reader = new Thread( PrimeGenerator::readThreadCounts, "Thread count reader" );
+        reader.setDaemon( true );
+        reader.start();
+    }
+
+    private static void readThreadCounts() {
+        BufferedReader in = new BufferedReader( new InputStreamReader( System.in ) );
+        try {
+            String line;
+            while ( ( line = in.readLine() ) != null ) {
+                try {
+                    setThreadCount( Integer.parseInt( line.trim() ) );
+                }
+                catch ( IllegalArgumentException e ) {
+                    System.out.println( "Type a number of threads, 1 or more." );
+                }
+            }
+        }
+        catch ( IOException e ) {
+            System.out.println( "Cannot read thread counts: " + e.getMessage() );
+        }
+    }
+
+    private static void setThreadCount( int numberOfThreads ) {
+        threadCountController.setThreadCount( numberOfThreads );
+        System.out.println( "Now using " + threadCountController.getThreadCount() + " threads." );
     }
 
     private static void submitTasksToTheExecutorService() {
@@ -41,7 +107,15 @@ public class PrimeGenerator {
             int endRange = startRange + numberOfSubtasks;
             Future< Integer > result = executorService.submit( new CountPrimesTask( startRange, endRange ) );
             results.add( result );
+            TaskEvents.submitted( POOL_NAME, startRange, 0 );
+        }
+    }
+
+    private static void awaitTermination() {
+        try {
+            executorService.awaitTermination( 1, TimeUnit.MINUTES );
         }
+        catch ( InterruptedException e ) {}
     }
 
     private static void getResults() {
@@ -66,8 +140,15 @@ public class PrimeGenerator {
         }
 
         public Integer call() {
-            System.out.println( " ------------------------------------------------- " );
-            int numberOfPrimes = getNumberOfPrimes( this.minimum, this.maximum );
+            TaskEvents.TaskEnded end = TaskEvents.started( POOL_NAME, minimum, 0 );
+            int numberOfPrimes;
+            try {
+                System.out.println( " ------------------------------------------------- " );
+                numberOfPrimes = getNumberOfPrimes( this.minimum, this.maximum );
+            }
+            finally {
+                TaskEvents.ended( end, POOL_NAME, minimum, 0 );
+            }
             System.out.println( "   " + this.minimum + "  -  " + this.maximum + "    " + numberOfPrimes );
             return numberOfPrimes;
         }
@@ -0,0 +1,171 @@
+package com.Introduction;
+
+/**
+ * Renders a view coarse-to-fine so that the user sees the whole picture almost immediately instead of waiting for
+ * the rows to come in from top to bottom. The image is divided into tiles and every tile is computed in three
+ * passes. The first pass computes one pixel in every 4x4 block (1/16 of the pixels), the second one pixel in every
+ * 2x2 block and the last pass all the rest. Each pass reuses the samples of the passes before it, so no pixel is
+ * ever computed twice, and each sample is drawn as a block that covers the pixels that have not been computed yet.
+ *
+ * The tiles are executed by a ThreadPoolExecutor whose queue is a PriorityBlockingQueue. Tiles of an earlier pass
+ * always come first, and within a pass the tiles closest to the focus point (the centre of the view, or the area
+ * under the cursor) come first. When a tile finishes a pass, its next pass is queued.
+ */
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProgressiveRenderer {
+
+    /**
+     * Told about every tile that has finished a pass. All pixels in the tile whose coordinates are multiples of
+     * step have then been computed, and each of them should be drawn as a step by step block.
+     */
+    public interface BlockListener {
+        void blockFinished( int x, int y, int width, int height, int step );
+    }
+
+    private static final int[] PASS_STEPS = { 4, 2, 1 };
+    private static final int TILE_SIZE = 32;
+
+    private final EscapeTimeRenderer renderer;
+    private final int[] counts;
+    private final int width;
+    private final int height;
+    private final BlockListener listener;
+    private final AtomicInteger unfinishedTiles = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;
+    private Runnable whenFinished;
+    private volatile double focusColumn;
+    private volatile double focusRow;
+    private volatile boolean cancelled;
+
+    public ProgressiveRenderer( EscapeTimeRenderer renderer, int[] counts, BlockListener listener ) {
+        this.renderer = renderer;
+        this.counts = counts;
+        this.width = renderer.getSpec().getWidth();
+        this.height = renderer.getSpec().getHeight();
+        this.listener = listener;
+        focusColumn = width / 2.0;
+        focusRow = height / 2.0;
+    }
+
+    /**
+     * Creates a thread pool whose queue runs the most urgent tiles first.
+     */
+    public static ThreadPoolExecutor createExecutor( int numberOfThreads ) {
+        return new ThreadPoolExecutor( numberOfThreads, numberOfThreads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>() );
+    }
+
+    /**
+     * Queues the first pass of every tile. The executor must come from createExecutor, and tasks must only be
+     * given to it with execute(), since submit() would wrap them in a FutureTask that has no priority.
+     * whenFinished is run by the thread that completes the last pass of the last tile.
+     */
+    public void start( ThreadPoolExecutor executor, Runnable whenFinished ) {
+        this.executor = executor;
+        this.whenFinished = whenFinished;
+        int tilesAcross = ( width + TILE_SIZE - 1 ) / TILE_SIZE;
+        int tilesDown = ( height + TILE_SIZE - 1 ) / TILE_SIZE;
+        unfinishedTiles.set( tilesAcross * tilesDown );
+        for ( int tileRow = 0; tileRow < tilesDown; tileRow++ )
+            for ( int tileColumn = 0; tileColumn < tilesAcross; tileColumn++ )
+                executor.execute( new TileTask( tileColumn * TILE_SIZE, tileRow * TILE_SIZE, 0 ) );
+    }
+
+    /**
+     * Moves the tiles nearest to the given point to the front of their pass. The queue is drained and refilled
+     * so that the queued tasks are re-ordered with their new priorities.
+     */
+    public void setFocus( double column, double row ) {
+        focusColumn = column;
+        focusRow = row;
+        if ( executor == null )
+            return;
+        BlockingQueue< Runnable > queue = executor.getQueue();
+        ArrayList< Runnable > queuedTasks = new ArrayList<>();
+        queue.drainTo( queuedTasks );
+        for ( Runnable task : queuedTasks )
+            if ( task instanceof TileTask )
+                ( ( TileTask ) task ).updateDistanceToFocus();
+        queue.addAll( queuedTasks );
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void tileFinished() {
+        if ( unfinishedTiles.decrementAndGet() == 0 && whenFinished != null )
+            whenFinished.run();
+    }
+
+    private class TileTask implements Runnable, Comparable< TileTask > {
+
+        private final int x, y, tileWidth, tileHeight;
+        private final int pass;
+        private double distanceToFocus;
+
+        TileTask( int x, int y, int pass ) {
+            this.x = x;
+            this.y = y;
+            this.tileWidth = Math.min( TILE_SIZE, width - x );
+            this.tileHeight = Math.min( TILE_SIZE, height - y );
+            this.pass = pass;
+            updateDistanceToFocus();
+        }
+
+        void updateDistanceToFocus() {
+            distanceToFocus = Math.hypot( x + tileWidth / 2.0 - focusColumn, y + tileHeight / 2.0 - focusRow );
+        }
+
+        public int compareTo( TileTask other ) {
+            if ( pass != other.pass )
+                return Integer.compare( pass, other.pass );
+            return Double.compare( distanceToFocus, other.distanceToFocus );
+        }
+
+        public void run() {
+            if ( cancelled ) {
+                tileFinished();
+                return;
+            }
+            computePass();
+            listener.blockFinished( x, y, tileWidth, tileHeight, PASS_STEPS[ pass ] );
+            if ( pass == PASS_STEPS.length - 1 )
+                tileFinished();
+            else
+                queueNextPass();
+        }
+
+        /**
+         * Computes the pixels whose coordinates are multiples of this pass's step, except those that the previous
+         * pass, with twice the step, has already computed.
+         */
+        private void computePass() {
+            int step = PASS_STEPS[ pass ];
+            int previousStep = ( pass == 0 ) ? 0 : PASS_STEPS[ pass - 1 ];
+            for ( int row = y; row < y + tileHeight; row += step )
+                for ( int column = x; column < x + tileWidth; column += step ) {
+                    if ( previousStep > 0 && row % previousStep == 0 && column % previousStep == 0 )
+                        continue;
+                    counts[ row*width + column ] = renderer.iterationsAt( column, row );
+                }
+        }
+
+        private void queueNextPass() {
+            try {
+                executor.execute( new TileTask( x, y, pass + 1 ) );
+            }
+            catch ( RejectedExecutionException e ) {
+                // The executor has been shut down, so this render has been abandoned.
+            }
+        }
+    }
+}
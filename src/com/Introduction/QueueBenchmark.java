@@ -0,0 +1,146 @@
+package com.Introduction;
+
+/**
+ * Compares the queues that a thread pool can take its tasks from, at a high rate of very small tasks: the
+ * LinkedBlockingQueue of version 4, the ConcurrentLinkedQueue of version 3, which has no blocking and is polled in a
+ * loop, an ArrayBlockingQueue and the lock-free RingBufferQueue. Producer threads put tasks into the queue while
+ * consumer threads take them out and run them, the way the threads of a pool do; each task only adds its number to
+ * the consumer's checksum. With such small tasks the time is almost all spent in the queue.
+ *
+ * Every configuration is run a few times after a warm-up and the best run is reported, in millions of tasks per
+ * second. The checksums are compared to make sure every task was run exactly once.
+ *
+ * Usage: java com.Introduction.QueueBenchmark [ producers [ consumers [ tasksPerProducer ] ] ]
+ */
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class QueueBenchmark {
+
+    private static final int CAPACITY = 1024;
+    private static final int WARM_UP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    private static final Task POISON = new Task( -1 );
+
+    private final int numberOfProducers;
+    private final int numberOfConsumers;
+    private final int tasksPerProducer;
+
+    public static void main( String[] args ) throws InterruptedException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int producers = ( args.length > 0 ) ? Integer.parseInt( args[0] ) : Math.max( 1, processors / 2 );
+        int consumers = ( args.length > 1 ) ? Integer.parseInt( args[1] ) : Math.max( 1, processors / 2 );
+        int tasksPerProducer = ( args.length > 2 ) ? Integer.parseInt( args[2] ) : 1_000_000;
+        QueueBenchmark benchmark = new QueueBenchmark( producers, consumers, tasksPerProducer );
+        System.out.printf( "%d producers, %d consumers, %d tasks each, capacity %d%n", producers, consumers,
+                tasksPerProducer, CAPACITY );
+        benchmark.measure( "LinkedBlockingQueue", () -> new LinkedBlockingQueue<>( CAPACITY ), true );
+        benchmark.measure( "ArrayBlockingQueue", () -> new ArrayBlockingQueue<>( CAPACITY ), true );
+        benchmark.measure( "ConcurrentLinkedQueue", ConcurrentLinkedQueue::new, false );
+        benchmark.measure( "RingBufferQueue", () -> new RingBufferQueue<>( CAPACITY ), true );
+    }
+
+    public QueueBenchmark( int numberOfProducers, int numberOfConsumers, int tasksPerProducer ) {
+        this.numberOfProducers = numberOfProducers;
+        this.numberOfConsumers = numberOfConsumers;
+        this.tasksPerProducer = tasksPerProducer;
+    }
+
+    /**
+     * Blocking queues are used with put() and take(). A queue that cannot block is used with offer() and poll(),
+     * and a thread that finds it empty spins, as the threads of version 3 would if they waited for more tasks.
+     * That queue is unbounded, so the producers may run far ahead of the consumers.
+     */
+    private void measure( String name, Supplier< Queue< Task > > queueFactory, boolean blocking )
+            throws InterruptedException {
+        long expectedChecksum = ( long ) numberOfProducers * tasksPerProducer * ( tasksPerProducer - 1 ) / 2;
+        double best = 0;
+        for ( int run = 0; run < WARM_UP_RUNS + MEASURED_RUNS; run++ ) {
+            Queue< Task > queue = queueFactory.get();
+            AtomicLong checksum = new AtomicLong();
+            Thread[] threads = new Thread[ numberOfProducers + numberOfConsumers ];
+            for ( int i = 0; i < numberOfConsumers; i++ )
+                threads[i] = new Thread( () -> checksum.addAndGet( consume( queue, blocking ) ) );
+            for ( int i = 0; i < numberOfProducers; i++ )
+                threads[ numberOfConsumers + i ] = new Thread( () -> produce( queue, blocking ) );
+            long startTime = System.nanoTime();
+            for ( Thread thread : threads )
+                thread.start();
+            for ( int i = numberOfConsumers; i < threads.length; i++ )
+                threads[i].join();
+            for ( int i = 0; i < numberOfConsumers; i++ )
+                insert( queue, POISON, blocking );
+            for ( int i = 0; i < numberOfConsumers; i++ )
+                threads[i].join();
+            double seconds = ( System.nanoTime() - startTime ) / 1e9;
+            if ( checksum.get() != expectedChecksum )
+                throw new IllegalStateException( name + " lost or repeated tasks" );
+            if ( run >= WARM_UP_RUNS )
+                best = Math.max( best, ( double ) numberOfProducers * tasksPerProducer / seconds / 1e6 );
+        }
+        System.out.printf( "%-22s %8.2f million tasks/s%n", name, best );
+    }
+
+    private void produce( Queue< Task > queue, boolean blocking ) {
+        for ( int i = 0; i < tasksPerProducer; i++ )
+            insert( queue, new Task( i ), blocking );
+    }
+
+    private static long consume( Queue< Task > queue, boolean blocking ) {
+        long checksum = 0;
+        while ( true ) {
+            Task task = remove( queue, blocking );
+            if ( task == POISON )
+                return checksum;
+            checksum += task.run();
+        }
+    }
+
+    private static void insert( Queue< Task > queue, Task task, boolean blocking ) {
+        try {
+            if ( blocking )
+                ( (BlockingQueue< Task >) queue ).put( task );
+            else
+                queue.offer( task );
+        }
+        catch ( InterruptedException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static Task remove( Queue< Task > queue, boolean blocking ) {
+        try {
+            if ( blocking )
+                return ( (BlockingQueue< Task >) queue ).take();
+            Task task;
+            while ( ( task = queue.poll() ) == null )
+                Thread.onSpinWait();
+            return task;
+        }
+        catch ( InterruptedException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * About the smallest task there can be.
+     */
+    private static class Task {
+
+        private final int number;
+
+        Task( int number ) {
+            this.number = number;
+        }
+
+        long run() {
+            return number;
+        }
+    }
+}
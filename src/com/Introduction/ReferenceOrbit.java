@@ -0,0 +1,101 @@
+package com.Introduction;
+
+/**
+ * The orbit of a single reference point, computed with BigDecimal arithmetic at whatever precision the zoom depth
+ * needs. Only the reference point is computed this way. Once it is known, every other pixel can be iterated as a
+ * small double precision difference from it (see PerturbationRenderer), and the orbit itself is stored as doubles
+ * because its values never leave the disk of radius 2.
+ *
+ * Entry n of the orbit is Z(n), with Z(0) = 0 and Z(n+1) = Z(n)*Z(n) + C.
+ */
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+final class ReferenceOrbit {
+
+    private final double xOffset;
+    private final double yOffset;
+    private final double[] real;
+    private final double[] imaginary;
+    private final int length;
+    private final boolean escaped;
+
+    private ReferenceOrbit( double xOffset, double yOffset, double[] real, double[] imaginary, int length,
+                            boolean escaped ) {
+        this.xOffset = xOffset;
+        this.yOffset = yOffset;
+        this.real = real;
+        this.imaginary = imaginary;
+        this.length = length;
+        this.escaped = escaped;
+    }
+
+    /**
+     * Computes the orbit of the point that lies ( xOffset, yOffset ) away from the centre of the given view.
+     */
+    static ReferenceOrbit compute( RenderSpec spec, double xOffset, double yOffset ) {
+        MathContext precision = spec.getMathContext();
+        BigDecimal cx = spec.getCenterX().add( new BigDecimal( xOffset ), precision );
+        BigDecimal cy = spec.getCenterY().add( new BigDecimal( yOffset ), precision );
+        int maximumIterations = spec.getMaximumIterations();
+
+        double[] real = new double[ maximumIterations + 1 ];
+        double[] imaginary = new double[ maximumIterations + 1 ];
+        BigDecimal zx = BigDecimal.ZERO;
+        BigDecimal zy = BigDecimal.ZERO;
+        int n = 0;
+        while ( true ) {
+            double x = zx.doubleValue();
+            double y = zy.doubleValue();
+            real[ n ] = x;
+            imaginary[ n ] = y;
+            if ( x*x + y*y >= 4 )
+                return new ReferenceOrbit( xOffset, yOffset, real, imaginary, n + 1, true );
+            if ( n == maximumIterations )
+                return new ReferenceOrbit( xOffset, yOffset, real, imaginary, n + 1, false );
+            BigDecimal zxSquared = zx.multiply( zx, precision );
+            BigDecimal zySquared = zy.multiply( zy, precision );
+            zy = zx.multiply( zy, precision ).multiply( BigDecimal.valueOf( 2 ) ).add( cy, precision );
+            zx = zxSquared.subtract( zySquared ).add( cx, precision );
+            n++;
+        }
+    }
+
+    /**
+     * Horizontal offset of the reference point from the centre of the view.
+     */
+    double getXOffset() {
+        return xOffset;
+    }
+
+    double getYOffset() {
+        return yOffset;
+    }
+
+    double realPartAt( int n ) {
+        return real[ n ];
+    }
+
+    double imaginaryPartAt( int n ) {
+        return imaginary[ n ];
+    }
+
+    double[] getRealParts() {
+        return real;
+    }
+
+    double[] getImaginaryParts() {
+        return imaginary;
+    }
+
+    /**
+     * Number of valid orbit entries. If the reference escaped, the last entry is the first one outside radius 2.
+     */
+    int getLength() {
+        return length;
+    }
+
+    boolean hasEscaped() {
+        return escaped;
+    }
+}
@@ -0,0 +1,77 @@
+package com.Introduction;
+
+/**
+ * Chooses how a view should be computed. Plain doubles are the fastest but run out of precision once the pixel
+ * spacing gets within a few thousand units in the last place of the coordinates. Double-double arithmetic takes
+ * over from there down to about 1e-30, and below that the perturbation renderer is used, whose cost hardly depends
+ * on the zoom depth at all.
+ */
+public class RenderEngine {
+
+    public enum Precision { DOUBLE, DOUBLE_DOUBLE, PERTURBATION }
+
+    private static final double DOUBLE_LIMIT = 1e-13;
+    private static final double DOUBLE_DOUBLE_LIMIT = 1e-29;
+    private static final int EXTRA_ITERATIONS = 4;
+    private static final double LOG_2 = Math.log( 2 );
+
+    /**
+     * Picks the precision from the pixel spacing relative to the size of the coordinates. Orbits wander over the
+     * whole disk of radius 2, so coordinates are never considered to be smaller than 1.
+     */
+    public static Precision choosePrecision( RenderSpec spec ) {
+        double scale = Math.max( 1, Math.max( Math.abs( spec.getCenterX().doubleValue() ),
+                Math.abs( spec.getCenterY().doubleValue() ) ) );
+        double relativeSpacing = spec.getPixelSpacing() / scale;
+        if ( relativeSpacing > DOUBLE_LIMIT )
+            return Precision.DOUBLE;
+        else if ( relativeSpacing > DOUBLE_DOUBLE_LIMIT )
+            return Precision.DOUBLE_DOUBLE;
+        else
+            return Precision.PERTURBATION;
+    }
+
+    /**
+     * Computes the continuous escape value n + 1 - log2( log2 |z| ) of an orbit that has left the disk of radius 2
+     * after count iterations. escapePoint holds the real and imaginary parts of z at that moment followed by those
+     * of c. The formula is only continuous when |z| is large, so the orbit is first followed for a few more
+     * iterations; plain doubles are good enough for that at any zoom depth, since |z| is at least 2 by then. The
+     * result is usually between count - 0.4 and count + 1. If the orbit has not escaped, count is returned as it is.
+     */
+    public static double smoothIterationCount( int count, double[] escapePoint ) {
+        double x = escapePoint[0], y = escapePoint[1];
+        if ( x*x + y*y < 4 )
+            return count;
+        for ( int i = 0; i < EXTRA_ITERATIONS; i++ ) {
+            double newX = x*x - y*y + escapePoint[2];
+            y = 2*x*y + escapePoint[3];
+            x = newX;
+        }
+        double logOfModulus = 0.5 * Math.log( x*x + y*y );
+        return count + EXTRA_ITERATIONS + 1 - Math.log( logOfModulus / LOG_2 ) / LOG_2;
+    }
+
+    public static EscapeTimeRenderer createRenderer( RenderSpec spec ) {
+        return createRenderer( spec, choosePrecision( spec ) );
+    }
+
+    /**
+     * Only the Mandelbrot set has renderers for deep views, so any other kernel is always rendered with doubles.
+     */
+    public static EscapeTimeRenderer createRenderer( RenderSpec spec, FractalKernel kernel ) {
+        if ( kernel instanceof MandelbrotKernel )
+            return createRenderer( spec );
+        return new DoublePrecisionRenderer( spec, kernel );
+    }
+
+    public static EscapeTimeRenderer createRenderer( RenderSpec spec, Precision precision ) {
+        switch ( precision ) {
+            case DOUBLE:
+                return new DoublePrecisionRenderer( spec );
+            case DOUBLE_DOUBLE:
+                return new DoubleDoubleRenderer( spec );
+            default:
+                return new PerturbationRenderer( spec );
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.Introduction;
+
+/**
+ * Describes one view of the Mandelbrot set: the point at the centre of the image, the distance between neighbouring
+ * pixels in the complex plane, the size of the image in pixels and the maximum number of iterations per pixel.
+ *
+ * The centre is kept as a BigDecimal so that it can be specified to far more digits than a double can hold. Pixel
+ * positions are only ever expressed as (small) offsets from the centre, which is what allows the perturbation
+ * renderer to zoom well past the point where plain doubles give up.
+ */
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+public final class RenderSpec {
+
+    private final BigDecimal centerX;
+    private final BigDecimal centerY;
+    private final double pixelSpacing;
+    private final int width;
+    private final int height;
+    private final int maximumIterations;
+
+    public RenderSpec( BigDecimal centerX, BigDecimal centerY, double pixelSpacing, int width, int height,
+                       int maximumIterations ) {
+        if ( !( pixelSpacing > 0 ) || width < 1 || height < 1 || maximumIterations < 1 )
+            throw new IllegalArgumentException( "Invalid render specification." );
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.pixelSpacing = pixelSpacing;
+        this.width = width;
+        this.height = height;
+        this.maximumIterations = maximumIterations;
+    }
+
+    /**
+     * Creates a specification from the xMin/xMax/yMin/yMax bounds used by the other programs. Pixels are square, so
+     * the vertical extent decides the pixel spacing.
+     */
+    public static RenderSpec fromBounds( double xMin, double xMax, double yMin, double yMax, int width, int height,
+                                         int maximumIterations ) {
+        BigDecimal two = BigDecimal.valueOf( 2 );
+        BigDecimal centerX = new BigDecimal( xMin ).add( new BigDecimal( xMax ) ).divide( two );
+        BigDecimal centerY = new BigDecimal( yMin ).add( new BigDecimal( yMax ) ).divide( two );
+        double pixelSpacing = Math.abs( yMax - yMin ) / ( height - 1 );
+        return new RenderSpec( centerX, centerY, pixelSpacing, width, height, maximumIterations );
+    }
+
+    public BigDecimal getCenterX() {
+        return centerX;
+    }
+
+    public BigDecimal getCenterY() {
+        return centerY;
+    }
+
+    public double getPixelSpacing() {
+        return pixelSpacing;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMaximumIterations() {
+        return maximumIterations;
+    }
+
+    /**
+     * Horizontal distance, in the complex plane, from the centre of the image to the given (possibly fractional)
+     * column.
+     */
+    public double xOffsetOf( double column ) {
+        return ( column - ( width - 1 ) / 2.0 ) * pixelSpacing;
+    }
+
+    /**
+     * Vertical distance from the centre of the image to the given row. Rows grow downwards, the imaginary axis
+     * grows upwards.
+     */
+    public double yOffsetOf( double row ) {
+        return ( ( height - 1 ) / 2.0 - row ) * pixelSpacing;
+    }
+
+    /**
+     * Distance from the centre of the image to its corners.
+     */
+    public double getRadius() {
+        return Math.hypot( xOffsetOf( 0 ), yOffsetOf( 0 ) );
+    }
+
+    /**
+     * The MathContext needed to hold pixel positions exactly enough: the digits needed to reach the pixel spacing
+     * plus a generous guard for the rounding error that builds up along an orbit.
+     */
+    public MathContext getMathContext() {
+        int digitsToReachPixelSpacing = ( int ) Math.ceil( -Math.log10( pixelSpacing ) );
+        return new MathContext( Math.max( 20, digitsToReachPixelSpacing + 20 ) );
+    }
+
+    /**
+     * Returns a nearby view whose pixel spacing is an exact power of two and whose pixels lie on the global grid
+     * of multiples of that spacing. Views like that can share tiles (see TileGrid). The centre moves by less than a
+     * pixel and the zoom changes by less than a factor of the square root of two.
+     */
+    public RenderSpec snappedToPixelGrid() {
+        int level = -( int ) Math.round( Math.log( pixelSpacing ) / Math.log( 2 ) );
+        double snappedSpacing = Math.scalb( 1.0, -level );
+        BigDecimal spacing = new BigDecimal( snappedSpacing );
+        BigDecimal halfWidth = BigDecimal.valueOf( width - 1 ).divide( BigDecimal.valueOf( 2 ) );
+        BigDecimal halfHeight = BigDecimal.valueOf( height - 1 ).divide( BigDecimal.valueOf( 2 ) );
+        BigInteger firstColumn = centerX.divide( spacing ).subtract( halfWidth )
+                .setScale( 0, RoundingMode.HALF_EVEN ).toBigInteger();
+        BigInteger firstRow = centerY.negate().divide( spacing ).subtract( halfHeight )
+                .setScale( 0, RoundingMode.HALF_EVEN ).toBigInteger();
+        BigDecimal snappedCenterX = new BigDecimal( firstColumn ).add( halfWidth ).multiply( spacing );
+        BigDecimal snappedCenterY = new BigDecimal( firstRow ).add( halfHeight ).multiply( spacing ).negate();
+        return new RenderSpec( snappedCenterX, snappedCenterY, snappedSpacing, width, height, maximumIterations );
+    }
+
+    public RenderSpec zoomedBy( double factor ) {
+        return new RenderSpec( centerX, centerY, pixelSpacing / factor, width, height, maximumIterations );
+    }
+
+    /**
+     * Zooms in by the given factor (or out, for factors below 1) while keeping the point under the given pixel
+     * where it is.
+     */
+    public RenderSpec zoomedAround( double column, double row, double factor ) {
+        double shift = 1 - 1 / factor;
+        BigDecimal newCenterX = centerX.add( new BigDecimal( xOffsetOf( column ) * shift ) );
+        BigDecimal newCenterY = centerY.add( new BigDecimal( yOffsetOf( row ) * shift ) );
+        return new RenderSpec( newCenterX, newCenterY, pixelSpacing / factor, width, height, maximumIterations );
+    }
+
+    /**
+     * Moves the view by whole pixels: right by the given number of columns and down by the given number of rows.
+     * The image itself appears to slide the other way.
+     */
+    public RenderSpec pannedBy( int columns, int rows ) {
+        BigDecimal newCenterX = centerX.add( new BigDecimal( columns * pixelSpacing ) );
+        BigDecimal newCenterY = centerY.subtract( new BigDecimal( rows * pixelSpacing ) );
+        return new RenderSpec( newCenterX, newCenterY, pixelSpacing, width, height, maximumIterations );
+    }
+
+    /**
+     * If this view is the given one moved by whole pixels, returns { columns, rows } as they would be passed to
+     * pannedBy. Returns null for any other kind of difference.
+     */
+    public int[] panOffsetFrom( RenderSpec previous ) {
+        if ( previous.pixelSpacing != pixelSpacing || previous.width != width || previous.height != height
+                || previous.maximumIterations != maximumIterations )
+            return null;
+        double columns = centerX.subtract( previous.centerX ).doubleValue() / pixelSpacing;
+        double rows = previous.centerY.subtract( centerY ).doubleValue() / pixelSpacing;
+        if ( Math.abs( columns - Math.rint( columns ) ) > 1e-6 || Math.abs( rows - Math.rint( rows ) ) > 1e-6
+                || Math.abs( columns ) > Integer.MAX_VALUE || Math.abs( rows ) > Integer.MAX_VALUE )
+            return null;
+        return new int[] { ( int ) Math.rint( columns ), ( int ) Math.rint( rows ) };
+    }
+
+    public RenderSpec withMaximumIterations( int maximumIterations ) {
+        return new RenderSpec( centerX, centerY, pixelSpacing, width, height, maximumIterations );
+    }
+
+    public String toString() {
+        return "centre ( " + centerX.round( new MathContext( 20 ) ) + ", " + centerY.round( new MathContext( 20 ) )
+                + " ), pixel spacing " + pixelSpacing + ", " + maximumIterations + " iterations";
+    }
+}
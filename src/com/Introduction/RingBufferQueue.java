@@ -0,0 +1,252 @@
+package com.Introduction;
+
+/**
+ * A bounded BlockingQueue for any number of producers and consumers that never takes a lock. The elements live in a
+ * circular array, and every slot has a sequence number that says whose turn it is: a producer may fill the slot
+ * when the sequence equals the position it has claimed, a consumer may empty it when the sequence is one more. A
+ * thread claims a position by advancing the head or tail counter with a single compare-and-set, so producers and
+ * consumers only contend among themselves, and a put allocates nothing, unlike the node a LinkedBlockingQueue
+ * allocates for every element. This is the queue described by Dmitry Vyukov.
+ *
+ * The head and tail counters are padded so that they sit in different cache lines; otherwise every put would
+ * invalidate the line that the consumers are reading, and every take the one the producers are reading.
+ *
+ * A thread that has to wait, in take() or put(), first spins for a little while, since the queue is usually only
+ * empty or full for a moment when it is busy, then yields, and only then parks until the other side wakes it up.
+ * The other side only pays for the wake-up when somebody is actually parked. A thread that is woken but turns out not
+ * to need it, because it got its element after all, passes the wake-up on to the next parked thread.
+ *
+ * The capacity is rounded up to a power of two. Null elements are not allowed, and the iterator, which is only
+ * there for the sake of the Collection interface, returns a snapshot and does not support remove().
+ */
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class RingBufferQueue< E > extends AbstractQueue< E > implements BlockingQueue< E > {
+
+    private static final int SPIN_LIMIT = 100;
+    private static final int YIELD_LIMIT = 10;
+
+    private final int mask;
+    private final AtomicReferenceArray< E > elements;
+    private final AtomicLongArray sequences;
+    private final PaddedCounter head = new PaddedCounter();  // The next position to take from.
+    private final PaddedCounter tail = new PaddedCounter();  // The next position to put into.
+    private final ConcurrentLinkedQueue< Thread > parkedTakers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue< Thread > parkedPutters = new ConcurrentLinkedQueue<>();
+
+    public RingBufferQueue( int capacity ) {
+        if ( capacity < 1 || capacity > ( 1 << 30 ) )
+            throw new IllegalArgumentException( "The capacity must be between 1 and 2^30." );
+        int size = Integer.highestOneBit( capacity );
+        if ( size < capacity )
+            size *= 2;
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>( size );
+        sequences = new AtomicLongArray( size );
+        for ( int i = 0; i < size; i++ )
+            sequences.set( i, i );
+    }
+
+    public boolean offer( E element ) {
+        if ( element == null )
+            throw new NullPointerException();
+        long position = tail.get();
+        while ( true ) {
+            int slot = ( int ) position & mask;
+            long difference = sequences.get( slot ) - position;
+            if ( difference == 0 ) {
+                if ( tail.compareAndSet( position, position + 1 ) ) {
+                    elements.lazySet( slot, element );
+                    sequences.set( slot, position + 1 );  // Publishes the element to the consumers.
+                    wakeUp( parkedTakers );
+                    return true;
+                }
+            }
+            else if ( difference < 0 )
+                return false;  // The slot still holds the element from one lap ago, so the queue is full.
+            position = tail.get();
+        }
+    }
+
+    public E poll() {
+        long position = head.get();
+        while ( true ) {
+            int slot = ( int ) position & mask;
+            long difference = sequences.get( slot ) - ( position + 1 );
+            if ( difference == 0 ) {
+                if ( head.compareAndSet( position, position + 1 ) ) {
+                    E element = elements.get( slot );
+                    elements.lazySet( slot, null );
+                    sequences.set( slot, position + mask + 1 );  // Hands the slot to the producers of the next lap.
+                    wakeUp( parkedPutters );
+                    return element;
+                }
+            }
+            else if ( difference < 0 )
+                return null;  // Nothing has been put into this slot yet, so the queue is empty.
+            position = head.get();
+        }
+    }
+
+    public E peek() {
+        while ( true ) {
+            long position = head.get();
+            int slot = ( int ) position & mask;
+            long sequence = sequences.get( slot );
+            E element = elements.get( slot );
+            if ( sequence < position + 1 )
+                return null;
+            if ( sequence == position + 1 && element != null && head.get() == position )
+                return element;
+        }
+    }
+
+    public void put( E element ) throws InterruptedException {
+        if ( element == null )
+            throw new NullPointerException();
+        await( element, Long.MAX_VALUE );
+    }
+
+    public boolean offer( E element, long timeout, TimeUnit unit ) throws InterruptedException {
+        if ( element == null )
+            throw new NullPointerException();
+        return await( element, System.nanoTime() + unit.toNanos( timeout ) ) != null;
+    }
+
+    public E take() throws InterruptedException {
+        return await( null, Long.MAX_VALUE );
+    }
+
+    public E poll( long timeout, TimeUnit unit ) throws InterruptedException {
+        return await( null, System.nanoTime() + unit.toNanos( timeout ) );
+    }
+
+    /**
+     * The number of elements, which may already be out of date by the time it is returned.
+     */
+    public int size() {
+        while ( true ) {
+            long headPosition = head.get();
+            long tailPosition = tail.get();
+            if ( head.get() == headPosition )
+                return ( int ) Math.max( 0, Math.min( tailPosition - headPosition, mask + 1 ) );
+        }
+    }
+
+    public int remainingCapacity() {
+        return mask + 1 - size();
+    }
+
+    public int drainTo( Collection< ? super E > collection ) {
+        return drainTo( collection, Integer.MAX_VALUE );
+    }
+
+    public int drainTo( Collection< ? super E > collection, int maximumElements ) {
+        if ( collection == this )
+            throw new IllegalArgumentException();
+        int drained = 0;
+        E element;
+        while ( drained < maximumElements && ( element = poll() ) != null ) {
+            collection.add( element );
+            drained++;
+        }
+        return drained;
+    }
+
+    public Iterator< E > iterator() {
+        ArrayList< E > snapshot = new ArrayList<>();
+        long tailPosition = tail.get();
+        for ( long position = head.get(); position < tailPosition; position++ ) {
+            E element = elements.get( ( int ) position & mask );
+            if ( element != null )
+                snapshot.add( element );
+        }
+        Iterator< E > snapshotIterator = snapshot.iterator();
+        return new Iterator< E >() {
+            public boolean hasNext() {
+                return snapshotIterator.hasNext();
+            }
+
+            public E next() {
+                return snapshotIterator.next();
+            }
+        };
+    }
+
+    /**
+     * Puts the element into the queue or, if the element is null, takes one out, waiting until that succeeds or the
+     * deadline passes: spinning at first, then yielding, then parking. Returns the element that was put or taken,
+     * or null if the deadline passed. A thread announces that it is about to park before it tries once more, so a
+     * thread on the other side that makes room or adds an element either is seen by that last try or sees the
+     * parked thread and wakes it up. The thread it wakes may be one that has only announced itself and then succeeds
+     * with its last try, though, which uses up the wake-up that a thread already parked behind it needed; such a
+     * thread therefore passes the wake-up on to the next parked thread.
+     */
+    private E await( E elementToPut, long deadline ) throws InterruptedException {
+        ConcurrentLinkedQueue< Thread > parkedThreads = ( elementToPut != null ) ? parkedPutters : parkedTakers;
+        for ( int round = 0; ; round++ ) {
+            E element = attempt( elementToPut );
+            if ( element != null )
+                return element;
+            if ( Thread.interrupted() )
+                throw new InterruptedException();
+            long remaining = deadline - System.nanoTime();
+            if ( remaining <= 0 )
+                return null;
+            if ( round < SPIN_LIMIT )
+                Thread.onSpinWait();
+            else if ( round < SPIN_LIMIT + YIELD_LIMIT )
+                Thread.yield();
+            else {
+                Thread current = Thread.currentThread();
+                parkedThreads.add( current );
+                try {
+                    element = attempt( elementToPut );
+                    if ( element != null )
+                        return element;
+                    if ( deadline == Long.MAX_VALUE )
+                        LockSupport.park( this );
+                    else
+                        LockSupport.parkNanos( this, remaining );
+                }
+                finally {
+                    if ( !parkedThreads.remove( current ) && element != null )
+                        wakeUp( parkedThreads );  // Somebody chose this thread to wake, but it did not need it.
+                }
+            }
+        }
+    }
+
+    private E attempt( E elementToPut ) {
+        if ( elementToPut == null )
+            return poll();
+        return offer( elementToPut ) ? elementToPut : null;
+    }
+
+    private static void wakeUp( ConcurrentLinkedQueue< Thread > parkedThreads ) {
+        if ( !parkedThreads.isEmpty() ) {
+            Thread parkedThread = parkedThreads.poll();
+            if ( parkedThread != null )
+                LockSupport.unpark( parkedThread );
+        }
+    }
+
+    /**
+     * An AtomicLong followed by enough unused fields to fill the rest of a 64 byte cache line, so that the next
+     * object allocated after it cannot share its line.
+     */
+    @SuppressWarnings( "unused" )
+    private static class PaddedCounter extends AtomicLong {
+        private long padding1, padding2, padding3, padding4, padding5, padding6, padding7;
+    }
+}
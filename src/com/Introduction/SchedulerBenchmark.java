@@ -0,0 +1,198 @@
+package com.Introduction;
+
+/**
+ * Compares three ways of spreading the rows of a Mandelbrot image over a pool of threads:
+ *
+ *   - one Runnable per row, taken from a LinkedBlockingQueue by threads of our own, as in version 4;
+ *   - one Runnable per row, submitted to a fixed thread pool from Executors, as in version 5;
+ *   - a ForkJoinTileRenderer, which splits the image recursively and relies on work stealing.
+ *
+ * Each scheduler renders several viewports that differ in how unevenly the work is spread over the image. For
+ * every run the program prints the wall clock time and the busy time of each thread, measured as the CPU time the
+ * thread used, together with the utilization: the total busy time divided by the number of threads times the wall
+ * clock time. A utilization well below 100% means that threads sat idle while others were still working, which is
+ * what happens at the end of a render when a few expensive rows are left.
+ *
+ * Usage: java com.Introduction.SchedulerBenchmark [ numberOfThreads [ repetitions ] ]
+ */
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+
+public class SchedulerBenchmark {
+
+    private static final int WIDTH = 700;
+    private static final int HEIGHT = 550;
+    private static final int MAXIMUM_ITERATIONS = 10000;
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    public static void main( String[] args ) throws InterruptedException {
+        int numberOfThreads = ( args.length > 0 ) ? Integer.parseInt( args[0] )
+                : Runtime.getRuntime().availableProcessors();
+        int repetitions = ( args.length > 1 ) ? Integer.parseInt( args[1] ) : 3;
+        if ( !threadBean.isThreadCpuTimeSupported() ) {
+            System.out.println( "This JVM cannot measure the CPU time of threads." );
+            return;
+        }
+        threadBean.setThreadCpuTimeEnabled( true );
+        System.out.println( "Threads: " + numberOfThreads + ", best of " + repetitions + " runs" );
+
+        for ( RenderSpec viewport : createViewports() ) {
+            System.out.println();
+            System.out.println( viewport );
+            EscapeTimeRenderer renderer = RenderEngine.createRenderer( viewport );
+            int[] expectedCounts = null;
+            for ( String scheduler : new String[] { "Row queue (version 4)", "Row executor (version 5)",
+                    "Fork/join tiles" } ) {
+                Result best = null;
+                for ( int i = 0; i <= repetitions; i++ ) {  // The first run warms up the JIT compiler.
+                    int[] counts = new int[ WIDTH * HEIGHT ];
+                    Result result = run( scheduler, renderer, counts, numberOfThreads );
+                    if ( expectedCounts == null )
+                        expectedCounts = counts;
+                    else if ( !Arrays.equals( expectedCounts, counts ) )
+                        System.out.println( "    " + scheduler + " computed a different image!" );
+                    if ( i > 0 && ( best == null || result.wallTime < best.wallTime ) )
+                        best = result;
+                }
+                best.print( scheduler );
+            }
+        }
+    }
+
+    private static List< RenderSpec > createViewports() {
+        List< RenderSpec > viewports = new ArrayList<>();
+        // The whole set: a large, expensive interior next to cheap regions.
+        viewports.add( RenderSpec.fromBounds( -2.2, 0.8, -1.2, 1.2, WIDTH, HEIGHT, MAXIMUM_ITERATIONS ) );
+        // The viewport of versions 3 to 5.
+        viewports.add( RenderSpec.fromBounds( -1.6744096740931858, -1.674409674093473,
+                4.716540768697223E-5, 4.716540790246652E-5, WIDTH, HEIGHT, MAXIMUM_ITERATIONS ) );
+        // Seahorse valley: filaments whose cost changes from pixel to pixel.
+        viewports.add( RenderSpec.fromBounds( -0.76, -0.73, 0.09, 0.12, WIDTH, HEIGHT, MAXIMUM_ITERATIONS ) );
+        // Mostly outside the set, with a small expensive region in one corner.
+        viewports.add( RenderSpec.fromBounds( 0.25, 0.75, -0.1, 0.3, WIDTH, HEIGHT, MAXIMUM_ITERATIONS ) );
+        return viewports;
+    }
+
+    private static Result run( String scheduler, EscapeTimeRenderer renderer, int[] counts, int numberOfThreads )
+            throws InterruptedException {
+        List< Thread > threads = new CopyOnWriteArrayList<>();
+        long startTime = System.nanoTime();
+        long[] busyTimes;
+        if ( scheduler.startsWith( "Row queue" ) )
+            busyTimes = runWithRowQueue( renderer, counts, numberOfThreads );
+        else if ( scheduler.startsWith( "Row executor" ) )
+            busyTimes = runWithRowExecutor( renderer, counts, numberOfThreads, threads );
+        else
+            busyTimes = runWithForkJoin( renderer, counts, numberOfThreads, threads );
+        return new Result( System.nanoTime() - startTime, busyTimes );
+    }
+
+    private static void computeRow( EscapeTimeRenderer renderer, int[] counts, int row ) {
+        renderer.iterationsOfRow( row, 0, WIDTH, counts, null, row*WIDTH );
+    }
+
+    /**
+     * Each thread takes rows from the queue until it is empty and then reports its CPU time.
+     */
+    private static long[] runWithRowQueue( EscapeTimeRenderer renderer, int[] counts, int numberOfThreads )
+            throws InterruptedException {
+        LinkedBlockingQueue< Integer > rowQueue = new LinkedBlockingQueue<>();
+        for ( int row = 0; row < HEIGHT; row++ )
+            rowQueue.add( row );
+        long[] busyTimes = new long[ numberOfThreads ];
+        Thread[] threads = new Thread[ numberOfThreads ];
+        for ( int i = 0; i < numberOfThreads; i++ ) {
+            final int threadNumber = i;
+            threads[i] = new Thread( () -> {
+                Integer row;
+                while ( ( row = rowQueue.poll() ) != null )
+                    computeRow( renderer, counts, row );
+                busyTimes[ threadNumber ] = threadBean.getCurrentThreadCpuTime();
+            } );
+            threads[i].start();
+        }
+        for ( Thread thread : threads )
+            thread.join();
+        return busyTimes;
+    }
+
+    private static long[] runWithRowExecutor( EscapeTimeRenderer renderer, int[] counts, int numberOfThreads,
+                                              List< Thread > threads ) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool( numberOfThreads, task -> {
+            Thread thread = new Thread( task );
+            threads.add( thread );
+            return thread;
+        } );
+        CountDownLatch rowsLeft = new CountDownLatch( HEIGHT );
+        for ( int row = 0; row < HEIGHT; row++ ) {
+            final int rowNumber = row;
+            executor.execute( () -> {
+                computeRow( renderer, counts, rowNumber );
+                rowsLeft.countDown();
+            } );
+        }
+        rowsLeft.await();
+        long[] busyTimes = cpuTimesOf( threads );
+        executor.shutdown();
+        return busyTimes;
+    }
+
+    private static long[] runWithForkJoin( EscapeTimeRenderer renderer, int[] counts, int numberOfThreads,
+                                           List< Thread > threads ) {
+        ForkJoinPool pool = new ForkJoinPool( numberOfThreads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( forkJoinPool );
+            threads.add( thread );
+            return thread;
+        }, null, false );
+        pool.invoke( new RecursiveAction() {
+            protected void compute() {
+                new ForkJoinTileRenderer( renderer, counts ).render( null );
+            }
+        } );
+        long[] busyTimes = cpuTimesOf( threads );
+        pool.shutdown();
+        return busyTimes;
+    }
+
+    private static long[] cpuTimesOf( List< Thread > threads ) {
+        long[] cpuTimes = new long[ threads.size() ];
+        for ( int i = 0; i < cpuTimes.length; i++ )
+            cpuTimes[i] = Math.max( 0, threadBean.getThreadCpuTime( threads.get( i ).getId() ) );
+        return cpuTimes;
+    }
+
+    private static class Result {
+
+        private final long wallTime;
+        private final long[] busyTimes;
+
+        Result( long wallTime, long[] busyTimes ) {
+            this.wallTime = wallTime;
+            this.busyTimes = busyTimes;
+        }
+
+        void print( String scheduler ) {
+            long totalBusyTime = 0;
+            StringBuilder perThread = new StringBuilder();
+            for ( long busyTime : busyTimes ) {
+                totalBusyTime += busyTime;
+                perThread.append( String.format( " %d", busyTime / 1_000_000 ) );
+            }
+            double utilization = ( double ) totalBusyTime / ( ( double ) wallTime * busyTimes.length );
+            System.out.printf( "    %-26s %7.1f ms, utilization %5.1f%%, busy ms per thread:%s%n", scheduler,
+                    wallTime / 1e6, 100 * utilization, perThread );
+        }
+    }
+}
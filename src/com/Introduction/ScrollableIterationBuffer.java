@@ -0,0 +1,147 @@
+package com.Introduction;
+
+/**
+ * Keeps the iteration counts of the pixels on screen so that they can be reused when the view is panned. The
+ * buffer is a ring buffer in both directions: scrolling it only moves its origin, and the pixels that scroll out on
+ * one side become the newly exposed pixels on the other side. Those are marked invalid, and only invalid pixels
+ * have to be computed again, so the cost of a pan is proportional to the area it exposes.
+ *
+ * Besides the iteration count, every pixel keeps its smooth iteration count (see
+ * EscapeTimeRenderer.iterationsAt), so the image can be colored again in any way without iterating again
+ * (see Colorizer).
+ *
+ * The buffer is not thread-safe. In MandelbrotExplorer it is only used on the JavaFX application thread; the
+ * worker threads hand their results over with Platform.runLater.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ScrollableIterationBuffer {
+
+    private final int width;
+    private final int height;
+    private final int[] counts;
+    private final float[] smoothCounts;
+    private final boolean[] valid;
+    private int originColumn;
+    private int originRow;
+
+    public ScrollableIterationBuffer( int width, int height ) {
+        this.width = width;
+        this.height = height;
+        counts = new int[ width * height ];
+        smoothCounts = new float[ width * height ];
+        valid = new boolean[ width * height ];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    private int indexOf( int column, int row ) {
+        int bufferColumn = column + originColumn;
+        if ( bufferColumn >= width )
+            bufferColumn -= width;
+        int bufferRow = row + originRow;
+        if ( bufferRow >= height )
+            bufferRow -= height;
+        return bufferRow * width + bufferColumn;
+    }
+
+    public int get( int column, int row ) {
+        return counts[ indexOf( column, row ) ];
+    }
+
+    public float getSmoothCount( int column, int row ) {
+        return smoothCounts[ indexOf( column, row ) ];
+    }
+
+    public boolean isValid( int column, int row ) {
+        return valid[ indexOf( column, row ) ];
+    }
+
+    /**
+     * Stores the count of a pixel and marks it as valid.
+     */
+    public void set( int column, int row, int count, float smoothCount ) {
+        int index = indexOf( column, row );
+        counts[ index ] = count;
+        smoothCounts[ index ] = smoothCount;
+        valid[ index ] = true;
+    }
+
+    /**
+     * Copies the buffer into row-major arrays, in view order. Pixels that are not valid get a count of -1.
+     */
+    public void copyTo( int[] countsByRow, float[] smoothCountsByRow ) {
+        for ( int row = 0; row < height; row++ )
+            for ( int column = 0; column < width; column++ ) {
+                int index = indexOf( column, row );
+                countsByRow[ row*width + column ] = valid[ index ] ? counts[ index ] : -1;
+                smoothCountsByRow[ row*width + column ] = smoothCounts[ index ];
+            }
+    }
+
+    public void invalidateAll() {
+        Arrays.fill( valid, false );
+    }
+
+    /**
+     * Moves the view right by the given number of columns and down by the given number of rows. What was at
+     * ( column + columns, row + rows ) is now at ( column, row ), and the pixels that come into view are invalid.
+     */
+    public void scroll( int columns, int rows ) {
+        if ( Math.abs( columns ) >= width || Math.abs( rows ) >= height ) {
+            invalidateAll();
+            return;
+        }
+        originColumn = Math.floorMod( originColumn + columns, width );
+        originRow = Math.floorMod( originRow + rows, height );
+        if ( columns > 0 )
+            invalidateColumns( width - columns, width );
+        else if ( columns < 0 )
+            invalidateColumns( 0, -columns );
+        if ( rows > 0 )
+            invalidateRows( height - rows, height );
+        else if ( rows < 0 )
+            invalidateRows( 0, -rows );
+    }
+
+    private void invalidateColumns( int fromColumn, int toColumn ) {
+        for ( int row = 0; row < height; row++ )
+            for ( int column = fromColumn; column < toColumn; column++ )
+                valid[ indexOf( column, row ) ] = false;
+    }
+
+    private void invalidateRows( int fromRow, int toRow ) {
+        for ( int row = fromRow; row < toRow; row++ )
+            for ( int column = 0; column < width; column++ )
+                valid[ indexOf( column, row ) ] = false;
+    }
+
+    /**
+     * Returns the runs of invalid pixels, row by row, as { row, first column, last column + 1 }. These are the
+     * pieces of work needed to make the whole buffer valid again.
+     */
+    public ArrayList< int[] > findInvalidRowSegments() {
+        ArrayList< int[] > segments = new ArrayList<>();
+        for ( int row = 0; row < height; row++ ) {
+            int column = 0;
+            while ( column < width ) {
+                if ( isValid( column, row ) ) {
+                    column++;
+                    continue;
+                }
+                int firstColumn = column;
+                while ( column < width && !isValid( column, row ) )
+                    column++;
+                segments.add( new int[] { row, firstColumn, column } );
+            }
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,191 @@
+package com.Introduction;
+
+/**
+ * Compares ParallelQuickSort and ParallelRadixSort with the sorts of the JDK on large int arrays:
+ *
+ *   - Arrays.sort, the sequential dual-pivot quicksort, which every speed-up is measured against;
+ *   - Arrays.parallelSort, which sorts slices in parallel and merges them;
+ *   - ParallelQuickSort with its default cutoff, and with a few smaller and larger ones, to show how the cutoff
+ *     between forking and sorting sequentially was chosen;
+ *   - ParallelQuickSort with the cutoff set to the length of the array, which sorts on one thread and shows what the
+ *     same algorithm does without any parallelism;
+ *   - ParallelRadixSort, which does not compare keys at all.
+ *
+ * Every sort gets the same input, copied before the clock starts, in four kinds: random values, values that are
+ * already sorted, values sorted in reverse, and random values from only a handful of different ones. Each sort runs
+ * several times and the best time is reported, together with the speed-up over Arrays.sort; the first few runs of
+ * each sort warm up the JIT compiler and are not counted. Every result is checked against that of Arrays.sort. All of
+ * this is repeated for every length given; the time of a radix sort grows in proportion to the length, that of the
+ * quicksorts a little faster. Finally Arrays.sort, Arrays.parallelSort and ParallelRadixSort are compared on long
+ * keys of the same four kinds, for which the radix sort needs half as many passes again as for ints.
+ *
+ * Arrays of hundreds of millions of elements need a larger heap than the default, as three arrays of the length,
+ * besides the scratch array of the radix sort, are in memory at the same time; for example
+ * java -Xmx4g com.Introduction.SortBenchmark 3 300000000.
+ *
+ * Usage: java com.Introduction.SortBenchmark [ runs [ length ... ] ]
+ */
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+public class SortBenchmark {
+
+    private static final int[] CUTOFFS = { 1 << 10, ParallelQuickSort.DEFAULT_CUTOFF, 1 << 16, 1 << 19 };
+    private static final int DISTINCT_VALUES = 16;
+    private static final int WARM_UP_RUNS = 3;
+
+    public static void main( String[] args ) {
+        int runs = ( args.length > 0 ) ? Integer.parseInt( args[0] ) : 3;
+        int[] lengths = { 100_000, 1_000_000, 10_000_000 };
+        if ( args.length > 1 ) {
+            lengths = new int[ args.length - 1 ];
+            for ( int i = 1; i < args.length; i++ )
+                lengths[ i - 1 ] = Integer.parseInt( args[i] );
+        }
+        System.out.println( "Processors: " + Runtime.getRuntime().availableProcessors()
+                + ", parallelism of the common pool: " + ForkJoinPool.commonPool().getParallelism() + ", best of "
+                + runs + " runs" );
+        warmUp();
+        for ( int length : lengths )
+            compareIntSorts( length, runs );
+        for ( int length : lengths )
+            compareLongSorts( length, runs );
+    }
+
+    /**
+     * Sorts a random array with every sort a few times before anything is measured. The sorts of the JDK share their
+     * code, and otherwise whichever of them is measured first pays for compiling it.
+     */
+    private static void warmUp() {
+        int[] original = createInput( "Random", 1_000_000 );
+        long[] originalLongs = createLongInput( "Random", 1_000_000 );
+        for ( String sort : new String[] { "Arrays.sort", "Arrays.parallelSort", "ParallelQuickSort",
+                "ParallelRadixSort" } )
+            time( sort, original, new int[ original.length ], 1, null, ParallelQuickSort.DEFAULT_CUTOFF );
+        for ( String sort : new String[] { "Arrays.sort", "Arrays.parallelSort", "ParallelRadixSort" } )
+            time( sort, originalLongs, new long[ originalLongs.length ], 1, null );
+    }
+
+    private static void compareIntSorts( int length, int runs ) {
+        for ( String input : new String[] { "Random", "Sorted", "Reversed", "Few distinct values" } ) {
+            System.out.println();
+            System.out.println( input + ", length " + length );
+            int[] original = createInput( input, length );
+            int[] expected = original.clone();
+            int[] array = new int[ length ];
+            long arraysSortTime = time( "Arrays.sort", original, array, runs, null, 0 );
+            System.arraycopy( array, 0, expected, 0, length );
+            print( "Arrays.sort", arraysSortTime, arraysSortTime );
+            print( "Arrays.parallelSort", time( "Arrays.parallelSort", original, array, runs, expected, 0 ),
+                    arraysSortTime );
+            for ( int cutoff : CUTOFFS )
+                print( "ParallelQuickSort, cutoff " + cutoff,
+                        time( "ParallelQuickSort", original, array, runs, expected, cutoff ), arraysSortTime );
+            print( "ParallelQuickSort, one thread",
+                    time( "ParallelQuickSort", original, array, runs, expected, Math.max( 1, length ) ),
+                    arraysSortTime );
+            print( "ParallelRadixSort", time( "ParallelRadixSort", original, array, runs, expected, 0 ),
+                    arraysSortTime );
+        }
+    }
+
+    private static void compareLongSorts( int length, int runs ) {
+        for ( String input : new String[] { "Random", "Sorted", "Reversed", "Few distinct values" } ) {
+            System.out.println();
+            System.out.println( input + ", long keys, length " + length );
+            long[] original = createLongInput( input, length );
+            long[] expected = original.clone();
+            long[] array = new long[ length ];
+            long arraysSortTime = time( "Arrays.sort", original, array, runs, null );
+            System.arraycopy( array, 0, expected, 0, length );
+            print( "Arrays.sort", arraysSortTime, arraysSortTime );
+            print( "Arrays.parallelSort", time( "Arrays.parallelSort", original, array, runs, expected ),
+                    arraysSortTime );
+            print( "ParallelRadixSort", time( "ParallelRadixSort", original, array, runs, expected ),
+                    arraysSortTime );
+        }
+    }
+
+    private static int[] createInput( String input, int length ) {
+        SplittableRandom random = new SplittableRandom( 42 );
+        int[] array = new int[ length ];
+        for ( int i = 0; i < length; i++ ) {
+            if ( input.equals( "Random" ) )
+                array[i] = random.nextInt();
+            else if ( input.equals( "Sorted" ) )
+                array[i] = i;
+            else if ( input.equals( "Reversed" ) )
+                array[i] = length - i;
+            else
+                array[i] = random.nextInt( DISTINCT_VALUES );
+        }
+        return array;
+    }
+
+    private static long[] createLongInput( String input, int length ) {
+        SplittableRandom random = new SplittableRandom( 42 );
+        long[] array = new long[ length ];
+        for ( int i = 0; i < length; i++ ) {
+            if ( input.equals( "Random" ) )
+                array[i] = random.nextLong();
+            else if ( input.equals( "Sorted" ) )
+                array[i] = i;
+            else if ( input.equals( "Reversed" ) )
+                array[i] = length - i;
+            else
+                array[i] = random.nextInt( DISTINCT_VALUES );
+        }
+        return array;
+    }
+
+    /**
+     * Returns the best time in nanoseconds of the given sort, leaving the sorted array in array. If expected is not
+     * null, the result of every run is compared with it.
+     */
+    private static long time( String sort, int[] original, int[] array, int runs, int[] expected, int cutoff ) {
+        long best = Long.MAX_VALUE;
+        for ( int run = 0; run < WARM_UP_RUNS + runs; run++ ) {
+            System.arraycopy( original, 0, array, 0, original.length );
+            long startTime = System.nanoTime();
+            if ( sort.equals( "Arrays.sort" ) )
+                Arrays.sort( array );
+            else if ( sort.equals( "Arrays.parallelSort" ) )
+                Arrays.parallelSort( array );
+            else if ( sort.equals( "ParallelRadixSort" ) )
+                ParallelRadixSort.sort( array );
+            else
+                ParallelQuickSort.sort( array, 0, array.length, cutoff );
+            long time = System.nanoTime() - startTime;
+            if ( run >= WARM_UP_RUNS )
+                best = Math.min( best, time );
+            if ( expected != null && !Arrays.equals( expected, array ) )
+                System.out.println( "    " + sort + " did not sort the array!" );
+        }
+        return best;
+    }
+
+    private static long time( String sort, long[] original, long[] array, int runs, long[] expected ) {
+        long best = Long.MAX_VALUE;
+        for ( int run = 0; run < WARM_UP_RUNS + runs; run++ ) {
+            System.arraycopy( original, 0, array, 0, original.length );
+            long startTime = System.nanoTime();
+            if ( sort.equals( "Arrays.sort" ) )
+                Arrays.sort( array );
+            else if ( sort.equals( "Arrays.parallelSort" ) )
+                Arrays.parallelSort( array );
+            else
+                ParallelRadixSort.sort( array );
+            long time = System.nanoTime() - startTime;
+            if ( run >= WARM_UP_RUNS )
+                best = Math.min( best, time );
+            if ( expected != null && !Arrays.equals( expected, array ) )
+                System.out.println( "    " + sort + " did not sort the array!" );
+        }
+        return best;
+    }
+
+    private static void print( String sort, long time, long arraysSortTime ) {
+        System.out.printf( "    %-34s %9.1f ms  speed-up %5.2f%n", sort, time / 1e6, ( double ) arraysSortTime / time );
+    }
+}
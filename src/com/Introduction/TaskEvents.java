@@ -0,0 +1,181 @@
+package com.Introduction;
+
+/**
+ * Java Flight Recorder events for the life of a task, so that a recording shows the tasks of the programs next to
+ * the garbage collections, safepoints and thread states that JFR records anyway. A task is named by its pool and a
+ * number within the pool, usually its row; tasks of the explorer also carry their render generation.
+ *
+ * The methods here create an event, ask whether it is enabled and only then fill it in and commit it, so that without
+ * a recording a call costs a small allocation that never leaves the method and a check. The events that span a task
+ * or a flush are returned to the caller, though, and would have to be allocated and timed for every task; when
+ * their kind of event is not enabled, started() and flushStarted() therefore return a shared event instead, which
+ * ended() and flushEnded() recognize and ignore. The calls can thus stay in the tasks for good. Record with, for
+ * example,
+ *
+ *      java -XX:StartFlightRecording=filename=tasks.jfr ...
+ *      jfr print --categories "Threads And Multiprocessing" tasks.jfr
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+final class TaskEvents {
+
+    private static final EventType TASK_ENDED = EventType.getEventType( TaskEnded.class );
+    private static final EventType FX_FLUSH = EventType.getEventType( FxFlush.class );
+    private static final TaskEnded TASK_NOT_RECORDED = new TaskEnded();
+    private static final FxFlush FLUSH_NOT_RECORDED = new FxFlush();
+
+    private TaskEvents() {
+    }
+
+    static void submitted( String pool, long task, int generation ) {
+        TaskSubmitted event = new TaskSubmitted();
+        if ( event.isEnabled() ) {
+            event.set( pool, task, generation );
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the start of a task and returns the event that ended() will commit. The returned event measures the
+     * run time of the task, unless task ends are not being recorded.
+     */
+    static TaskEnded started( String pool, long task, int generation ) {
+        TaskStarted event = new TaskStarted();
+        if ( event.isEnabled() ) {
+            event.set( pool, task, generation );
+            event.commit();
+        }
+        if ( !TASK_ENDED.isEnabled() )
+            return TASK_NOT_RECORDED;
+        TaskEnded end = new TaskEnded();
+        end.begin();
+        return end;
+    }
+
+    static void ended( TaskEnded event, String pool, long task, int generation ) {
+        if ( event != TASK_NOT_RECORDED && event.shouldCommit() ) {
+            event.set( pool, task, generation );
+            event.commit();
+        }
+    }
+
+    /**
+     * Records that tasks were given up: a running task that stopped before it was done, in which case the number of
+     * tasks is 1, or the tasks that were still queued when a job was stopped, in which case the task number is -1.
+     */
+    static void cancelled( String pool, long task, int generation, int numberOfTasks ) {
+        TaskCancelled event = new TaskCancelled();
+        if ( event.isEnabled() ) {
+            event.set( pool, task, generation );
+            event.numberOfTasks = numberOfTasks;
+            event.commit();
+        }
+    }
+
+    static void generationChanged( int generation, String renderMode ) {
+        GenerationChanged event = new GenerationChanged();
+        if ( event.isEnabled() ) {
+            event.generation = generation;
+            event.renderMode = renderMode;
+            event.commit();
+        }
+    }
+
+    /**
+     * Call this on the application thread before it draws a row that a task has computed, and flushEnded()
+     * afterwards.
+     */
+    static FxFlush flushStarted() {
+        if ( !FX_FLUSH.isEnabled() )
+            return FLUSH_NOT_RECORDED;
+        FxFlush event = new FxFlush();
+        event.begin();
+        return event;
+    }
+
+    static void flushEnded( FxFlush event, String pool, int row, int numberOfPixels ) {
+        if ( event != FLUSH_NOT_RECORDED && event.shouldCommit() ) {
+            event.pool = pool;
+            event.row = row;
+            event.numberOfPixels = numberOfPixels;
+            event.commit();
+        }
+    }
+
+    @Category( { "Threads And Multiprocessing", "Tasks" } )
+    abstract static class TaskEvent extends Event {
+
+        @Label( "Pool" )
+        String pool;
+
+        @Label( "Task" )
+        long task;
+
+        @Label( "Generation" )
+        @Description( "The render generation of the task, or 0 for programs without generations" )
+        int generation;
+
+        void set( String pool, long task, int generation ) {
+            this.pool = pool;
+            this.task = task;
+            this.generation = generation;
+        }
+    }
+
+    @Name( "com.Introduction.TaskSubmitted" )
+    @Label( "Task Submitted" )
+    static class TaskSubmitted extends TaskEvent {
+    }
+
+    @Name( "com.Introduction.TaskStarted" )
+    @Label( "Task Started" )
+    static class TaskStarted extends TaskEvent {
+    }
+
+    @Name( "com.Introduction.TaskEnded" )
+    @Label( "Task Ended" )
+    @Description( "Spans the run of the task, from its start to its end" )
+    static class TaskEnded extends TaskEvent {
+    }
+
+    @Name( "com.Introduction.TaskCancelled" )
+    @Label( "Task Cancelled" )
+    static class TaskCancelled extends TaskEvent {
+
+        @Label( "Number of Tasks" )
+        int numberOfTasks;
+    }
+
+    @Name( "com.Introduction.GenerationChanged" )
+    @Label( "Render Generation Changed" )
+    @Category( { "Threads And Multiprocessing", "Rendering" } )
+    static class GenerationChanged extends Event {
+
+        @Label( "Generation" )
+        int generation;
+
+        @Label( "Render Mode" )
+        String renderMode;
+    }
+
+    @Name( "com.Introduction.FxFlush" )
+    @Label( "FX Flush" )
+    @Description( "The application thread drawing a row of pixels computed by a task" )
+    @Category( { "Threads And Multiprocessing", "Rendering" } )
+    static class FxFlush extends Event {
+
+        @Label( "Pool" )
+        String pool;
+
+        @Label( "Row" )
+        int row;
+
+        @Label( "Number of Pixels" )
+        int numberOfPixels;
+    }
+}
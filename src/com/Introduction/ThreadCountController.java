@@ -0,0 +1,246 @@
+package com.Introduction;
+
+/**
+ * Finds a good number of threads for a ThreadPoolExecutor while it runs, instead of always using one thread per
+ * processor. On a machine that other programs are using as well, one per processor can be too many, so that the
+ * threads only take turns, or too few, when the threads spend part of their time waiting.
+ *
+ * The controller measures the number of completed tasks per second over a fixed interval and climbs the hill: it
+ * keeps changing the thread count by one in the same direction as long as the throughput goes up, and turns around
+ * when it goes down. Changes smaller than the hysteresis are treated as noise; the count is then left alone, except
+ * that after a few such quiet intervals the controller takes a step anyway, in case the best count has moved.
+ * Intervals in which the pool ran out of work say nothing about the thread count, so they are skipped.
+ *
+ * The count always stays within the minimum and maximum, which can be changed while the controller runs. The pool
+ * can also be resized by hand with setThreadCount( int ), which takes the controller's lock like the controller
+ * itself, so that the two never resize the pool at the same time; the controller then carries on from the new size.
+ * Its measurements and decisions are published over JMX by register().
+ */
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class ThreadCountController implements ThreadCountControllerMXBean {
+
+    private static final long SAMPLE_INTERVAL = 250;  // milliseconds
+    private static final double HYSTERESIS = 0.05;
+    private static final int QUIET_INTERVALS_BEFORE_PROBING = 4;
+
+    private final String poolName;
+    private final ThreadPoolExecutor pool;
+    private final ScheduledExecutorService sampler;
+
+    // All of these are guarded by the controller's lock.
+    private int minimumThreadCount;
+    private int maximumThreadCount;
+    private long lastSampleTime;
+    private long lastCompletedTasks;
+    private double lastThroughput;
+    private double throughput;
+    private int direction = 1;
+    private int quietIntervals;
+    private long numberOfSamples;
+    private long numberOfAdjustments;
+    private String lastDecision = "None yet";
+
+    public ThreadCountController( String poolName, ThreadPoolExecutor pool, int minimumThreadCount,
+                                  int maximumThreadCount ) {
+        if ( minimumThreadCount < 1 || maximumThreadCount < minimumThreadCount )
+            throw new IllegalArgumentException( "Need 1 <= minimum <= maximum." );
+        this.poolName = poolName;
+        this.pool = pool;
+        this.minimumThreadCount = minimumThreadCount;
+        this.maximumThreadCount = maximumThreadCount;
+        sampler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            Thread thread = new Thread( runnable, poolName + " thread count controller" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    /**
+     * Sets the pool to the given size, clamped to the range, and starts sampling.
+     */
+    synchronized public void start( int initialThreadCount ) {
+        setThreadCount( pool, clamp( initialThreadCount ) );
+        lastSampleTime = System.nanoTime();
+        lastCompletedTasks = pool.getCompletedTaskCount();
+        sampler.scheduleAtFixedRate( this::sample, SAMPLE_INTERVAL, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Stops sampling. The pool keeps the size it has.
+     */
+    public void stop() {
+        sampler.shutdownNow();
+    }
+
+    /**
+     * Publishes the controller under com.Introduction:type=ThreadCountController,name=<pool name>. An earlier
+     * registration under the same name is replaced.
+     */
+    public void register() {
+        try {
+            ObjectName name = new ObjectName( "com.Introduction:type=ThreadCountController,name="
+                    + ObjectName.quote( poolName ) );
+            if ( ManagementFactory.getPlatformMBeanServer().isRegistered( name ) )
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( name );
+            ManagementFactory.getPlatformMBeanServer().registerMBean( this, name );
+        }
+        catch ( JMException e ) {
+            System.out.println( "Cannot publish the thread count controller of " + poolName + ": " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Resizes a ThreadPoolExecutor while it runs. The core size may never exceed the maximum size, so the pool is
+     * grown maximum first and shrunk core first. Growing the core size starts new threads at once if tasks are
+     * waiting in the queue; when the pool shrinks, the extra threads stop after their current task.
+     */
+    public static void setThreadCount( ThreadPoolExecutor pool, int numberOfThreads ) {
+        if ( numberOfThreads < 1 )
+            throw new IllegalArgumentException( "A pool needs at least one thread." );
+        if ( numberOfThreads > pool.getMaximumPoolSize() ) {
+            pool.setMaximumPoolSize( numberOfThreads );
+            pool.setCorePoolSize( numberOfThreads );
+        }
+        else {
+            pool.setCorePoolSize( numberOfThreads );
+            pool.setMaximumPoolSize( numberOfThreads );
+        }
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getThreadCount() {
+        return pool.getCorePoolSize();
+    }
+
+    /**
+     * Resizes the pool to the given size, clamped to the range. The next sample is measured from now and is not
+     * compared with the throughput before the change, which says nothing about the new size.
+     */
+    synchronized public void setThreadCount( int numberOfThreads ) {
+        if ( numberOfThreads < 1 )
+            throw new IllegalArgumentException( "A pool needs at least one thread." );
+        int newThreadCount = clamp( numberOfThreads );
+        setThreadCount( pool, newThreadCount );
+        lastSampleTime = System.nanoTime();
+        lastCompletedTasks = pool.getCompletedTaskCount();
+        lastThroughput = 0;
+        quietIntervals = 0;
+        lastDecision = String.format( "Set to %d threads by hand", newThreadCount );
+    }
+
+    synchronized public int getMinimumThreadCount() {
+        return minimumThreadCount;
+    }
+
+    synchronized public void setMinimumThreadCount( int minimumThreadCount ) {
+        if ( minimumThreadCount < 1 || minimumThreadCount > maximumThreadCount )
+            throw new IllegalArgumentException( "Need 1 <= minimum <= maximum." );
+        this.minimumThreadCount = minimumThreadCount;
+        setThreadCount( pool, clamp( pool.getCorePoolSize() ) );
+    }
+
+    synchronized public int getMaximumThreadCount() {
+        return maximumThreadCount;
+    }
+
+    synchronized public void setMaximumThreadCount( int maximumThreadCount ) {
+        if ( maximumThreadCount < minimumThreadCount )
+            throw new IllegalArgumentException( "Need 1 <= minimum <= maximum." );
+        this.maximumThreadCount = maximumThreadCount;
+        setThreadCount( pool, clamp( pool.getCorePoolSize() ) );
+    }
+
+    synchronized public double getThroughput() {
+        return throughput;
+    }
+
+    synchronized public int getDirection() {
+        return direction;
+    }
+
+    synchronized public long getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    synchronized public long getNumberOfAdjustments() {
+        return numberOfAdjustments;
+    }
+
+    synchronized public String getLastDecision() {
+        return lastDecision;
+    }
+
+    /**
+     * Runs on the sampler thread. An exception would stop the scheduled sampling for good, so it is only reported.
+     */
+    synchronized private void sample() {
+        try {
+            sampleAndAdjust();
+        }
+        catch ( RuntimeException e ) {
+            lastDecision = "Failed: " + e;
+            System.out.println( "The thread count controller of " + poolName + " failed: " + e );
+        }
+    }
+
+    private void sampleAndAdjust() {
+        long now = System.nanoTime();
+        long completedTasks = pool.getCompletedTaskCount();
+        throughput = ( completedTasks - lastCompletedTasks ) * 1e9 / ( now - lastSampleTime );
+        lastSampleTime = now;
+        lastCompletedTasks = completedTasks;
+        numberOfSamples++;
+        int threadCount = pool.getCorePoolSize();
+        if ( pool.getQueue().isEmpty() && pool.getActiveCount() < threadCount ) {
+            lastDecision = String.format( "Kept %d threads: ran out of work", threadCount );
+            return;  // The next interval is compared with the last one that had enough work.
+        }
+        if ( throughput == 0 ) {
+            lastDecision = String.format( "Kept %d threads: no task finished", threadCount );
+            return;
+        }
+        boolean firstSample = ( lastThroughput == 0 );
+        double change = firstSample ? 0 : throughput / lastThroughput - 1;
+        lastThroughput = throughput;
+        if ( Math.abs( change ) < HYSTERESIS ) {
+            quietIntervals++;
+            if ( firstSample || quietIntervals < QUIET_INTERVALS_BEFORE_PROBING ) {
+                lastDecision = String.format( "Kept %d threads: throughput changed by %+.1f%%", threadCount,
+                        100 * change );
+                return;
+            }
+        }
+        else if ( change < 0 )
+            direction = -direction;  // The last step made things worse, so go back.
+        quietIntervals = 0;
+        step( threadCount, change );
+    }
+
+    private void step( int threadCount, double change ) {
+        int newThreadCount = clamp( threadCount + direction );
+        if ( newThreadCount == threadCount ) {
+            direction = -direction;  // At the edge of the range, the only way is back.
+            newThreadCount = clamp( threadCount + direction );
+        }
+        if ( newThreadCount != threadCount ) {
+            setThreadCount( pool, newThreadCount );
+            numberOfAdjustments++;
+        }
+        lastDecision = String.format( "%d -> %d threads: throughput %.1f tasks/s, changed by %+.1f%%", threadCount,
+                newThreadCount, throughput, 100 * change );
+    }
+
+    private int clamp( int threadCount ) {
+        return Math.max( minimumThreadCount, Math.min( maximumThreadCount, threadCount ) );
+    }
+}
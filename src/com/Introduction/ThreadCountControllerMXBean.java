@@ -0,0 +1,41 @@
+package com.Introduction;
+
+/**
+ * The view of a ThreadCountController that is published over JMX: what it measured, what it decided, and the range
+ * it may choose from, which can be changed while it runs.
+ */
+public interface ThreadCountControllerMXBean {
+
+    String getPoolName();
+
+    int getThreadCount();
+
+    /**
+     * Resizes the pool by hand, within the range. The controller carries on from the new size.
+     */
+    void setThreadCount( int numberOfThreads );
+
+    int getMinimumThreadCount();
+
+    void setMinimumThreadCount( int minimumThreadCount );
+
+    int getMaximumThreadCount();
+
+    void setMaximumThreadCount( int maximumThreadCount );
+
+    /**
+     * Completed tasks per second in the last sample interval.
+     */
+    double getThroughput();
+
+    /**
+     * +1 if the controller is currently adding threads, -1 if it is removing them.
+     */
+    int getDirection();
+
+    long getNumberOfSamples();
+
+    long getNumberOfAdjustments();
+
+    String getLastDecision();
+}
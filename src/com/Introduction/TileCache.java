@@ -0,0 +1,253 @@
+package com.Introduction;
+
+/**
+ * Keeps computed tiles of iteration counts and smooth counts (see TileKey) so that re-rendering a view, panning
+ * back to an earlier position or changing the colors never has to compute the same tile twice. Tiles are kept in
+ * memory up to a budget in bytes; when the budget is exceeded the least recently used tiles are evicted. If a spill
+ * directory is given, evicted tiles are written there and read back when they are needed again, which is still far
+ * cheaper than iterating 10000 times per pixel.
+ *
+ * The tiles are looked up and stored by the threads of a thread pool, so the state of the cache is guarded by its
+ * lock. Files are never read or written while holding it, though: a thread that spills or reads back a tile would
+ * otherwise block every other thread that only wants a tile from memory. A tile that has been evicted but not yet
+ * written is kept among the pending spills until it has been, and can still be found there in the meantime.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TileCache {
+
+    private static final int BYTES_PER_ENTRY_OVERHEAD = 128;
+
+    private final long byteBudget;
+    private final Path spillDirectory;
+    private final LinkedHashMap< TileKey, Tile > tiles = new LinkedHashMap<>( 256, 0.75f, true );
+    private final HashMap< TileKey, Tile > pendingSpills = new HashMap<>();
+    private final HashSet< TileKey > spilledTiles = new HashSet<>();
+    private long bytesInMemory;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache that only keeps tiles in memory.
+     */
+    public TileCache( long byteBudget ) {
+        this( byteBudget, null );
+    }
+
+    /**
+     * Creates a cache that writes tiles evicted from memory to spillDirectory, which may be null.
+     */
+    public TileCache( long byteBudget, Path spillDirectory ) {
+        this.byteBudget = byteBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Returns the tile, or null if the tile has to be computed.
+     */
+    public Tile get( TileKey key ) {
+        synchronized ( this ) {
+            Tile tile = tiles.get( key );
+            if ( tile == null )
+                tile = pendingSpills.get( key );
+            if ( tile != null ) {
+                hits++;
+                return tile;
+            }
+            if ( !spilledTiles.contains( key ) ) {
+                misses++;
+                return null;
+            }
+        }
+        Tile tile = readBack( key );
+        synchronized ( this ) {
+            if ( tile == null )
+                misses++;
+            else
+                hits++;
+        }
+        if ( tile != null )
+            put( key, tile );
+        return tile;
+    }
+
+    /**
+     * Stores the tile in memory. If that exceeds the budget, the tiles evicted to make room are written to the spill
+     * directory by the calling thread before this returns.
+     */
+    public void put( TileKey key, Tile tile ) {
+        ArrayList< TileKey > evictedKeys = new ArrayList<>();
+        ArrayList< Tile > evictedTiles = new ArrayList<>();
+        synchronized ( this ) {
+            Tile previous = tiles.put( key, tile );
+            if ( previous != null )
+                bytesInMemory -= sizeOf( previous );
+            bytesInMemory += sizeOf( tile );
+            evictLeastRecentlyUsedTiles( evictedKeys, evictedTiles );
+        }
+        for ( int i = 0; i < evictedKeys.size(); i++ )
+            spill( evictedKeys.get( i ), evictedTiles.get( i ) );
+    }
+
+    synchronized public long getBytesInMemory() {
+        return bytesInMemory;
+    }
+
+    synchronized public int getNumberOfTilesInMemory() {
+        return tiles.size();
+    }
+
+    synchronized public int getNumberOfSpilledTiles() {
+        return spilledTiles.size();
+    }
+
+    synchronized public long getHits() {
+        return hits;
+    }
+
+    synchronized public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The bytes of both arrays of the tile, 4 per int and 4 per float, plus the overhead of the tile, its arrays and
+     * its entry in the map.
+     */
+    private static long sizeOf( Tile tile ) {
+        return 4L * tile.counts.length + 4L * tile.smoothCounts.length + BYTES_PER_ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Removes tiles from memory until the budget is met again. The tiles that have to be written to the spill
+     * directory are added to the lists and to the pending spills. Only to be called while holding the lock.
+     */
+    private void evictLeastRecentlyUsedTiles( ArrayList< TileKey > evictedKeys, ArrayList< Tile > evictedTiles ) {
+        Iterator< Map.Entry< TileKey, Tile > > leastRecentlyUsedFirst = tiles.entrySet().iterator();
+        while ( bytesInMemory > byteBudget && leastRecentlyUsedFirst.hasNext() ) {
+            Map.Entry< TileKey, Tile > entry = leastRecentlyUsedFirst.next();
+            bytesInMemory -= sizeOf( entry.getValue() );
+            if ( spillDirectory != null && !spilledTiles.contains( entry.getKey() )
+                    && !pendingSpills.containsKey( entry.getKey() ) ) {
+                pendingSpills.put( entry.getKey(), entry.getValue() );
+                evictedKeys.add( entry.getKey() );
+                evictedTiles.add( entry.getValue() );
+            }
+            leastRecentlyUsedFirst.remove();
+        }
+    }
+
+    /**
+     * Writes an evicted tile to the spill directory, without holding the lock, and then moves it from the pending
+     * spills to the spilled tiles. If the cache has been cleared in the meantime, the file is deleted again. The file
+     * holds the counts followed by the smooth counts.
+     */
+    private void spill( TileKey key, Tile tile ) {
+        int length = tile.counts.length;
+        ByteBuffer bytes = ByteBuffer.allocate( 8 * length );
+        bytes.asIntBuffer().put( tile.counts );
+        bytes.position( 4 * length );
+        bytes.asFloatBuffer().put( tile.smoothCounts );
+        boolean written;
+        try {
+            Files.write( spillFileOf( key ), bytes.array() );
+            written = true;
+        }
+        catch ( IOException e ) {
+            System.out.println( "Cannot spill tile " + key + ": " + e.getMessage() );
+            written = false;
+        }
+        boolean cleared;
+        synchronized ( this ) {
+            cleared = pendingSpills.remove( key ) == null;
+            if ( written && !cleared )
+                spilledTiles.add( key );
+        }
+        if ( written && cleared )
+            deleteSpillFile( key );
+    }
+
+    /**
+     * Reads a spilled tile back, without holding the lock. The file is kept, so the tile does not have to be written
+     * again if it is evicted again.
+     */
+    private Tile readBack( TileKey key ) {
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap( Files.readAllBytes( spillFileOf( key ) ) );
+            int length = bytes.capacity() / 8;
+            int[] counts = new int[ length ];
+            float[] smoothCounts = new float[ length ];
+            bytes.asIntBuffer().get( counts );
+            bytes.position( 4 * length );
+            bytes.asFloatBuffer().get( smoothCounts );
+            return new Tile( counts, smoothCounts );
+        }
+        catch ( IOException e ) {
+            synchronized ( this ) {
+                spilledTiles.remove( key );
+            }
+            return null;
+        }
+    }
+
+    private Path spillFileOf( TileKey key ) {
+        return spillDirectory.resolve( key + ".tile" );
+    }
+
+    /**
+     * Forgets every tile and deletes the spill files. Tiles that are being spilled right now are deleted by the
+     * threads spilling them.
+     */
+    public void clear() {
+        ArrayList< TileKey > spilledKeys;
+        synchronized ( this ) {
+            tiles.clear();
+            bytesInMemory = 0;
+            pendingSpills.clear();
+            spilledKeys = new ArrayList<>( spilledTiles );
+            spilledTiles.clear();
+        }
+        for ( TileKey key : spilledKeys )
+            deleteSpillFile( key );
+    }
+
+    private void deleteSpillFile( TileKey key ) {
+        try {
+            Files.deleteIfExists( spillFileOf( key ) );
+        }
+        catch ( IOException e ) {
+            System.out.println( "Cannot delete spilled tile " + key + ": " + e.getMessage() );
+        }
+    }
+
+    /**
+     * The iteration counts of the pixels of a tile, row by row, and their smooth counts, which the coloring needs as
+     * well. Neither array may be changed once the tile is in the cache.
+     */
+    public static class Tile {
+
+        private final int[] counts;
+        private final float[] smoothCounts;
+
+        public Tile( int[] counts, float[] smoothCounts ) {
+            this.counts = counts;
+            this.smoothCounts = smoothCounts;
+        }
+
+        public int[] getCounts() {
+            return counts;
+        }
+
+        public float[] getSmoothCounts() {
+            return smoothCounts;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.Introduction;
+
+/**
+ * Farms the tiles of an image out to TileWorkers, which may run in other processes or on other hosts, and collects
+ * their results. The workers connect to a Networking.ThreadedServer, so every worker connection is served by a
+ * thread of its own. A worker asks for a tile, computes it and sends the counts back; the counts are copied into
+ * the frame buffer and the listener is told about the tile straight away, so the image fills in while the other
+ * tiles are still being computed.
+ *
+ * A tile handed to a worker is only leased to it. If the worker's connection is lost, its tile goes back to the
+ * front of the queue at once; if the worker stays silent for longer than the lease time, the tile is handed out
+ * again to the next worker that asks. Whichever result arrives first is used, and later results for the same tile
+ * are ignored, so a slow worker can never overwrite anything.
+ */
+import Networking.ThreadedServer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+
+public class TileCoordinator {
+
+    private static final int TILE_SIZE = 64;
+    private static final long LEASE_TIME = 30_000;  // milliseconds
+
+    private final ThreadedServer server;
+    private volatile boolean closed;
+
+    // The current job. All of these are guarded by the coordinator's lock.
+    private int jobId;
+    private RenderSpec spec;
+    private int[] counts;
+    private MarianiSilverRenderer.TileListener listener;
+    private int tilesAcross, tilesDown;
+    private ArrayDeque< Integer > pendingTiles;
+    private long[] leaseExpiryTimes;
+    private boolean[] finishedTiles;
+    private int unfinishedTiles;
+    private int redispatchedTiles;
+
+    public TileCoordinator( int port ) throws IOException {
+        server = new ThreadedServer( port, this::serveWorker );
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    /**
+     * Renders the view with whatever workers are connected, or connect later, and returns when every tile has
+     * come back. The counts are stored in counts[ row*width + column ], and the listener, which may be null, is
+     * called on a connection thread for every tile as soon as it has arrived.
+     */
+    synchronized public void render( RenderSpec spec, int[] counts, MarianiSilverRenderer.TileListener listener )
+            throws InterruptedException {
+        jobId++;
+        this.spec = spec;
+        this.counts = counts;
+        this.listener = listener;
+        tilesAcross = ( spec.getWidth() + TILE_SIZE - 1 ) / TILE_SIZE;
+        tilesDown = ( spec.getHeight() + TILE_SIZE - 1 ) / TILE_SIZE;
+        int numberOfTiles = tilesAcross * tilesDown;
+        pendingTiles = new ArrayDeque<>();
+        for ( int tile = 0; tile < numberOfTiles; tile++ )
+            pendingTiles.add( tile );
+        leaseExpiryTimes = new long[ numberOfTiles ];
+        finishedTiles = new boolean[ numberOfTiles ];
+        unfinishedTiles = numberOfTiles;
+        redispatchedTiles = 0;
+        while ( unfinishedTiles > 0 && !closed )
+            wait();
+        this.spec = null;
+    }
+
+    /**
+     * The number of tiles of the last render that had to be handed out more than once.
+     */
+    synchronized public int getRedispatchedTiles() {
+        return redispatchedTiles;
+    }
+
+    /**
+     * Stops accepting workers. Workers that are still connected are told to shut down the next time they ask for
+     * work.
+     */
+    synchronized public void close() {
+        closed = true;
+        server.stop();
+        notifyAll();
+    }
+
+    /**
+     * Runs on a thread of the server for as long as the worker stays connected.
+     */
+    private void serveWorker( Socket connection ) throws IOException {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( connection.getInputStream() ) );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( connection.getOutputStream() ) );
+        int leasedJob = -1, leasedTile = -1;
+        try {
+            while ( true ) {
+                int messageType = in.readInt();
+                if ( messageType == TileProtocol.REQUEST ) {
+                    int[] lease = sendNextTile( out );
+                    if ( lease == null )
+                        return;
+                    leasedJob = lease[0];
+                    leasedTile = lease[1];
+                }
+                else if ( messageType == TileProtocol.RESULT ) {
+                    receiveResult( in );
+                    leasedTile = -1;
+                }
+                else
+                    throw new IOException( "Unknown message type " + messageType );
+            }
+        }
+        finally {
+            if ( leasedTile >= 0 )
+                releaseLease( leasedJob, leasedTile );
+        }
+    }
+
+    /**
+     * Answers a request: leases a tile to the worker, or tells it to wait or to shut down. Returns { job, tile } for
+     * a lease, { -1, -1 } if the worker was told to wait, and null if it was told to shut down.
+     */
+    private int[] sendNextTile( DataOutputStream out ) throws IOException {
+        int tile, job, across;
+        RenderSpec tileSpec;
+        synchronized ( this ) {
+            if ( closed ) {
+                out.writeInt( TileProtocol.SHUTDOWN );
+                out.flush();
+                return null;
+            }
+            tile = ( spec == null ) ? -1 : leaseTile();
+            job = jobId;
+            across = tilesAcross;
+            tileSpec = spec;
+        }
+        if ( tile < 0 ) {
+            out.writeInt( TileProtocol.WAIT );
+            out.flush();
+            return new int[] { -1, -1 };
+        }
+        int x = ( tile % across ) * TILE_SIZE;
+        int y = ( tile / across ) * TILE_SIZE;
+        out.writeInt( TileProtocol.TILE );
+        out.writeInt( job );
+        out.writeInt( tile );
+        out.writeInt( x );
+        out.writeInt( y );
+        out.writeInt( Math.min( TILE_SIZE, tileSpec.getWidth() - x ) );
+        out.writeInt( Math.min( TILE_SIZE, tileSpec.getHeight() - y ) );
+        TileProtocol.writeSpec( out, tileSpec );
+        out.flush();
+        return new int[] { job, tile };
+    }
+
+    /**
+     * Takes the next tile from the queue or, if the queue is empty, a tile whose lease has expired. Returns -1 if
+     * every unfinished tile is leased to a worker that still has time.
+     */
+    private int leaseTile() {
+        long now = System.currentTimeMillis();
+        Integer tile = pendingTiles.poll();
+        if ( tile == null ) {
+            for ( int i = 0; i < finishedTiles.length; i++ )
+                if ( !finishedTiles[i] && leaseExpiryTimes[i] < now ) {
+                    tile = i;
+                    redispatchedTiles++;
+                    break;
+                }
+            if ( tile == null )
+                return -1;
+        }
+        leaseExpiryTimes[ tile ] = now + LEASE_TIME;
+        return tile;
+    }
+
+    /**
+     * Puts the tile of a lost worker back at the front of the queue, unless it has been finished in the meantime.
+     */
+    synchronized private void releaseLease( int job, int tile ) {
+        if ( job != jobId || spec == null || finishedTiles[ tile ] || pendingTiles.contains( tile ) )
+            return;
+        pendingTiles.addFirst( tile );
+        redispatchedTiles++;
+    }
+
+    private void receiveResult( DataInputStream in ) throws IOException {
+        int job = in.readInt();
+        int tile = in.readInt();
+        int numberOfCounts = in.readInt();
+        int[] tileCounts = new int[ numberOfCounts ];
+        for ( int i = 0; i < numberOfCounts; i++ )
+            tileCounts[i] = in.readInt();
+        storeResult( job, tile, tileCounts );
+    }
+
+    private void storeResult( int job, int tile, int[] tileCounts ) {
+        int x, y, width, height;
+        MarianiSilverRenderer.TileListener tileListener;
+        synchronized ( this ) {
+            if ( job != jobId || spec == null || finishedTiles[ tile ] )
+                return;  // A late result for a tile that has been handed out again.
+            x = ( tile % tilesAcross ) * TILE_SIZE;
+            y = ( tile / tilesAcross ) * TILE_SIZE;
+            width = Math.min( TILE_SIZE, spec.getWidth() - x );
+            height = Math.min( TILE_SIZE, spec.getHeight() - y );
+            if ( tileCounts.length != width * height )
+                return;
+            for ( int row = 0; row < height; row++ )
+                System.arraycopy( tileCounts, row*width, counts, ( y + row )*spec.getWidth() + x, width );
+            finishedTiles[ tile ] = true;
+            pendingTiles.remove( tile );
+            tileListener = listener;
+        }
+        if ( tileListener != null )
+            tileListener.tileFinished( x, y, width, height );
+        synchronized ( this ) {
+            if ( job != jobId )
+                return;
+            unfinishedTiles--;
+            if ( unfinishedTiles == 0 )
+                notifyAll();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.Introduction;
+
+/**
+ * Lays the quadtree tiles of TileKey over a view. The view must have been snapped to the pixel grid (see
+ * RenderSpec.snappedToPixelGrid), so that each of its pixels is exactly one pixel of some tile.
+ *
+ * Tiles are computed with a renderer for the tile-aligned area that covers the whole view, rather than one renderer
+ * per tile, so that deep views need only one reference orbit. The renderer has to use the kernel of the grid, whose
+ * name goes into the keys of the tiles.
+ */
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+public class TileGrid {
+
+    private static final BigInteger TILE_SIZE = BigInteger.valueOf( TileKey.TILE_SIZE );
+
+    private final RenderSpec viewSpec;
+    private final FractalKernel kernel;
+    private final RenderSpec coveringSpec;
+    private final int level;
+    private final BigInteger firstTileX;
+    private final BigInteger firstTileY;
+    private final int tilesAcross;
+    private final int tilesDown;
+    private final int viewColumnOffset;
+    private final int viewRowOffset;
+
+    public TileGrid( RenderSpec viewSpec, FractalKernel kernel ) {
+        this.viewSpec = viewSpec;
+        this.kernel = kernel;
+        double spacing = viewSpec.getPixelSpacing();
+        level = -Math.getExponent( spacing );
+        if ( Math.scalb( 1.0, -level ) != spacing )
+            throw new IllegalArgumentException( "The view is not snapped to the pixel grid." );
+
+        BigDecimal spacingAsBigDecimal = new BigDecimal( spacing );
+        BigDecimal halfWidth = BigDecimal.valueOf( viewSpec.getWidth() - 1 ).divide( BigDecimal.valueOf( 2 ) );
+        BigDecimal halfHeight = BigDecimal.valueOf( viewSpec.getHeight() - 1 ).divide( BigDecimal.valueOf( 2 ) );
+        BigInteger firstColumn = viewSpec.getCenterX().divide( spacingAsBigDecimal ).subtract( halfWidth )
+                .setScale( 0, RoundingMode.HALF_EVEN ).toBigInteger();
+        BigInteger firstRow = viewSpec.getCenterY().negate().divide( spacingAsBigDecimal ).subtract( halfHeight )
+                .setScale( 0, RoundingMode.HALF_EVEN ).toBigInteger();
+
+        firstTileX = floorDivide( firstColumn, TILE_SIZE );
+        firstTileY = floorDivide( firstRow, TILE_SIZE );
+        BigInteger lastColumn = firstColumn.add( BigInteger.valueOf( viewSpec.getWidth() - 1 ) );
+        BigInteger lastRow = firstRow.add( BigInteger.valueOf( viewSpec.getHeight() - 1 ) );
+        BigInteger lastTileX = floorDivide( lastColumn, TILE_SIZE );
+        BigInteger lastTileY = floorDivide( lastRow, TILE_SIZE );
+        tilesAcross = lastTileX.subtract( firstTileX ).intValueExact() + 1;
+        tilesDown = lastTileY.subtract( firstTileY ).intValueExact() + 1;
+        viewColumnOffset = firstColumn.subtract( firstTileX.multiply( TILE_SIZE ) ).intValueExact();
+        viewRowOffset = firstRow.subtract( firstTileY.multiply( TILE_SIZE ) ).intValueExact();
+
+        int coveringWidth = tilesAcross * TileKey.TILE_SIZE;
+        int coveringHeight = tilesDown * TileKey.TILE_SIZE;
+        BigDecimal coveringHalfWidth = BigDecimal.valueOf( coveringWidth - 1 ).divide( BigDecimal.valueOf( 2 ) );
+        BigDecimal coveringHalfHeight = BigDecimal.valueOf( coveringHeight - 1 ).divide( BigDecimal.valueOf( 2 ) );
+        BigDecimal centerX = new BigDecimal( firstTileX.multiply( TILE_SIZE ) ).add( coveringHalfWidth )
+                .multiply( spacingAsBigDecimal );
+        BigDecimal centerY = new BigDecimal( firstTileY.multiply( TILE_SIZE ) ).add( coveringHalfHeight )
+                .multiply( spacingAsBigDecimal ).negate();
+        coveringSpec = new RenderSpec( centerX, centerY, spacing, coveringWidth, coveringHeight,
+                viewSpec.getMaximumIterations() );
+    }
+
+    private static BigInteger floorDivide( BigInteger dividend, BigInteger divisor ) {
+        BigInteger[] quotientAndRemainder = dividend.divideAndRemainder( divisor );
+        if ( quotientAndRemainder[1].signum() < 0 )
+            return quotientAndRemainder[0].subtract( BigInteger.ONE );
+        return quotientAndRemainder[0];
+    }
+
+    public RenderSpec getViewSpec() {
+        return viewSpec;
+    }
+
+    /**
+     * The tile-aligned area covering the view. Pixel ( u, v ) of tile ( i, j ) of the grid is pixel
+     * ( i*TILE_SIZE + u, j*TILE_SIZE + v ) of this area.
+     */
+    public RenderSpec getCoveringSpec() {
+        return coveringSpec;
+    }
+
+    public FractalKernel getKernel() {
+        return kernel;
+    }
+
+    public int getTilesAcross() {
+        return tilesAcross;
+    }
+
+    public int getTilesDown() {
+        return tilesDown;
+    }
+
+    public TileKey keyOf( int i, int j ) {
+        return new TileKey( kernel.getName(), level, firstTileX.add( BigInteger.valueOf( i ) ),
+                firstTileY.add( BigInteger.valueOf( j ) ), viewSpec.getMaximumIterations() );
+    }
+
+    /**
+     * The view column of the first column of tile i. It is negative for the left-most tile when the view does not
+     * start on a tile boundary.
+     */
+    public int viewColumnOf( int i ) {
+        return i * TileKey.TILE_SIZE - viewColumnOffset;
+    }
+
+    public int viewRowOf( int j ) {
+        return j * TileKey.TILE_SIZE - viewRowOffset;
+    }
+
+    /**
+     * Computes the iteration counts and smooth counts of tile ( i, j ) with a renderer for the covering area.
+     */
+    public TileCache.Tile computeTile( EscapeTimeRenderer coveringRenderer, int i, int j ) {
+        int[] counts = new int[ TileKey.TILE_SIZE * TileKey.TILE_SIZE ];
+        float[] smoothCounts = new float[ TileKey.TILE_SIZE * TileKey.TILE_SIZE ];
+        for ( int v = 0; v < TileKey.TILE_SIZE; v++ )
+            coveringRenderer.iterationsOfRow( j*TileKey.TILE_SIZE + v, i*TileKey.TILE_SIZE,
+                    ( i + 1 )*TileKey.TILE_SIZE, counts, smoothCounts, v*TileKey.TILE_SIZE );
+        return new TileCache.Tile( counts, smoothCounts );
+    }
+}
@@ -0,0 +1,71 @@
+package com.Introduction;
+
+/**
+ * Identifies one square tile of iteration counts in a quadtree over the complex plane. At level L the pixel spacing
+ * is exactly 2^-L, pixel ( X, Y ) of the level lies at the point ( X * 2^-L, -Y * 2^-L ), and tile ( tileX, tileY )
+ * covers the TILE_SIZE by TILE_SIZE pixels starting at ( tileX * TILE_SIZE, tileY * TILE_SIZE ). Each tile of a
+ * level is split into four tiles of the next level. The tile indices are BigIntegers because they grow with the
+ * zoom depth. The fractal, by the name of its kernel, and the iteration limit are part of the key, since the counts
+ * depend on them.
+ */
+import java.math.BigInteger;
+
+public final class TileKey {
+
+    public static final int TILE_SIZE = 64;
+
+    private final String fractal;
+    private final int level;
+    private final BigInteger tileX;
+    private final BigInteger tileY;
+    private final int maximumIterations;
+
+    public TileKey( String fractal, int level, BigInteger tileX, BigInteger tileY, int maximumIterations ) {
+        this.fractal = fractal;
+        this.level = level;
+        this.tileX = tileX;
+        this.tileY = tileY;
+        this.maximumIterations = maximumIterations;
+    }
+
+    public String getFractal() {
+        return fractal;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public BigInteger getTileX() {
+        return tileX;
+    }
+
+    public BigInteger getTileY() {
+        return tileY;
+    }
+
+    public int getMaximumIterations() {
+        return maximumIterations;
+    }
+
+    public boolean equals( Object other ) {
+        if ( !( other instanceof TileKey ) )
+            return false;
+        TileKey key = ( TileKey ) other;
+        return level == key.level && maximumIterations == key.maximumIterations && fractal.equals( key.fractal )
+                && tileX.equals( key.tileX ) && tileY.equals( key.tileY );
+    }
+
+    public int hashCode() {
+        return ( ( ( fractal.hashCode() * 31 + level ) * 31 + tileX.hashCode() ) * 31 + tileY.hashCode() ) * 31
+                + maximumIterations;
+    }
+
+    /**
+     * A name that is unique to the key and can be used as a file name. Kernel names contain spaces, which are left
+     * out.
+     */
+    public String toString() {
+        return fractal.replace( " ", "" ) + "_L" + level + "_X" + tileX + "_Y" + tileY + "_I" + maximumIterations;
+    }
+}
@@ -0,0 +1,52 @@
+package com.Introduction;
+
+/**
+ * The messages that a TileCoordinator and its TileWorkers exchange over a socket. Every message starts with its
+ * type as an int:
+ *
+ *      worker to coordinator:
+ *          REQUEST                                     asks for a tile
+ *          RESULT jobId tileId count...                the counts of a leased tile, row by row
+ *      coordinator to worker:
+ *          TILE jobId tileId x y width height spec     a tile to compute, leased to this worker
+ *          WAIT                                        nothing to do right now, ask again a little later
+ *          SHUTDOWN                                    the coordinator is closing, the worker should stop
+ *
+ * The spec is the whole view: the centre as decimal strings, so that deep zooms keep all their digits, followed by
+ * the pixel spacing, the size of the image and the maximum number of iterations.
+ */
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+final class TileProtocol {
+
+    static final int REQUEST = 1;
+    static final int RESULT = 2;
+    static final int TILE = 3;
+    static final int WAIT = 4;
+    static final int SHUTDOWN = 5;
+
+    private TileProtocol() {
+    }
+
+    static void writeSpec( DataOutputStream out, RenderSpec spec ) throws IOException {
+        out.writeUTF( spec.getCenterX().toString() );
+        out.writeUTF( spec.getCenterY().toString() );
+        out.writeDouble( spec.getPixelSpacing() );
+        out.writeInt( spec.getWidth() );
+        out.writeInt( spec.getHeight() );
+        out.writeInt( spec.getMaximumIterations() );
+    }
+
+    static RenderSpec readSpec( DataInputStream in ) throws IOException {
+        BigDecimal centerX = new BigDecimal( in.readUTF() );
+        BigDecimal centerY = new BigDecimal( in.readUTF() );
+        double pixelSpacing = in.readDouble();
+        int width = in.readInt();
+        int height = in.readInt();
+        int maximumIterations = in.readInt();
+        return new RenderSpec( centerX, centerY, pixelSpacing, width, height, maximumIterations );
+    }
+}
@@ -0,0 +1,113 @@
+package com.Introduction;
+
+/**
+ * Computes tiles for a TileCoordinator. The worker opens one connection per thread; each thread asks for a tile,
+ * computes it and sends the counts back, until the coordinator tells it to shut down or goes away. The threads of a
+ * worker share one renderer per job, so the reference orbit of a deep zoom is only computed once per process.
+ *
+ * Usage: java com.Introduction.TileWorker host port [ numberOfThreads [ tilesBeforeCrashing ] ]
+ *
+ * The last argument makes the worker exit abruptly after computing that many tiles without sending the last one
+ * back, which shows the coordinator handing the lost tile to another worker.
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TileWorker {
+
+    private static final long WAIT_TIME = 100;  // milliseconds
+
+    private final String host;
+    private final int port;
+    private final int tilesBeforeCrashing;
+    private final AtomicInteger computedTiles = new AtomicInteger();
+    private int rendererJob = -1;
+    private EscapeTimeRenderer renderer;
+
+    public static void main( String[] args ) throws InterruptedException {
+        if ( args.length < 2 ) {
+            System.out.println( "Usage: java com.Introduction.TileWorker host port [ threads [ crashAfter ] ]" );
+            return;
+        }
+        int numberOfThreads = ( args.length > 2 ) ? Integer.parseInt( args[2] )
+                : Runtime.getRuntime().availableProcessors();
+        int tilesBeforeCrashing = ( args.length > 3 ) ? Integer.parseInt( args[3] ) : -1;
+        TileWorker worker = new TileWorker( args[0], Integer.parseInt( args[1] ), tilesBeforeCrashing );
+        Thread[] threads = new Thread[ numberOfThreads ];
+        for ( int i = 0; i < numberOfThreads; i++ ) {
+            threads[i] = new Thread( worker::serveCoordinator );
+            threads[i].start();
+        }
+        for ( Thread thread : threads )
+            thread.join();
+    }
+
+    public TileWorker( String host, int port, int tilesBeforeCrashing ) {
+        this.host = host;
+        this.port = port;
+        this.tilesBeforeCrashing = tilesBeforeCrashing;
+    }
+
+    private void serveCoordinator() {
+        try ( Socket connection = new Socket( host, port ) ) {
+            DataInputStream in = new DataInputStream( new BufferedInputStream( connection.getInputStream() ) );
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( connection.getOutputStream() ) );
+            while ( true ) {
+                out.writeInt( TileProtocol.REQUEST );
+                out.flush();
+                int messageType = in.readInt();
+                if ( messageType == TileProtocol.SHUTDOWN )
+                    return;
+                else if ( messageType == TileProtocol.WAIT )
+                    Thread.sleep( WAIT_TIME );
+                else if ( messageType == TileProtocol.TILE )
+                    computeTile( in, out );
+                else
+                    throw new IOException( "Unknown message type " + messageType );
+            }
+        }
+        catch ( IOException e ) {
+            System.out.println( "Lost the connection with the coordinator: " + e.getMessage() );
+        }
+        catch ( InterruptedException e ) {
+            // The worker is being shut down.
+        }
+    }
+
+    private void computeTile( DataInputStream in, DataOutputStream out ) throws IOException {
+        int job = in.readInt();
+        int tile = in.readInt();
+        int x = in.readInt();
+        int y = in.readInt();
+        int width = in.readInt();
+        int height = in.readInt();
+        RenderSpec spec = TileProtocol.readSpec( in );
+        EscapeTimeRenderer tileRenderer = getRenderer( job, spec );
+        int[] counts = new int[ width * height ];
+        for ( int row = 0; row < height; row++ )
+            tileRenderer.iterationsOfRow( y + row, x, x + width, counts, null, row*width );
+        if ( computedTiles.incrementAndGet() == tilesBeforeCrashing ) {
+            System.out.println( "Worker crashing on purpose after " + tilesBeforeCrashing + " tiles." );
+            Runtime.getRuntime().halt( 1 );
+        }
+        out.writeInt( TileProtocol.RESULT );
+        out.writeInt( job );
+        out.writeInt( tile );
+        out.writeInt( counts.length );
+        for ( int count : counts )
+            out.writeInt( count );
+    }
+
+    synchronized private EscapeTimeRenderer getRenderer( int job, RenderSpec spec ) {
+        if ( job != rendererJob ) {
+            renderer = RenderEngine.createRenderer( spec );
+            rendererJob = job;
+        }
+        return renderer;
+    }
+}
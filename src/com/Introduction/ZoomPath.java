@@ -0,0 +1,106 @@
+package com.Introduction;
+
+/**
+ * A zoom animation described by keyframes: views at given frame numbers, with the frames in between interpolated.
+ * The pixel spacing is interpolated geometrically, so the zoom runs at a constant speed. The centre moves in step
+ * with the zoom rather than with time: its remaining distance to the next keyframe shrinks in proportion to the
+ * remaining difference in pixel spacing. Measured in pixels, the target of the zoom then drifts steadily towards
+ * the middle of the image, whereas moving the centre linearly in time would throw it off screen as soon as the
+ * zoom gets going. The iteration limit is interpolated linearly.
+ *
+ * Keyframes can be read from a text file with one keyframe per line:
+ *
+ *      frameNumber centerX centerY pixelSpacing maximumIterations
+ *
+ * The coordinates of the centre may have as many digits as the zoom depth needs. Empty lines and lines starting
+ * with # are ignored.
+ */
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ZoomPath {
+
+    private final int width;
+    private final int height;
+    private final TreeMap< Integer, RenderSpec > keyframes = new TreeMap<>();
+
+    public ZoomPath( int width, int height ) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public static ZoomPath read( Path file, int width, int height ) throws IOException {
+        ZoomPath path = new ZoomPath( width, height );
+        int lineNumber = 0;
+        for ( String line : Files.readAllLines( file ) ) {
+            lineNumber++;
+            line = line.trim();
+            if ( line.isEmpty() || line.startsWith( "#" ) )
+                continue;
+            String[] fields = line.split( "\\s+" );
+            if ( fields.length != 5 )
+                throw new IOException( file + ", line " + lineNumber + ": expected 5 fields, found " + fields.length );
+            try {
+                path.addKeyframe( Integer.parseInt( fields[0] ), new BigDecimal( fields[1] ),
+                        new BigDecimal( fields[2] ), Double.parseDouble( fields[3] ), Integer.parseInt( fields[4] ) );
+            }
+            catch ( IllegalArgumentException e ) {
+                throw new IOException( file + ", line " + lineNumber + ": " + e.getMessage() );
+            }
+        }
+        if ( path.keyframes.isEmpty() )
+            throw new IOException( file + " contains no keyframes." );
+        return path;
+    }
+
+    public void addKeyframe( int frameNumber, BigDecimal centerX, BigDecimal centerY, double pixelSpacing,
+                             int maximumIterations ) {
+        if ( frameNumber < 0 )
+            throw new IllegalArgumentException( "Frame numbers can not be negative." );
+        keyframes.put( frameNumber, new RenderSpec( centerX, centerY, pixelSpacing, width, height,
+                maximumIterations ) );
+    }
+
+    public int getFirstFrame() {
+        return keyframes.firstKey();
+    }
+
+    public int getLastFrame() {
+        return keyframes.lastKey();
+    }
+
+    /**
+     * The view of the given frame. Frames before the first or after the last keyframe show that keyframe.
+     */
+    public RenderSpec specAt( int frameNumber ) {
+        Map.Entry< Integer, RenderSpec > before = keyframes.floorEntry( frameNumber );
+        Map.Entry< Integer, RenderSpec > after = keyframes.ceilingEntry( frameNumber );
+        if ( before == null )
+            return after.getValue();
+        if ( after == null || before.getKey().equals( after.getKey() ) )
+            return before.getValue();
+        double t = ( frameNumber - before.getKey() ) / ( double ) ( after.getKey() - before.getKey() );
+        return interpolate( before.getValue(), after.getValue(), t );
+    }
+
+    private RenderSpec interpolate( RenderSpec from, RenderSpec to, double t ) {
+        double fromSpacing = from.getPixelSpacing();
+        double toSpacing = to.getPixelSpacing();
+        double spacing = fromSpacing * Math.pow( toSpacing / fromSpacing, t );
+        double progress = ( fromSpacing == toSpacing ) ? t : ( fromSpacing - spacing ) / ( fromSpacing - toSpacing );
+        int maximumIterations = ( int ) Math.round( from.getMaximumIterations()
+                + t * ( to.getMaximumIterations() - from.getMaximumIterations() ) );
+        RenderSpec withoutCentre = new RenderSpec( BigDecimal.ZERO, BigDecimal.ZERO, spacing, width, height,
+                maximumIterations );
+        BigDecimal weight = new BigDecimal( progress );
+        BigDecimal centerX = from.getCenterX().add( to.getCenterX().subtract( from.getCenterX() ).multiply( weight ),
+                withoutCentre.getMathContext() );
+        BigDecimal centerY = from.getCenterY().add( to.getCenterY().subtract( from.getCenterY() ).multiply( weight ),
+                withoutCentre.getMathContext() );
+        return new RenderSpec( centerX, centerY, spacing, width, height, maximumIterations );
+    }
+}
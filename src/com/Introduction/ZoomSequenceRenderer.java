@@ -0,0 +1,289 @@
+package com.Introduction;
+
+/**
+ * Renders a zoom animation into a numbered sequence of PNG files without opening a window, so that it can run on a
+ * server without a display. The animation is described by a ZoomPath.
+ *
+ * Producing a frame takes four steps: computing the iteration counts, coloring them, encoding the image as a PNG
+ * and writing it to disk. Done one after the other, the processors would sit idle while a frame is encoded and
+ * written. Instead, each step is a stage of a pipeline with a thread of its own, and the stages hand frames on
+ * through ArrayBlockingQueues:
+ *
+ *      compute --> colorize --> encode --> write
+ *
+ * While frame n is being written and frame n + 1 encoded, frame n + 2 is already being computed. Computing is by
+ * far the most expensive stage and uses a ForkJoinPool with one thread per processor; the queues are short, so a
+ * slow disk or encoder makes the computation wait instead of filling up the memory with finished frames. At the
+ * end the program prints how long each stage was busy.
+ *
+ * Usage: java com.Introduction.ZoomSequenceRenderer [ options ]
+ *
+ *      --keyframes=<file>   the keyframes (see ZoomPath); by default a zoom from the whole set into the viewport of
+ *                           the other versions of the program
+ *      --frames=<n>         the number of frames of the default zoom (100)
+ *      --width=<pixels>, --height=<pixels>   the size of the images (700 by 550)
+ *      --output=<directory> where to put the images (frames)
+ *      --coloring=banded|smooth|histogram    (smooth)
+ *      --palette=rainbow|fire|grayscale      (rainbow)
+ *      --threads=<n>        the number of threads that compute (one per processor)
+ */
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ZoomSequenceRenderer {
+
+    private static final int QUEUE_CAPACITY = 2;
+
+    private final ZoomPath zoomPath;
+    private final Path outputDirectory;
+    private final Colorizer colorizer;
+    private final ForkJoinPool computePool;
+
+    private final BlockingQueue< Frame > computedFrames = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+    private final BlockingQueue< Frame > coloredFrames = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+    private final BlockingQueue< Frame > encodedFrames = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+
+    public static void main( String[] args ) throws Exception {
+        System.setProperty( "java.awt.headless", "true" );
+        HashMap< String, String > options = parseOptions( args );
+        if ( options == null )
+            return;
+        int width = Integer.parseInt( options.getOrDefault( "width", "700" ) );
+        int height = Integer.parseInt( options.getOrDefault( "height", "550" ) );
+        ZoomPath zoomPath;
+        if ( options.containsKey( "keyframes" ) )
+            zoomPath = ZoomPath.read( Paths.get( options.get( "keyframes" ) ), width, height );
+        else
+            zoomPath = createDefaultZoomPath( width, height,
+                    Integer.parseInt( options.getOrDefault( "frames", "100" ) ) );
+        Colorizer colorizer = new Colorizer( paletteNamed( options.getOrDefault( "palette", "rainbow" ) ),
+                Colorizer.Scheme.valueOf( options.getOrDefault( "coloring", "smooth" ).toUpperCase() ) );
+        int numberOfThreads = Integer.parseInt( options.getOrDefault( "threads",
+                String.valueOf( Runtime.getRuntime().availableProcessors() ) ) );
+        Path outputDirectory = Paths.get( options.getOrDefault( "output", "frames" ) );
+        Files.createDirectories( outputDirectory );
+        new ZoomSequenceRenderer( zoomPath, outputDirectory, colorizer, numberOfThreads ).renderAllFrames();
+    }
+
+    /**
+     * Accepts options of the form --name=value. Returns null, after saying why, if an argument is not one.
+     */
+    private static HashMap< String, String > parseOptions( String[] args ) {
+        HashMap< String, String > options = new HashMap<>();
+        for ( String arg : args ) {
+            int equalsSign = arg.indexOf( '=' );
+            if ( !arg.startsWith( "--" ) || equalsSign < 0 ) {
+                System.out.println( "Unknown argument " + arg + "; options look like --frames=100." );
+                return null;
+            }
+            options.put( arg.substring( 2, equalsSign ), arg.substring( equalsSign + 1 ) );
+        }
+        return options;
+    }
+
+    private static int[] paletteNamed( String name ) {
+        if ( name.equals( "fire" ) )
+            return Colorizer.firePalette();
+        else if ( name.equals( "grayscale" ) )
+            return Colorizer.grayscalePalette();
+        else
+            return Colorizer.rainbowPalette();
+    }
+
+    /**
+     * Zooms from the whole set into the viewport of versions 3 to 5, raising the iteration limit on the way.
+     */
+    private static ZoomPath createDefaultZoomPath( int width, int height, int numberOfFrames ) {
+        ZoomPath zoomPath = new ZoomPath( width, height );
+        zoomPath.addKeyframe( 0, new BigDecimal( "-0.7" ), BigDecimal.ZERO, 3.0 / ( width - 1 ), 500 );
+        RenderSpec target = RenderSpec.fromBounds( -1.6744096740931858, -1.674409674093473,
+                4.716540768697223E-5, 4.716540790246652E-5, width, height, 10000 );
+        zoomPath.addKeyframe( Math.max( 1, numberOfFrames - 1 ), target.getCenterX(), target.getCenterY(),
+                target.getPixelSpacing(), target.getMaximumIterations() );
+        return zoomPath;
+    }
+
+    public ZoomSequenceRenderer( ZoomPath zoomPath, Path outputDirectory, Colorizer colorizer, int numberOfThreads ) {
+        this.zoomPath = zoomPath;
+        this.outputDirectory = outputDirectory;
+        this.colorizer = colorizer;
+        computePool = new ForkJoinPool( numberOfThreads );
+    }
+
+    /**
+     * Runs the four stages until every frame has been written.
+     */
+    public void renderAllFrames() throws InterruptedException {
+        long startTime = System.nanoTime();
+        Stage[] stages = { new ComputeStage(), new ColorizeStage(), new EncodeStage(), new WriteStage() };
+        for ( Stage stage : stages )
+            stage.start();
+        for ( Stage stage : stages )
+            stage.join();
+        computePool.shutdown();
+        double seconds = ( System.nanoTime() - startTime ) / 1e9;
+        int numberOfFrames = zoomPath.getLastFrame() - zoomPath.getFirstFrame() + 1;
+        System.out.printf( "%d frames in %.1f s (%.2f frames per second)%n", numberOfFrames, seconds,
+                numberOfFrames / seconds );
+        for ( Stage stage : stages )
+            System.out.printf( "    %-10s busy %5.1f s (%4.1f%%)%n", stage.getName(), stage.busyTime / 1e9,
+                    100 * stage.busyTime / 1e9 / seconds );
+    }
+
+    /**
+     * One frame on its way through the pipeline. Each stage fills in its own part. A frame with a negative number
+     * marks the end of the sequence.
+     */
+    private static class Frame {
+
+        final int number;
+        RenderSpec spec;
+        int[] counts;
+        float[] smoothCounts;
+        BufferedImage image;
+        byte[] png;
+
+        Frame( int number ) {
+            this.number = number;
+        }
+
+        boolean isEndOfSequence() {
+            return number < 0;
+        }
+    }
+
+    /**
+     * A thread that takes frames from its input queue, processes them and passes them on, until the end of the
+     * sequence comes through. The first stage has no input and makes the frames itself.
+     */
+    private abstract class Stage extends Thread {
+
+        private final BlockingQueue< Frame > input;
+        private final BlockingQueue< Frame > output;
+        long busyTime;
+
+        Stage( String name, BlockingQueue< Frame > input, BlockingQueue< Frame > output ) {
+            super( name );
+            this.input = input;
+            this.output = output;
+        }
+
+        abstract void process( Frame frame ) throws Exception;
+
+        public void run() {
+            try {
+                while ( true ) {
+                    Frame frame = nextFrame();
+                    if ( !frame.isEndOfSequence() ) {
+                        long startTime = System.nanoTime();
+                        processSafely( frame );
+                        busyTime += System.nanoTime() - startTime;
+                    }
+                    if ( output != null )
+                        output.put( frame );
+                    if ( frame.isEndOfSequence() )
+                        break;
+                }
+            }
+            catch ( InterruptedException e ) {
+                System.out.println( getName() + " stage was interrupted." );
+            }
+        }
+
+        Frame nextFrame() throws InterruptedException {
+            return input.take();
+        }
+
+        private void processSafely( Frame frame ) {
+            try {
+                process( frame );
+            }
+            catch ( Exception e ) {
+                System.out.println( "Frame " + frame.number + ", " + getName() + ": " + e );
+            }
+        }
+    }
+
+    private class ComputeStage extends Stage {
+
+        private int nextFrameNumber = zoomPath.getFirstFrame();
+
+        ComputeStage() {
+            super( "compute", null, computedFrames );
+        }
+
+        Frame nextFrame() {
+            if ( nextFrameNumber > zoomPath.getLastFrame() )
+                return new Frame( -1 );
+            return new Frame( nextFrameNumber++ );
+        }
+
+        void process( Frame frame ) {
+            frame.spec = zoomPath.specAt( frame.number );
+            frame.counts = new int[ frame.spec.getWidth() * frame.spec.getHeight() ];
+            frame.smoothCounts = new float[ frame.counts.length ];
+            ForkJoinTileRenderer renderer = new ForkJoinTileRenderer( RenderEngine.createRenderer( frame.spec ),
+                    frame.counts, frame.smoothCounts );
+            computePool.invoke( new RecursiveAction() {
+                protected void compute() {
+                    renderer.render( null );
+                }
+            } );
+        }
+    }
+
+    private class ColorizeStage extends Stage {
+
+        ColorizeStage() {
+            super( "colorize", computedFrames, coloredFrames );
+        }
+
+        void process( Frame frame ) {
+            int width = frame.spec.getWidth();
+            int[] argb = new int[ frame.counts.length ];
+            colorizer.recolor( frame.counts, frame.smoothCounts, width, frame.spec.getMaximumIterations(), argb );
+            frame.image = new BufferedImage( width, frame.spec.getHeight(), BufferedImage.TYPE_INT_RGB );
+            frame.image.setRGB( 0, 0, width, frame.spec.getHeight(), argb, 0, width );
+            frame.counts = null;
+            frame.smoothCounts = null;
+        }
+    }
+
+    private class EncodeStage extends Stage {
+
+        EncodeStage() {
+            super( "encode", coloredFrames, encodedFrames );
+        }
+
+        void process( Frame frame ) throws IOException {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write( frame.image, "png", png );
+            frame.png = png.toByteArray();
+            frame.image = null;
+        }
+    }
+
+    private class WriteStage extends Stage {
+
+        WriteStage() {
+            super( "write", encodedFrames, null );
+        }
+
+        void process( Frame frame ) throws IOException {
+            Path file = outputDirectory.resolve( String.format( "frame%05d.png", frame.number ) );
+            Files.write( file, frame.png );
+            System.out.println( file + "  " + frame.spec );
+        }
+    }
+}